@@ -18,8 +18,13 @@ repositories {
     mavenCentral()
 }
 
+// JMH benchmarks of swank transport, run against in-JVM fake swank server so no lisp is needed
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output + sourceSets.main.get().compileClasspath
+    runtimeClasspath += output + compileClasspath
+}
+
 dependencies {
-    implementation("org.awaitility:awaitility:4.2.0")
     implementation("org.watertemplate:watertemplate-engine:1.2.2")
     implementation("com.google.guava:guava:31.1-jre")
     implementation("org.rauschig:jarchivelib:1.2.0")
@@ -27,6 +32,9 @@ dependencies {
 
     testImplementation("org.junit.jupiter:junit-jupiter-api:5.9.3")
     testRuntimeOnly("org.junit.jupiter:junit-jupiter-engine:5.9.3")
+
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:1.36")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.36")
 }
 
 sourceSets {
@@ -76,6 +84,20 @@ tasks {
     }
     sltZip.mustRunAfter(processResources)
 
+    // ./gradlew jmh -PjmhInclude=SwankPacketBenchmark
+    register<JavaExec>("jmh") {
+        group = "benchmark"
+        description = "Runs swank transport benchmarks."
+        classpath = jmh.runtimeClasspath
+        mainClass.set("org.openjdk.jmh.Main")
+        val results = layout.buildDirectory.file("reports/jmh/results.json").get().asFile
+        args = listOfNotNull(project.findProperty("jmhInclude")?.toString()) +
+                listOf("-rf", "json", "-rff", results.absolutePath)
+        doFirst {
+            results.parentFile.mkdirs()
+        }
+    }
+
     instrumentedJar {
         dependsOn(sltZip)
     }
@@ -0,0 +1,66 @@
+package com.en_circle.slt.benchmarks;
+
+import com.en_circle.slt.plugin.swank.SlimeListener;
+import com.en_circle.slt.plugin.swank.SlimeRequest;
+import com.en_circle.slt.plugin.swank.SlimeRequestWindow;
+import com.en_circle.slt.plugin.swank.SwankClient;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Listener and client connected to {@link FakeSwankServer}, the same way plugin talks to lisp.
+ */
+public class FakeSwankConnection implements AutoCloseable {
+
+    private static final long REPLY_TIMEOUT_SECONDS = 10;
+
+    private final FakeSwankServer server;
+    private final SlimeListener listener;
+    private final SwankClient client;
+
+    public FakeSwankConnection() throws IOException {
+        this(new FakeSwankServer());
+    }
+
+    public FakeSwankConnection(FakeSwankServer server) {
+        this(server, SlimeRequestWindow.DEFAULT_SIZE);
+    }
+
+    public FakeSwankConnection(FakeSwankServer server, int requestWindow) {
+        this.server = server;
+        this.listener = new SlimeListener(null, false, e -> { }, null, null, requestWindow);
+        this.client = new SwankClient("127.0.0.1", server.getPort(), listener);
+    }
+
+    public FakeSwankServer getServer() {
+        return server;
+    }
+
+    public SlimeListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Sends request created with completion callback and waits for its reply.
+     */
+    public <T> T roundTrip(Function<CompletableFuture<T>, SlimeRequest> request) throws Exception {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        listener.call(request.apply(result), client);
+        return result.get(REPLY_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public void send(SlimeRequest request) throws InterruptedException {
+        listener.call(request, client);
+    }
+
+    @Override
+    public void close() throws Exception {
+        client.close();
+        listener.close();
+        server.close();
+    }
+
+}
@@ -0,0 +1,191 @@
+package com.en_circle.slt.benchmarks;
+
+import com.en_circle.slt.plugin.lisp.lisp.LispContainer;
+import com.en_circle.slt.plugin.lisp.lisp.LispElement;
+import com.en_circle.slt.plugin.lisp.lisp.LispInteger;
+import com.en_circle.slt.plugin.lisp.lisp.LispString;
+import com.en_circle.slt.plugin.lisp.lisp.LispSymbol;
+import com.en_circle.slt.plugin.swank.SwankFraming;
+import com.en_circle.slt.plugin.swank.SwankPacket;
+import com.en_circle.slt.plugin.swank.SwankReader;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * In-JVM stand-in for lisp swank server.
+ *
+ * Answers each :emacs-rex request with reply recorded for the called swank function, see
+ * {@link #loadRecording(String)}. Replies can also be computed from the request form, ie when their size depends on
+ * the request. swank:slt-batch requests are answered by replying to each batched request. Requests of unknown
+ * functions get (:abort) reply, null reply means request is swallowed.
+ */
+public class FakeSwankServer implements AutoCloseable {
+
+    public static final String RECORDED_REPLIES = "/swank/recorded-replies.txt";
+
+    private static final Pattern ESCAPE = Pattern.compile("\\\\(.)");
+
+    /**
+     * Reads recorded replies, one per line as function name and result form separated by tab.
+     */
+    public static Map<String, String> loadRecording(String resource) throws IOException {
+        Map<String, String> replies = new ConcurrentHashMap<>();
+        try (InputStream is = FakeSwankServer.class.getResourceAsStream(resource)) {
+            if (is == null) {
+                throw new FileNotFoundException(resource);
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                int separator = line.indexOf('\t');
+                replies.put(line.substring(0, separator), line.substring(separator + 1));
+            }
+        }
+        return replies;
+    }
+
+    public static String loadResource(String resource) throws IOException {
+        try (InputStream is = FakeSwankServer.class.getResourceAsStream(resource)) {
+            if (is == null) {
+                throw new FileNotFoundException(resource);
+            }
+            return new String(is.readAllBytes(), StandardCharsets.UTF_8).trim();
+        }
+    }
+
+    private final ServerSocket serverSocket;
+    private final Map<String, Function<LispContainer, String>> handlers = new ConcurrentHashMap<>();
+    private final ExecutorService connections = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "Fake Swank Connection");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean running = true;
+
+    public FakeSwankServer() throws IOException {
+        this(loadRecording(RECORDED_REPLIES));
+    }
+
+    public FakeSwankServer(Map<String, String> recorded) throws IOException {
+        recorded.forEach((function, reply) -> handlers.put(function, form -> reply));
+        handlers.put("swank:slt-batch", this::replyBatch);
+
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        connections.submit(this::accept);
+    }
+
+    /**
+     * Replaces reply of swank function with one computed from the request form, ie (swank:slt-eval "...").
+     */
+    public void handle(String function, Function<LispContainer, String> handler) {
+        handlers.put(function, handler);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void accept() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connections.submit(() -> serve(socket));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            byte[] header = new byte[SwankFraming.HEADER_LENGTH];
+            while (running) {
+                in.readFully(header);
+                byte[] message = new byte[Integer.parseInt(new String(header, StandardCharsets.US_ASCII), 16)];
+                in.readFully(message);
+                String reply = reply(new String(message, StandardCharsets.UTF_8));
+                if (reply != null) {
+                    write(out, reply);
+                    if (in.available() == 0) {
+                        out.flush();
+                    }
+                }
+            }
+        } catch (IOException ignored) {
+            // client disconnected
+        }
+    }
+
+    private String reply(String message) {
+        List<LispElement> elements = SwankReader.read(message);
+        if (elements.size() != 1 || !(elements.get(0) instanceof LispContainer request) || !isRex(request)) {
+            return null;
+        }
+        String result = result(request);
+        if (result == null) {
+            return null;
+        }
+        return "(:return " + result + " " + ((LispInteger) request.getItems().get(4)).getLongValue() + ")";
+    }
+
+    private String result(LispContainer request) {
+        LispContainer form = (LispContainer) request.getItems().get(1);
+        String function = ((LispSymbol) form.getItems().get(0)).getValue();
+        Function<LispContainer, String> handler = handlers.get(function);
+        if (handler == null) {
+            return "(:abort \"unknown function " + function + "\")";
+        }
+        return handler.apply(form);
+    }
+
+    private String replyBatch(LispContainer form) {
+        StringBuilder results = new StringBuilder("(:ok #(");
+        LispContainer requests = (LispContainer) form.getItems().get(1);
+        for (LispElement element : requests.getItems()) {
+            // batched requests are sent as strings, read by lisp in their own package
+            String message = ESCAPE.matcher(((LispString) element).getValue()).replaceAll("$1");
+            String result = result((LispContainer) SwankReader.read(message).get(0));
+            results.append(result == null ? "(:abort nil)" : result).append(' ');
+        }
+        return results.append("))").toString();
+    }
+
+    private boolean isRex(LispContainer request) {
+        return request.getItems().size() == 5 &&
+                request.getItems().get(0) instanceof LispSymbol symbol &&
+                ":emacs-rex".equals(symbol.getValue());
+    }
+
+    private void write(OutputStream out, String reply) throws IOException {
+        ByteBuffer frame = new SwankPacket(reply).toBuffer();
+        byte[] data = new byte[frame.remaining()];
+        frame.get(data);
+        out.write(data);
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        serverSocket.close();
+        connections.shutdownNow();
+    }
+
+}
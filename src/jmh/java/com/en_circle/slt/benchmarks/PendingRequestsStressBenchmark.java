@@ -0,0 +1,106 @@
+package com.en_circle.slt.benchmarks;
+
+import com.en_circle.slt.plugin.swank.SlimeExecutors;
+import com.en_circle.slt.plugin.swank.requests.Argslist;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thousands of callers waiting for their reply at once, each blocked in its own task as IDE queries waiting for
+ * lisp are. Caller tasks and reply dispatch run either on platform threads (cached pool, as IDE pooled threads) or
+ * on virtual threads, which fall back to platform threads on runtimes older than Java 21.
+ *
+ * Score is the time until the whole wave of requests is answered, peak live thread count of each iteration is
+ * reported as peakThreads secondary result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PendingRequestsStressBenchmark {
+
+    @Param({"PLATFORM", "VIRTUAL"})
+    public String threads;
+
+    @Param({"1000", "4000"})
+    public int pending;
+
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private ExecutorService executor;
+    private FakeSwankConnection connection;
+
+    @Setup
+    public void setup() throws Exception {
+        if ("VIRTUAL".equals(threads) && SlimeExecutors.isVirtualThreadsSupported()) {
+            executor = SlimeExecutors.getVirtualExecutor();
+        } else {
+            executor = Executors.newCachedThreadPool();
+        }
+        connection = new FakeSwankConnection(new FakeSwankServer(), pending);
+        connection.getListener().setDispatchExecutor(executor);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        connection.close();
+        if (executor != SlimeExecutors.getVirtualExecutor()) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void resetPeak() {
+        threadBean.resetPeakThreadCount();
+    }
+
+    @Benchmark
+    public int wave(ThreadCounters counters) throws Exception {
+        CountDownLatch done = new CountDownLatch(pending);
+        AtomicInteger failed = new AtomicInteger();
+        for (int i = 0; i < pending; i++) {
+            // distinct symbols, so the requests are never coalesced
+            String symbol = "symbol-" + i;
+            executor.execute(() -> {
+                try {
+                    connection.roundTrip(result -> Argslist.getArgslist(symbol, "cl-user", result::complete));
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        counters.peakThreads = Math.max(counters.peakThreads, threadBean.getPeakThreadCount());
+        if (failed.get() > 0) {
+            throw new IllegalStateException(failed.get() + " requests failed");
+        }
+        return pending;
+    }
+
+    /**
+     * Peak live thread count of the iteration, platform threads only as virtual threads are not counted.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class ThreadCounters {
+
+        public long peakThreads;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            peakThreads = 0;
+        }
+
+    }
+
+}
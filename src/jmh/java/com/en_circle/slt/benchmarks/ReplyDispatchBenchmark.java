@@ -0,0 +1,116 @@
+package com.en_circle.slt.benchmarks;
+
+import com.en_circle.slt.plugin.lisp.lisp.LispContainer;
+import com.en_circle.slt.plugin.swank.SlimeListener;
+import com.en_circle.slt.plugin.swank.SlimeRequest;
+import com.en_circle.slt.plugin.swank.SwankEnvelope;
+import com.en_circle.slt.plugin.swank.SwankPacket;
+import com.en_circle.slt.plugin.swank.SwankPacketBuilder;
+import com.intellij.openapi.project.Project;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatch of swank messages by {@link SlimeListener}: {@link SwankEnvelope} scan, event handler lookup and, for
+ * replies, lookup and removal of pending request. Replies are (:abort nil) so request callbacks do no work, parsing
+ * of real replies is measured by {@link SlimeListenerBenchmark}.
+ *
+ * Requests are registered with the listener before each invocation (fake server swallows them), so only dispatch of
+ * the messages is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReplyDispatchBenchmark {
+
+    private static final String IGNORED = "bench:ignored";
+    private static final int MESSAGES = 1000;
+
+    /**
+     * RETURN is reply of pending request, LATE_RETURN reply of request no longer pending, EVENT message with
+     * handler and UNKNOWN_EVENT message without one.
+     */
+    @Param({"RETURN", "LATE_RETURN", "EVENT", "UNKNOWN_EVENT"})
+    public String message;
+
+    private FakeSwankConnection connection;
+    private Blackhole blackhole;
+    private final List<SwankPacket> packets = new ArrayList<>(MESSAGES);
+
+    @Setup(Level.Trial)
+    public void setup(Blackhole blackhole) throws Exception {
+        this.blackhole = blackhole;
+        FakeSwankServer server = new FakeSwankServer();
+        server.handle(IGNORED, form -> null);
+        connection = new FakeSwankConnection(server, MESSAGES);
+    }
+
+    @Setup(Level.Invocation)
+    public void prepareMessages() throws Exception {
+        packets.clear();
+        for (int i = 0; i < MESSAGES; i++) {
+            packets.add(new SwankPacket(createMessage(i)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        connection.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void dispatch() {
+        SlimeListener listener = connection.getListener();
+        for (SwankPacket packet : packets) {
+            listener.onSwankMessage(packet);
+        }
+    }
+
+    private String createMessage(int index) throws Exception {
+        return switch (message) {
+            case "RETURN" -> {
+                IgnoredRequest request = new IgnoredRequest(blackhole);
+                connection.send(request);
+                yield "(:return (:abort nil) " + request.requestId + ")";
+            }
+            case "LATE_RETURN" -> "(:return (:abort nil) " + (Long.MAX_VALUE - index) + ")";
+            case "EVENT" -> "(:debug-activate " + index + " 1 nil)";
+            case "UNKNOWN_EVENT" -> "(:write-string \"output\" :repl-result)";
+            default -> throw new IllegalArgumentException(message);
+        };
+    }
+
+    /**
+     * Remembers continuation id and sends request that fake server does not answer.
+     */
+    private static class IgnoredRequest extends SlimeRequest {
+
+        private final Blackhole blackhole;
+        private long requestId;
+
+        private IgnoredRequest(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public SwankPacket createPacket(long requestId, Project project) {
+            this.requestId = requestId;
+            return SwankPacketBuilder.builder().rex(IGNORED).endRex("CL-USER", "T", requestId).build();
+        }
+
+        @Override
+        public void processReply(LispContainer data) {
+            blackhole.consume(data);
+        }
+
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.en_circle.slt.benchmarks;
+
+import com.en_circle.slt.plugin.params.LispArgslist;
+import com.en_circle.slt.plugin.swank.requests.Argslist;
+import com.en_circle.slt.plugin.swank.requests.Eval;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End to end latency of single request, from {@link com.en_circle.slt.plugin.swank.SlimeListener#call} to its
+ * callback, through request window, selector thread, loopback socket and fake server. Benchmark threads share one
+ * connection, so higher thread counts show queueing in the request window and coalescing of writes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestLatencyBenchmark {
+
+    private final AtomicLong symbols = new AtomicLong();
+    private FakeSwankConnection connection;
+
+    @Setup
+    public void setup() throws Exception {
+        connection = new FakeSwankConnection();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        connection.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String eval1() throws Exception {
+        return eval();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String eval4() throws Exception {
+        return eval();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public String eval16() throws Exception {
+        return eval();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public String eval64() throws Exception {
+        return eval();
+    }
+
+    /**
+     * Arglist of distinct symbols, so the requests are never coalesced.
+     */
+    @Benchmark
+    @Threads(16)
+    public LispArgslist argslist16() throws Exception {
+        String symbol = "symbol-" + symbols.incrementAndGet();
+        return connection.roundTrip(result -> Argslist.getArgslist(symbol, "cl-user", result::complete));
+    }
+
+    private String eval() throws Exception {
+        return connection.roundTrip(result -> Eval.eval("(+ 1 2)", false, result::complete));
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.en_circle.slt.benchmarks;
+
+import com.en_circle.slt.plugin.lisp.lisp.LispContainer;
+import com.en_circle.slt.plugin.swank.*;
+import com.en_circle.slt.plugin.swank.requests.Argslist;
+import com.en_circle.slt.plugin.swank.requests.ListThreads;
+import com.en_circle.slt.plugin.swank.requests.SimpleCompletion;
+import com.en_circle.slt.plugin.swank.requests.Xrefs;
+import com.en_circle.slt.plugin.swank.requests.Xrefs.XrefType;
+import com.intellij.openapi.project.Project;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reply path of {@link SlimeListener}: framing, parsing of the reply, lookup of pending request, its processReply and
+ * callback.
+ *
+ * Each invocation registers request with the listener (request itself is swallowed by fake server) and feeds its
+ * recorded reply through {@link SwankFraming} into the listener, as selector thread would.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SlimeListenerBenchmark {
+
+    private static final String IGNORED = "bench:ignored";
+
+    @Param({"swank:operator-arglist", "swank:simple-completions", "swank:xrefs", "swank:list-threads"})
+    public String function;
+
+    private FakeSwankConnection connection;
+    private SwankFraming framing;
+    private String result;
+    private Blackhole blackhole;
+
+    @Setup
+    public void setup(Blackhole blackhole) throws Exception {
+        this.blackhole = blackhole;
+        Map<String, String> recorded = FakeSwankServer.loadRecording(FakeSwankServer.RECORDED_REPLIES);
+        result = recorded.get(function);
+        FakeSwankServer server = new FakeSwankServer(recorded);
+        server.handle(IGNORED, form -> null);
+        connection = new FakeSwankConnection(server);
+        framing = new SwankFraming();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        connection.close();
+    }
+
+    @Benchmark
+    public void dispatchReply() throws Exception {
+        CapturingRequest request = new CapturingRequest(createRequest());
+        connection.send(request);
+
+        ByteBuffer frame = new SwankPacket("(:return " + result + " " + request.requestId + ")").toBuffer();
+        SwankPacket packet = null;
+        while (packet == null) {
+            ByteBuffer buffer = framing.getReadBuffer();
+            int length = Math.min(buffer.remaining(), frame.remaining());
+            buffer.put(frame.slice().limit(length));
+            frame.position(frame.position() + length);
+            packet = framing.nextPacket();
+        }
+        connection.getListener().onSwankMessage(packet);
+    }
+
+    private SlimeRequest createRequest() {
+        return switch (function) {
+            case "swank:operator-arglist" -> Argslist.getArgslist("defun", "cl-user", blackhole::consume);
+            case "swank:simple-completions" -> SimpleCompletion.simpleCompletion("def", "cl-user", blackhole::consume);
+            case "swank:xrefs" -> Xrefs.xrefs("bar", "cl-user", blackhole::consume, XrefType.CALLS);
+            case "swank:list-threads" -> ListThreads.dumpThreads(blackhole::consume);
+            default -> throw new IllegalArgumentException(function);
+        };
+    }
+
+    /**
+     * Remembers continuation id and sends request that fake server does not answer.
+     */
+    private static class CapturingRequest extends SlimeRequest {
+
+        private final SlimeRequest request;
+        private long requestId;
+
+        private CapturingRequest(SlimeRequest request) {
+            this.request = request;
+        }
+
+        @Override
+        public SwankPacket createPacket(long requestId, Project project) {
+            this.requestId = requestId;
+            return SwankPacketBuilder.builder().rex(IGNORED).endRex("CL-USER", "T", requestId).build();
+        }
+
+        @Override
+        public void processReply(LispContainer data) {
+            request.processReply(data);
+        }
+
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.en_circle.slt.benchmarks;
+
+import com.en_circle.slt.plugin.lisp.lisp.LispElement;
+import com.en_circle.slt.plugin.swank.SwankFraming;
+import com.en_circle.slt.plugin.swank.SwankPacket;
+import com.en_circle.slt.plugin.swank.SwankReader;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding of requests and decoding of replies, without any network.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SwankPacketBenchmark {
+
+    // size of evaluated region or reply, in characters
+    @Param({"128", "65536", "1048576"})
+    public int size;
+
+    private String region;
+    private byte[] replyFrame;
+    private String reply;
+    private SwankFraming framing;
+
+    @Setup
+    public void setup() {
+        StringBuilder code = new StringBuilder();
+        while (code.length() < size) {
+            code.append("(defun foo (x) \"Doc string of \\\"foo\\\".\" (format t \"~a~%\" x))\n");
+        }
+        region = code.substring(0, size);
+
+        StringBuilder result = new StringBuilder("(:return (:ok (");
+        while (result.length() < size) {
+            result.append("(\"DEFUN\" \"COMMON-LISP\" :macro nil) ");
+        }
+        reply = result.append(")) 1)").toString();
+        ByteBuffer frame = new SwankPacket(reply).toBuffer();
+        replyFrame = new byte[frame.remaining()];
+        frame.get(replyFrame);
+        framing = new SwankFraming();
+    }
+
+    @Benchmark
+    public SwankPacket encodeArglist() {
+        return SwankPacket.argslist("defun", "cl-user", 1);
+    }
+
+    @Benchmark
+    public SwankPacket encodeEvalRegion() {
+        return SwankPacket.swankEvalRegion(region, null, "/home/user/project/foo.lisp", 0, "cl-user", 1);
+    }
+
+    @Benchmark
+    public SwankPacket decodeFrame() throws CharacterCodingException {
+        int offset = 0;
+        SwankPacket packet = null;
+        while (packet == null) {
+            ByteBuffer buffer = framing.getReadBuffer();
+            int length = Math.min(buffer.remaining(), replyFrame.length - offset);
+            buffer.put(replyFrame, offset, length);
+            offset += length;
+            packet = framing.nextPacket();
+        }
+        return packet;
+    }
+
+    @Benchmark
+    public List<LispElement> readReply() {
+        return SwankReader.read(reply);
+    }
+
+}
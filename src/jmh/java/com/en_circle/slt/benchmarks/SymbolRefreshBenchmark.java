@@ -0,0 +1,74 @@
+package com.en_circle.slt.benchmarks;
+
+import com.en_circle.slt.plugin.lisp.lisp.LispContainer;
+import com.en_circle.slt.plugin.lisp.lisp.LispElement;
+import com.en_circle.slt.plugin.lisp.lisp.LispString;
+import com.en_circle.slt.plugin.swank.requests.EvalAndGrab;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Round trip of symbol cache refresh batch, slt-core:analyze-symbols evaluated with swank:eval-and-grab-output, from
+ * sending the request to parsed result. Batches of 500 symbols are the largest the cache sends.
+ *
+ * Fake server answers with recorded analysis of single symbol repeated for every requested symbol.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SymbolRefreshBenchmark {
+
+    @Param({"1", "50", "500"})
+    public int batchSize;
+
+    private FakeSwankConnection connection;
+    private String code;
+
+    @Setup
+    public void setup() throws Exception {
+        String analyzed = FakeSwankServer.loadResource("/swank/analyze-symbol.txt");
+        connection = new FakeSwankConnection();
+        connection.getServer().handle("swank:eval-and-grab-output", form -> {
+            int symbols = countSymbols(((LispString) form.getItems().get(1)).getValue());
+            StringBuilder result = new StringBuilder("(:ok (\"\" \"(");
+            for (int i = 0; i < symbols; i++) {
+                result.append(analyzed).append(' ');
+            }
+            return result.append(")\"))").toString();
+        });
+
+        List<String> symbols = new ArrayList<>();
+        for (int i = 0; i < batchSize; i++) {
+            symbols.add("SYMBOL-" + i);
+        }
+        code = "(slt-core:analyze-symbols (slt-core:read-fix-packages \"(" +
+                symbols.stream().map(s -> s + " ").collect(Collectors.joining()) + ")\"))";
+    }
+
+    private static int countSymbols(String code) {
+        int start = code.indexOf("\\\"(") + 3;
+        int end = code.indexOf(")\\\"", start);
+        String symbols = code.substring(start, end).trim();
+        return symbols.isEmpty() ? 0 : symbols.split("\\s+").length;
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        connection.close();
+    }
+
+    @Benchmark
+    public int refreshBatch() throws Exception {
+        List<LispElement> parsed = connection.roundTrip(result -> EvalAndGrab.eval(code, "cl-user", false, true,
+                (form, stdout, elements) -> result.complete(elements)));
+        return ((LispContainer) parsed.get(0)).getItems().size();
+    }
+
+}
@@ -83,7 +83,8 @@ public class SltDocumentationProvider extends AbstractDocumentationProvider {
     private String asHtml(SymbolState state, PsiElement element) {
         HtmlBuilder builder = new HtmlBuilder();
         if (LispEnvironmentService.getInstance(element.getProject()).hasFeature(LispFeatures.DOCUMENTATION)) {
-            String documentation = StringUtils.replace(StringUtils.replace(escape(state.documentation), " ", "&nbsp;"),
+            String text = LispEnvironmentService.getInstance(element.getProject()).getSymbolDocumentation(state);
+            String documentation = StringUtils.replace(StringUtils.replace(escape(text), " ", "&nbsp;"),
                     "\n", HtmlChunk.br().toString());
             builder.append(documentation == null ? HtmlChunk.raw("") :
                     HtmlChunk.raw(documentation));
@@ -10,9 +10,14 @@ public class SymbolState {
     public final String packageName;
     public final String symbolName;
     public Long timestamp = null;
+    // generation of symbol cache in which binding was analyzed, binding is stale once symbol is invalidated later
+    public long generation;
+    // restored from snapshot of previous session and not analyzed by running lisp yet
+    public boolean provisional;
 
     public SymbolBinding binding = SymbolBinding.NONE;
-    public String documentation;
+    // documentation itself is cached separately, see LispEnvironmentService#getSymbolDocumentation
+    public boolean hasDocumentation;
     public SourceLocation location = new SourceLocation();
 
     public SymbolState(String name, String packageName, String symbolName) {
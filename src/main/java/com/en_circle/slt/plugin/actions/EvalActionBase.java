@@ -13,6 +13,7 @@ import com.intellij.openapi.actionSystem.CommonDataKeys;
 import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.vfs.VfsUtilCore;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiDocumentManager;
 import com.intellij.psi.PsiFile;
@@ -41,7 +42,9 @@ public abstract class EvalActionBase extends AnAction {
 
     protected void evaluate(Project project, String buffer, String packageName, Runnable callback) {
         try {
-            LispEnvironmentService.getInstance(project).sendToLisp(Eval.eval(buffer, packageName, result -> callback.run()), true);
+            LispEnvironmentService service = LispEnvironmentService.getInstance(project);
+            service.sendToLisp(Eval.eval(buffer, packageName, result -> callback.run())
+                    .whenFinished(() -> service.invalidateSymbols(buffer)), true);
         } catch (Exception e) {
             log.warn(SltBundle.message("slt.error.start"), e);
             Messages.showErrorDialog(project, e.getMessage(), SltBundle.message("slt.ui.errors.lisp.start"));
@@ -50,8 +53,10 @@ public abstract class EvalActionBase extends AnAction {
 
     protected void evaluateRegion(Project project, String buffer, String packageName, String filename, int bufferPosition, int lineno, int charno, Runnable callback) {
         try {
-            LispEnvironmentService.getInstance(project).sendToLisp(EvalFromVirtualFile
-                    .eval(buffer, filename, bufferPosition, lineno, charno, packageName, result -> callback.run()), true);
+            LispEnvironmentService service = LispEnvironmentService.getInstance(project);
+            service.sendToLisp(EvalFromVirtualFile
+                    .eval(buffer, filename, bufferPosition, lineno, charno, packageName, result -> callback.run())
+                    .whenFinished(() -> service.invalidateSymbols(buffer)), true);
         } catch (Exception e) {
             log.warn(SltBundle.message("slt.error.start"), e);
             Messages.showErrorDialog(project, e.getMessage(), SltBundle.message("slt.ui.errors.lisp.start"));
@@ -60,7 +65,10 @@ public abstract class EvalActionBase extends AnAction {
 
     public static void evaluateFile(Project project, String filename, VirtualFile virtualFile) {
         try {
-            LispEnvironmentService.getInstance(project).sendToLisp(LoadFile.loadFile(filename), true);
+            // load reads the file from disk
+            String code = VfsUtilCore.loadText(virtualFile);
+            LispEnvironmentService service = LispEnvironmentService.getInstance(project);
+            service.sendToLisp(LoadFile.loadFile(filename).whenFinished(() -> service.invalidateSymbols(code)), true);
             FileContentUtilCore.reparseFiles(virtualFile);
         } catch (Exception e) {
             log.warn(SltBundle.message("slt.error.start"), e);
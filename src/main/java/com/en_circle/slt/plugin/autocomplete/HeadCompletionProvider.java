@@ -31,6 +31,8 @@ public class HeadCompletionProvider extends CompletionProvider<CompletionParamet
 
         if (LispEnvironmentService.getInstance(project).getState() == LispEnvironmentState.READY &&
                 LispEnvironmentService.getInstance(project).hasFeature(LispFeatures.AUTOCOMPLETE)) {
+            // user is typing, queued background analysis would only delay completion
+            LispEnvironmentService.getInstance(project).cancelBackgroundRequests();
             String startedSymbol = result.getPrefixMatcher().getPrefix();
             String packageName = LispParserUtil.getPackage(parameters.getOriginalFile(), parameters.getOffset());
             List<LookupElementBuilder> builderList = SltApplicationUtils.getAsyncResultNoThrow(project, finishRequest -> SimpleCompletion
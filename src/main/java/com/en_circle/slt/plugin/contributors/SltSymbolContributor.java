@@ -43,7 +43,7 @@ public class SltSymbolContributor implements ChooseByNameContributor {
         String[] names = null;
         if (LispEnvironmentService.getInstance(project).hasFeature(LispFeatures.SEARCH)) {
             try {
-                names = SltApplicationUtils.getAsyncResultCheckCancellation(project,
+                names = SltApplicationUtils.getAsyncResult(project,
                         finishRequest -> CompleteSearch.search("", getFilter(), form ->
                                 finishRequest.accept(getNames(form, includeNonProjectItems, project))), false);
             } catch (Exception e) {
@@ -91,7 +91,7 @@ public class SltSymbolContributor implements ChooseByNameContributor {
     public NavigationItem @NotNull [] getItemsByName(String name, String pattern, Project project, boolean includeNonProjectItems) {
         NavigationItem[] items;
         try {
-            items = SltApplicationUtils.getAsyncResultCheckCancellation(project,
+            items = SltApplicationUtils.getAsyncResult(project,
                     finishRequest -> CompleteSearch.search(pattern, getFilter(), form ->
                             finishRequest.accept(getItems(form, includeNonProjectItems, project))), false);
         } catch (Exception e) {
@@ -1,15 +1,11 @@
 package com.en_circle.slt.plugin.environment;
 
-import org.awaitility.Awaitility;
-import org.awaitility.pollinterval.FixedPollInterval;
-
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BooleanSupplier;
 
 public class SltProcessStreamGobbler extends Thread {
@@ -98,27 +94,31 @@ public class SltProcessStreamGobbler extends Thread {
         }
 
         public boolean awaitFor(Process process, SltProcessStreamGobbler gobbler, long time, TimeUnit unit, BooleanSupplier checkForEnd) {
-            AtomicBoolean started = new AtomicBoolean(false);
-            Awaitility.await()
-                    .pollInterval(new FixedPollInterval(250, TimeUnit.MILLISECONDS))
-                    .atMost(time, unit)
-                    .until(() -> {
-                        if (checkForEnd != null && checkForEnd.getAsBoolean()) {
-                            return true;
-                        }
-                        if (process != null && !process.isAlive()) {
-                            return true;
-                        }
-                        if (gobbler != null && gobbler.isFinished()) {
-                            return true;
-                        }
-                        if (status) {
-                            started.set(true);
-                            return true;
-                        }
-                        return false;
-                    });
-            return started.get();
+            long deadline = System.nanoTime() + unit.toNanos(time);
+            while (true) {
+                if (checkForEnd != null && checkForEnd.getAsBoolean()) {
+                    return false;
+                }
+                if (process != null && !process.isAlive()) {
+                    return false;
+                }
+                if (gobbler != null && gobbler.isFinished()) {
+                    return false;
+                }
+                if (status) {
+                    return true;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new IllegalStateException("Process did not start within " + time + " " + unit);
+                }
+                try {
+                    Thread.sleep(Math.min(250, TimeUnit.NANOSECONDS.toMillis(remaining) + 1));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
         }
 
         @Override
@@ -4,18 +4,35 @@ import java.math.BigInteger;
 
 public class LispInteger extends LispAtom<BigInteger> {
 
-    private final BigInteger value;
+    private final long longValue;
+    private BigInteger value;
 
     public LispInteger(String value, BigInteger integer) {
         super(value);
         this.value = integer;
+        this.longValue = integer.longValue();
+    }
+
+    public LispInteger(String value, long integer) {
+        super(value);
+        this.longValue = integer;
     }
 
     @Override
     public BigInteger getValue() {
+        if (value == null) {
+            value = BigInteger.valueOf(longValue);
+        }
         return value;
     }
 
+    /**
+     * @return value as long, only exact if value fits into long (swank continuation and thread ids always do)
+     */
+    public long getLongValue() {
+        return longValue;
+    }
+
     @Override
     public LispElementType getType() {
         return LispElementType.NUMBER;
@@ -149,7 +149,7 @@ public class SltReference extends PsiPolyVariantReferenceBase<LispSymbol> {
 
         if (applicableTypes.size() > 0) {
             try {
-                ResolveResult[] results = SltApplicationUtils.getAsyncResultCheckCancellation(myElement.getProject(),
+                ResolveResult[] results = SltApplicationUtils.getAsyncResult(myElement.getProject(),
                         finishRequest -> Xrefs.xrefs(symbolName, packageName, applicableTypes, form ->
                                 finishRequest.accept(gatherReferences(form))), false);
                 if (results != null) {
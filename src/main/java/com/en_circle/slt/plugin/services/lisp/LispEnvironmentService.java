@@ -4,12 +4,20 @@ import com.en_circle.slt.plugin.SymbolState;
 import com.en_circle.slt.plugin.environment.LispFeatures;
 import com.en_circle.slt.plugin.environment.SltLispEnvironment;
 import com.en_circle.slt.plugin.environment.SltLispEnvironment.SltLispOutputChangedListener;
+import com.en_circle.slt.plugin.lisp.lisp.LispContainer;
 import com.en_circle.slt.plugin.lisp.lisp.LispElement;
+import com.en_circle.slt.plugin.services.lisp.components.SltBoundedCache;
 import com.en_circle.slt.plugin.services.lisp.components.SltBreakpoint;
+import com.en_circle.slt.plugin.services.lisp.components.SltDefinitionChanges;
 import com.en_circle.slt.plugin.services.lisp.components.SltLispEnvironmentSymbolCache.BatchedSymbolRefreshAction;
+import com.en_circle.slt.plugin.services.lisp.components.SltSymbolRefreshQueue;
 import com.en_circle.slt.plugin.swank.SlimeListener.DebugInterface;
 import com.en_circle.slt.plugin.swank.SlimeListener.RequestResponseLogger;
 import com.en_circle.slt.plugin.swank.SlimeRequest;
+import com.en_circle.slt.plugin.swank.SlimeRequestMetrics;
+import com.en_circle.slt.plugin.swank.SlimeRequestStats;
+import com.en_circle.slt.plugin.swank.SlimeRequestWindow;
+import com.en_circle.slt.plugin.swank.SwankChannelPool.Channel;
 import com.en_circle.slt.plugin.ui.debug.SltBreakpointProperties;
 import com.intellij.openapi.Disposable;
 import com.intellij.openapi.project.Project;
@@ -18,6 +26,11 @@ import com.intellij.psi.PsiFile;
 import com.intellij.xdebugger.breakpoints.XBreakpoint;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 
 public interface LispEnvironmentService extends Disposable {
@@ -44,6 +57,63 @@ public interface LispEnvironmentService extends Disposable {
 
     void sendToLisp(SlimeRequest request, boolean startServer, Runnable onFailureServerState) throws Exception;
 
+    /**
+     * Sends request directly from calling thread if lisp is running and request window has free slot within timeout.
+     *
+     * @return false if request was not sent
+     */
+    boolean trySendToLisp(SlimeRequest request, long timeout, TimeUnit unit) throws Exception;
+
+    /**
+     * Sends request created around result callback and returns future completed directly from reply processing.
+     *
+     * Future completes with null if lisp is not running and startServer is false, if request is not answered within
+     * the timeout or if its reply is processed without calling the callback. Request without timeout of its own times
+     * out after the same time once sent, so that unanswered request does not keep its window slot. Cancelling the
+     * future also cancels the request.
+     */
+    <X> CompletableFuture<X> sendToLispAsync(Function<Consumer<X>, SlimeRequest> request, boolean startServer,
+                                             long timeout, TimeUnit unit);
+
+    SlimeRequestWindow getRequestWindow(Channel channel);
+
+    SlimeRequestStats getRequestStats();
+
+    SlimeRequestMetrics getRequestMetrics();
+
+    /**
+     * @return queue of symbols waiting for analysis, with its depth, batch sizes and latency
+     */
+    SltSymbolRefreshQueue getSymbolRefreshQueue();
+
+    /**
+     * @return documentation of analyzed symbol, null if it has none or it was evicted and is being analyzed again
+     */
+    String getSymbolDocumentation(SymbolState state);
+
+    /**
+     * @return bounded store of analyzed symbols, for its size and hit rate
+     */
+    SltBoundedCache<String, SymbolState> getSymbolStore();
+
+    /**
+     * Marks symbols defined by evaluated code as stale, they are analyzed again in background. Call once lisp has
+     * evaluated the code.
+     */
+    void invalidateSymbols(String code);
+
+    /**
+     * Stops waiting for reply of sent request, optionally interrupting lisp worker thread.
+     *
+     * @return false if request was not pending
+     */
+    boolean cancelRequest(SlimeRequest request, boolean interrupt);
+
+    /**
+     * Cancels background requests that are waiting to be sent, ie when user starts typing.
+     */
+    void cancelBackgroundRequests();
+
     String getGlobalPackage();
 
     SymbolState refreshSymbolFromServer(String packageName, String symbolName);
@@ -56,6 +126,15 @@ public interface LispEnvironmentService extends Disposable {
 
     void updateIndentation(LispElement element);
 
+    /**
+     * Applies definition changes pushed by lisp, see {@link SltDefinitionChanges}.
+     */
+    void updateDefinitions(LispContainer event);
+
+    void addPackagesListener(LispPackagesListener listener);
+
+    void removePackagesListener(LispPackagesListener listener);
+
     Integer calculateOffset(PsiElement element, PsiFile file, boolean wasAfter, String text, int offset, String packageOverride);
 
     void addBreakpoint(XBreakpoint<SltBreakpointProperties> nativeBreakpoint);
@@ -84,4 +163,13 @@ public interface LispEnvironmentService extends Disposable {
         void onPostStop();
 
     }
+
+    interface LispPackagesListener {
+
+        /**
+         * Called from swank thread.
+         */
+        void onPackagesChanged(List<String> createdPackages, List<String> deletedPackages);
+
+    }
 }
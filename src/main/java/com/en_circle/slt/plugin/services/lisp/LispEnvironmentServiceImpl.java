@@ -11,16 +11,24 @@ import com.en_circle.slt.plugin.lisp.lisp.LispElement;
 import com.en_circle.slt.plugin.sdk.LispProjectSdk;
 import com.en_circle.slt.plugin.sdk.LispSdk;
 import com.en_circle.slt.plugin.sdk.SdkList;
+import com.en_circle.slt.plugin.services.lisp.components.SltBoundedCache;
 import com.en_circle.slt.plugin.services.lisp.components.SltBreakpoint;
 import com.en_circle.slt.plugin.services.lisp.components.SltBreakpointContainer;
 import com.en_circle.slt.plugin.services.lisp.components.SltIndentationContainer;
+import com.en_circle.slt.plugin.services.lisp.components.SltDefinedSymbols;
+import com.en_circle.slt.plugin.services.lisp.components.SltDefinitionChanges;
 import com.en_circle.slt.plugin.services.lisp.components.SltLispEnvironmentSymbolCache;
 import com.en_circle.slt.plugin.services.lisp.components.SltLispEnvironmentSymbolCache.BatchedSymbolRefreshAction;
+import com.en_circle.slt.plugin.services.lisp.components.SltSymbolRefreshQueue;
+import com.en_circle.slt.plugin.swank.SlimeExecutors;
 import com.en_circle.slt.plugin.swank.SlimeListener;
 import com.en_circle.slt.plugin.swank.SlimeListener.DebugInterface;
 import com.en_circle.slt.plugin.swank.SlimeListener.RequestResponseLogger;
 import com.en_circle.slt.plugin.swank.SlimeRequest;
-import com.en_circle.slt.plugin.swank.SwankClient;
+import com.en_circle.slt.plugin.swank.SlimeRequestMetrics;
+import com.en_circle.slt.plugin.swank.SlimeRequestStats;
+import com.en_circle.slt.plugin.swank.SlimeRequestWindow;
+import com.en_circle.slt.plugin.swank.SwankChannelPool;
 import com.en_circle.slt.plugin.ui.debug.SltBreakpointProperties;
 import com.en_circle.slt.plugin.ui.debug.SltSymbolBreakpointType;
 import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
@@ -44,7 +52,13 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 public class LispEnvironmentServiceImpl implements LispEnvironmentService {
@@ -54,11 +68,12 @@ public class LispEnvironmentServiceImpl implements LispEnvironmentService {
     private SltLispEnvironment environment;
     private SltLispEnvironmentConfiguration.Builder<?, ?> configurationBuilder;
     private SltLispEnvironmentConfiguration configuration;
-    private SwankClient client;
+    private SwankChannelPool channels;
     private SlimeListener slimeListener;
     private RequestResponseLogger logger;
     private DebugInterface debugInterface;
     private final List<LispEnvironmentListener> serverListeners = Collections.synchronizedList(new ArrayList<>());
+    private final List<LispPackagesListener> packagesListeners = new CopyOnWriteArrayList<>();
     private LispSltOverrides overrides;
     private volatile boolean starting = false;
 
@@ -76,6 +91,7 @@ public class LispEnvironmentServiceImpl implements LispEnvironmentService {
         symbolCache.start();
 
         addServerListener(breakpointContainer);
+        addServerListener(symbolCache);
     }
 
     @Override
@@ -109,6 +125,16 @@ public class LispEnvironmentServiceImpl implements LispEnvironmentService {
         serverListeners.add(listener);
     }
 
+    @Override
+    public void addPackagesListener(LispPackagesListener listener) {
+        packagesListeners.add(listener);
+    }
+
+    @Override
+    public void removePackagesListener(LispPackagesListener listener) {
+        packagesListeners.remove(listener);
+    }
+
     @Override
     public void setRequestResponseLogger(RequestResponseLogger logger) {
         this.logger = logger;
@@ -191,8 +217,13 @@ public class LispEnvironmentServiceImpl implements LispEnvironmentService {
                         String text = ExceptionUtil.getThrowableText(e);
                         listener.onOutputChanged(SltOutput.STDERR, text);
                     }
-                }, logger, debugInterface);
-                client = new SwankClient("127.0.0.1", environment.getSwankPort(), slimeListener);
+                }, logger, debugInterface, SltSwankSettings.getInstance().requestWindow,
+                        SltSwankSettings.getInstance().backgroundHoldoff);
+                if (SltSwankSettings.getInstance().virtualThreads && SlimeExecutors.isVirtualThreadsSupported()) {
+                    slimeListener.setDispatchExecutor(SlimeExecutors.getVirtualExecutor());
+                }
+                channels = new SwankChannelPool("127.0.0.1", environment.getSwankPort(), slimeListener,
+                        SltSwankSettings.getInstance().separateChannels);
 
                 for (LispEnvironmentListener listener : serverListeners) {
                     listener.onPostStart();
@@ -226,9 +257,12 @@ public class LispEnvironmentServiceImpl implements LispEnvironmentService {
             listener.onPreStop();
         }
         try {
-            if (client != null)
-                client.close();
+            if (channels != null)
+                channels.close();
         } finally {
+            channels = null;
+            if (slimeListener != null)
+                slimeListener.close();
             overrides = null;
             indentationContainer.clear();
             indentationContainer.clear();
@@ -263,7 +297,8 @@ public class LispEnvironmentServiceImpl implements LispEnvironmentService {
 
     @Override
     public void sendToLisp(SlimeRequest request, boolean startServer, Runnable onFailureServerState) throws Exception {
-        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+        // sending waits for free slot in request window
+        SlimeExecutors.getBlockingExecutor(SltSwankSettings.getInstance().virtualThreads).execute(() -> {
             if (environment == null || !environment.isActive()) {
                 if (startServer) {
                     starting = true;
@@ -294,8 +329,109 @@ public class LispEnvironmentServiceImpl implements LispEnvironmentService {
     }
 
     private void doSend(SlimeRequest request) {
-        if (slimeListener != null) {
-            slimeListener.call(request, client);
+        SwankChannelPool channelPool = channels;
+        if (slimeListener != null && channelPool != null) {
+            try {
+                slimeListener.call(request, channelPool.getClient(request));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (CancellationException ignored) {
+                // background request cancelled before it was sent
+            }
+        }
+    }
+
+    @Override
+    public boolean trySendToLisp(SlimeRequest request, long timeout, TimeUnit unit) throws Exception {
+        SlimeListener listener = slimeListener;
+        SwankChannelPool channelPool = channels;
+        if (listener == null || channelPool == null || environment == null || !environment.isActive() || starting) {
+            return false;
+        }
+        return listener.tryCall(request, channelPool.getClient(request), timeout, unit);
+    }
+
+    @Override
+    public <X> CompletableFuture<X> sendToLispAsync(Function<Consumer<X>, SlimeRequest> request, boolean startServer,
+                                                    long timeout, TimeUnit unit) {
+        CompletableFuture<X> result = new CompletableFuture<>();
+        if (getState() != LispEnvironmentState.READY && !startServer) {
+            result.complete(null);
+            return result;
+        }
+
+        SlimeRequest slimeRequest = request.apply(result::complete);
+        slimeRequest.whenFinished(() -> result.complete(null));
+        if (slimeRequest.getTimeoutMillis() == 0) {
+            // request that is never answered, ie stuck in debugger, must not keep its window slot
+            slimeRequest.withTimeout(timeout, unit);
+        }
+        // request might never be sent, ie when lisp fails to start or background request is cancelled
+        result.completeOnTimeout(null, timeout, unit);
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                cancelRequest(slimeRequest, false);
+            }
+        });
+
+        try {
+            // sent from blocking executor, caller never waits for window slot or builds the packet
+            sendToLisp(slimeRequest, startServer, () -> result.complete(null));
+        } catch (Exception e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    @Override
+    public SlimeRequestWindow getRequestWindow(SwankChannelPool.Channel channel) {
+        SlimeListener listener = slimeListener;
+        return listener == null ? null : listener.getRequestWindow(channel);
+    }
+
+    @Override
+    public SlimeRequestStats getRequestStats() {
+        SlimeListener listener = slimeListener;
+        return listener == null ? null : listener.getStats();
+    }
+
+    @Override
+    public SltSymbolRefreshQueue getSymbolRefreshQueue() {
+        return symbolCache.getRefreshQueue();
+    }
+
+    @Override
+    public String getSymbolDocumentation(SymbolState state) {
+        return symbolCache.getDocumentation(state);
+    }
+
+    @Override
+    public SltBoundedCache<String, SymbolState> getSymbolStore() {
+        return symbolCache.getSymbolStore();
+    }
+
+    @Override
+    public void invalidateSymbols(String code) {
+        symbolCache.invalidate(SltDefinedSymbols.scan(code));
+    }
+
+    @Override
+    public SlimeRequestMetrics getRequestMetrics() {
+        SlimeListener listener = slimeListener;
+        return listener == null ? null : listener.getMetrics();
+    }
+
+    @Override
+    public boolean cancelRequest(SlimeRequest request, boolean interrupt) {
+        SlimeListener listener = slimeListener;
+        return listener != null && listener.cancel(request, interrupt);
+    }
+
+    @Override
+    public void cancelBackgroundRequests() {
+        SlimeListener listener = slimeListener;
+        if (listener != null) {
+            listener.cancelBackgroundRequests();
         }
     }
 
@@ -335,6 +471,17 @@ public class LispEnvironmentServiceImpl implements LispEnvironmentService {
         indentationContainer.update((LispContainer) element);
     }
 
+    @Override
+    public void updateDefinitions(LispContainer event) {
+        SltDefinitionChanges changes = SltDefinitionChanges.parse(event);
+        symbolCache.definitionsChanged(changes);
+        if (!changes.createdPackages().isEmpty() || !changes.deletedPackages().isEmpty()) {
+            for (LispPackagesListener listener : packagesListeners) {
+                listener.onPackagesChanged(changes.createdPackages(), changes.deletedPackages());
+            }
+        }
+    }
+
     @Override
     public Integer calculateOffset(PsiElement element, PsiFile file, boolean wasAfter, String text, int offset, String packageOverride) {
         return indentationContainer.calculateIndent(element, file, wasAfter, text, offset, packageOverride);
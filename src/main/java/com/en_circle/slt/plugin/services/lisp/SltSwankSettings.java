@@ -0,0 +1,56 @@
+package com.en_circle.slt.plugin.services.lisp;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.components.State;
+import com.intellij.openapi.components.Storage;
+import com.intellij.util.xmlb.XmlSerializerUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+@State(
+        name = "SltSwankSettings",
+        storages = @Storage("SltSettings.xml")
+)
+public class SltSwankSettings implements PersistentStateComponent<SltSwankSettings> {
+
+    public static SltSwankSettings getInstance() {
+        return ApplicationManager.getApplication().getService(SltSwankSettings.class);
+    }
+
+    // maximum number of requests sent to lisp that are waiting for reply, per connection
+    public int requestWindow = 32;
+    // how long background requests wait after last interactive request was sent, in milliseconds
+    public long backgroundHoldoff = 300;
+    // separate connections for REPL, editor and background analysis
+    public boolean separateChannels = true;
+    // resolve replies and wait for request window on virtual threads, only if IDE runs on Java 21 or newer - no effect
+    // on supported IDE builds 222 - 231, which run on Java 17 and always use IDE pooled threads
+    public boolean virtualThreads = false;
+    // swank messages retained by Slime Log, in bytes of their frames
+    public long wireLogBytes = 4 * 1024 * 1024;
+    // file Slime Log is also written into, empty to disable
+    public String wireLogFile = "";
+    // size after which wire log file is rotated and number of rotated files kept
+    public long wireLogFileBytes = 16 * 1024 * 1024;
+    public int wireLogFiles = 3;
+    // how long symbols queued for analysis wait for more symbols to batch with, in milliseconds
+    public long symbolRefreshDebounce = 50;
+    // maximum number of analyzed symbols kept in memory and their approximate size in bytes, without documentation
+    public int symbolCacheSize = 100_000;
+    public long symbolCacheBytes = 32 * 1024 * 1024;
+    // approximate size of cached symbol documentation in bytes
+    public long symbolDocumentationBytes = 16 * 1024 * 1024;
+    // keep analyzed symbols on disk per SDK and project, to highlight before lisp starts
+    public boolean symbolSnapshot = true;
+
+    @Override
+    public @Nullable SltSwankSettings getState() {
+        return this;
+    }
+
+    @Override
+    public void loadState(@NotNull SltSwankSettings state) {
+        XmlSerializerUtil.copyBean(state, this);
+    }
+}
@@ -0,0 +1,517 @@
+package com.en_circle.slt.plugin.services.lisp.components;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Concurrent cache bounded by number of entries and by their total weight, with W-TinyLFU eviction.
+ *
+ * New entries go to small LRU window. Entries leaving the window compete for place in main space with its least
+ * recently used entry, the one used more often according to frequency sketch stays. Main space is segmented into
+ * probation and protected LRU, entry hit in probation is promoted to protected. One time lookups, ie symbols of file
+ * opened once, therefore do not push out symbols used all the time.
+ *
+ * Lookups do not block, access is counted in lock free sketch and reordering is skipped when another thread holds
+ * the policy lock.
+ *
+ * Optional {@link Listener} is notified about entries entering and leaving the cache, ie to keep secondary index of
+ * cached values.
+ */
+public class SltBoundedCache<K, V> {
+
+    private static final int WINDOW_PERCENT = 1;
+    private static final int PROTECTED_PERCENT = 80;
+
+    private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+    private final ReentrantLock policyLock = new ReentrantLock();
+    private final ToIntFunction<V> weigher;
+    private final int maximumSize;
+    private final long maximumWeight;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+    private final int windowMaximumSize;
+    private final int protectedMaximumSize;
+    private final FrequencySketch sketch;
+    private final AccessDeque<K, V> window = new AccessDeque<>();
+    private final AccessDeque<K, V> probation = new AccessDeque<>();
+    private final AccessDeque<K, V> protectedDeque = new AccessDeque<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private long weight;
+    private volatile Listener<K, V> listener;
+
+    /**
+     * @param maximumSize maximum number of entries
+     * @param maximumWeight maximum total weight of entries
+     * @param weigher weight of value, ie its approximate size in bytes
+     */
+    public SltBoundedCache(int maximumSize, long maximumWeight, ToIntFunction<V> weigher) {
+        this.maximumSize = Math.max(1, maximumSize);
+        this.maximumWeight = Math.max(1, maximumWeight);
+        this.weigher = weigher;
+        this.windowMaximum = Math.max(1, this.maximumWeight * WINDOW_PERCENT / 100);
+        this.protectedMaximum = (this.maximumWeight - windowMaximum) * PROTECTED_PERCENT / 100;
+        this.windowMaximumSize = Math.max(1, this.maximumSize * WINDOW_PERCENT / 100);
+        this.protectedMaximumSize = (this.maximumSize - windowMaximumSize) * PROTECTED_PERCENT / 100;
+        this.sketch = new FrequencySketch(this.maximumSize);
+    }
+
+    /**
+     * Sets listener notified under policy lock, so it must be fast and must not access the cache.
+     */
+    public void setListener(Listener<K, V> listener) {
+        this.listener = listener;
+    }
+
+    public V get(K key) {
+        Node<K, V> node = data.get(key);
+        sketch.increment(key.hashCode());
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        afterRead(node);
+        return node.value;
+    }
+
+    /**
+     * @return cached value or value created by the function. Created value is returned even when it was not
+     * admitted into the cache.
+     */
+    public V computeIfAbsent(K key, Function<K, V> mappingFunction) {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        V created = mappingFunction.apply(key);
+        Node<K, V> node = new Node<>(key, created);
+        policyLock.lock();
+        try {
+            Node<K, V> existing = data.putIfAbsent(key, node);
+            if (existing != null) {
+                onAccess(existing);
+                return existing.value;
+            }
+            node.weight = weigher.applyAsInt(created);
+            weight += node.weight;
+            window.addLast(node, Region.WINDOW);
+            added(node);
+            evict();
+        } finally {
+            policyLock.unlock();
+        }
+        return created;
+    }
+
+    /**
+     * Inserts or replaces value.
+     */
+    public void put(K key, V value) {
+        Node<K, V> node = new Node<>(key, value);
+        sketch.increment(key.hashCode());
+        policyLock.lock();
+        try {
+            Node<K, V> existing = data.put(key, node);
+            if (existing != null) {
+                unlink(existing);
+                removed(existing);
+            }
+            node.weight = weigher.applyAsInt(value);
+            weight += node.weight;
+            window.addLast(node, Region.WINDOW);
+            added(node);
+            evict();
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    /**
+     * Recomputes weight of cached value after it was modified in place.
+     */
+    public void reweigh(K key) {
+        policyLock.lock();
+        try {
+            Node<K, V> node = data.get(key);
+            if (node == null || node.region == null) {
+                return;
+            }
+            int newWeight = weigher.applyAsInt(node.value);
+            weight += newWeight - node.weight;
+            if (node.region == Region.WINDOW) {
+                window.weight += newWeight - node.weight;
+            } else if (node.region == Region.PROBATION) {
+                probation.weight += newWeight - node.weight;
+            } else {
+                protectedDeque.weight += newWeight - node.weight;
+            }
+            node.weight = newWeight;
+            evict();
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    public V remove(K key) {
+        policyLock.lock();
+        try {
+            Node<K, V> node = data.remove(key);
+            if (node == null) {
+                return null;
+            }
+            unlink(node);
+            removed(node);
+            return node.value;
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    public void clear() {
+        policyLock.lock();
+        try {
+            if (listener != null) {
+                data.values().forEach(this::removed);
+            }
+            data.clear();
+            window.clear();
+            probation.clear();
+            protectedDeque.clear();
+            weight = 0;
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    /**
+     * Calls consumer for every cached value, in no particular order. Does not count as access.
+     */
+    public void forEach(BiConsumer<K, V> consumer) {
+        data.forEach((key, node) -> consumer.accept(key, node.value));
+    }
+
+    public int size() {
+        return data.size();
+    }
+
+    public long getWeight() {
+        policyLock.lock();
+        try {
+            return weight;
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private void afterRead(Node<K, V> node) {
+        if (policyLock.tryLock()) {
+            try {
+                onAccess(node);
+            } finally {
+                policyLock.unlock();
+            }
+        }
+    }
+
+    private void onAccess(Node<K, V> node) {
+        if (node.region == null) {
+            // removed or evicted in the meantime
+            return;
+        }
+        switch (node.region) {
+            case WINDOW -> window.moveToLast(node);
+            case PROBATION -> {
+                probation.remove(node);
+                protectedDeque.addLast(node, Region.PROTECTED);
+                while ((protectedDeque.weight > protectedMaximum || protectedDeque.size > protectedMaximumSize)
+                        && protectedDeque.size > 1) {
+                    probation.addLast(protectedDeque.removeFirst(), Region.PROBATION);
+                }
+            }
+            case PROTECTED -> protectedDeque.moveToLast(node);
+        }
+    }
+
+    private void unlink(Node<K, V> node) {
+        if (node.region == Region.WINDOW) {
+            window.remove(node);
+        } else if (node.region == Region.PROBATION) {
+            probation.remove(node);
+        } else if (node.region == Region.PROTECTED) {
+            protectedDeque.remove(node);
+        }
+        weight -= node.weight;
+    }
+
+    private void evict() {
+        // entries leaving window become candidates at the end of probation
+        Node<K, V> candidate = null;
+        while ((window.weight > windowMaximum || window.size > windowMaximumSize) && window.size > 1) {
+            Node<K, V> node = window.removeFirst();
+            probation.addLast(node, Region.PROBATION);
+            if (candidate == null) {
+                candidate = node;
+            }
+        }
+
+        while (isOverflowing()) {
+            Node<K, V> victim = probation.peekFirst();
+            if (victim == null) {
+                victim = protectedDeque.peekFirst();
+            }
+            if (victim == null) {
+                victim = window.peekFirst();
+            }
+            if (victim == null) {
+                break;
+            }
+            if (candidate != null && candidate != victim &&
+                    sketch.frequency(candidate.key.hashCode()) <= sketch.frequency(victim.key.hashCode())) {
+                // candidate is not used more often than least recently used entry, reject it instead
+                Node<K, V> next = candidate.next;
+                evictNode(candidate);
+                candidate = next;
+            } else {
+                if (victim == candidate) {
+                    candidate = candidate.next;
+                }
+                evictNode(victim);
+            }
+        }
+    }
+
+    private boolean isOverflowing() {
+        return weight > maximumWeight || data.size() > maximumSize;
+    }
+
+    private void evictNode(Node<K, V> node) {
+        unlink(node);
+        data.remove(node.key, node);
+        evictions.increment();
+        removed(node);
+    }
+
+    private void added(Node<K, V> node) {
+        Listener<K, V> listener = this.listener;
+        if (listener != null) {
+            listener.onAdded(node.key, node.value);
+        }
+    }
+
+    private void removed(Node<K, V> node) {
+        Listener<K, V> listener = this.listener;
+        if (listener != null) {
+            listener.onRemoved(node.key, node.value);
+        }
+    }
+
+    /**
+     * Notified when entry is added to the cache and when it is removed, replaced or evicted.
+     */
+    public interface Listener<K, V> {
+
+        void onAdded(K key, V value);
+
+        void onRemoved(K key, V value);
+
+    }
+
+    private enum Region {
+        WINDOW, PROBATION, PROTECTED
+    }
+
+    private static class Node<K, V> {
+
+        private final K key;
+        private final V value;
+        private int weight;
+        private Region region;
+        private Node<K, V> previous;
+        private Node<K, V> next;
+
+        private Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Intrusive LRU list, least recently used entry first. Guarded by the policy lock.
+     */
+    private static class AccessDeque<K, V> {
+
+        private Node<K, V> first;
+        private Node<K, V> last;
+        private int size;
+        private long weight;
+
+        private void addLast(Node<K, V> node, Region region) {
+            node.region = region;
+            node.previous = last;
+            node.next = null;
+            if (last == null) {
+                first = node;
+            } else {
+                last.next = node;
+            }
+            last = node;
+            ++size;
+            weight += node.weight;
+        }
+
+        private void remove(Node<K, V> node) {
+            if (node.previous == null) {
+                first = node.next;
+            } else {
+                node.previous.next = node.next;
+            }
+            if (node.next == null) {
+                last = node.previous;
+            } else {
+                node.next.previous = node.previous;
+            }
+            node.previous = null;
+            node.next = null;
+            node.region = null;
+            --size;
+            weight -= node.weight;
+        }
+
+        private void moveToLast(Node<K, V> node) {
+            if (node != last) {
+                Region region = node.region;
+                remove(node);
+                addLast(node, region);
+            }
+        }
+
+        private Node<K, V> peekFirst() {
+            return first;
+        }
+
+        private Node<K, V> peekLast() {
+            return last;
+        }
+
+        private Node<K, V> removeFirst() {
+            Node<K, V> node = first;
+            remove(node);
+            return node;
+        }
+
+        private void clear() {
+            Node<K, V> node = first;
+            while (node != null) {
+                Node<K, V> next = node.next;
+                node.previous = null;
+                node.next = null;
+                node.region = null;
+                node = next;
+            }
+            first = null;
+            last = null;
+            size = 0;
+            weight = 0;
+        }
+    }
+
+    /**
+     * Count-min sketch of 4 bit counters, four per key. Counters are halved once number of increments reaches ten
+     * times the cache size, so frequency reflects recent use.
+     */
+    private static class FrequencySketch {
+
+        private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+                0xcbf29ce484222325L };
+        private static final long RESET_MASK = 0x7777777777777777L;
+
+        private final AtomicLongArray table;
+        private final int mask;
+        private final int sampleSize;
+        private final AtomicInteger additions = new AtomicInteger();
+
+        private FrequencySketch(int maximumSize) {
+            int length = Integer.highestOneBit(Math.max(16, Math.min(maximumSize, 1 << 24)) - 1) << 1;
+            this.table = new AtomicLongArray(length);
+            this.mask = length - 1;
+            this.sampleSize = 10 * Math.max(16, maximumSize);
+        }
+
+        private int frequency(int hash) {
+            int frequency = Integer.MAX_VALUE;
+            for (int depth = 0; depth < 4; depth++) {
+                long spread = spread(hash, depth);
+                int offset = (int) (spread >>> 60) & 15;
+                long counters = table.get((int) spread & mask);
+                frequency = Math.min(frequency, (int) ((counters >>> (offset << 2)) & 15L));
+            }
+            return frequency;
+        }
+
+        private void increment(int hash) {
+            boolean added = false;
+            for (int depth = 0; depth < 4; depth++) {
+                long spread = spread(hash, depth);
+                int offset = (int) (spread >>> 60) & 15;
+                int index = (int) spread & mask;
+                added |= incrementAt(index, offset << 2);
+            }
+            if (added && additions.incrementAndGet() >= sampleSize) {
+                reset();
+            }
+        }
+
+        private boolean incrementAt(int index, int shift) {
+            while (true) {
+                long counters = table.get(index);
+                if (((counters >>> shift) & 15L) == 15L) {
+                    return false;
+                }
+                if (table.compareAndSet(index, counters, counters + (1L << shift))) {
+                    return true;
+                }
+            }
+        }
+
+        private void reset() {
+            int current = additions.get();
+            if (current < sampleSize || !additions.compareAndSet(current, current / 2)) {
+                return;
+            }
+            for (int i = 0; i < table.length(); i++) {
+                long counters;
+                do {
+                    counters = table.get(i);
+                } while (!table.compareAndSet(i, counters, (counters >>> 1) & RESET_MASK));
+            }
+        }
+
+        private static long spread(int hash, int depth) {
+            long h = (hash + SEEDS[depth]) * SEEDS[(depth + 1) & 3];
+            h ^= h >>> 29;
+            h *= 0xbf58476d1ce4e5b9L;
+            return h ^ (h >>> 32);
+        }
+    }
+
+}
@@ -4,17 +4,23 @@ import com.en_circle.slt.plugin.environment.SltLispEnvironment.SltOutput;
 import com.en_circle.slt.plugin.services.lisp.LispEnvironmentService;
 import com.en_circle.slt.plugin.services.lisp.LispEnvironmentService.LispEnvironmentListener;
 import com.en_circle.slt.plugin.swank.SlimeRequest;
+import com.en_circle.slt.plugin.swank.requests.Batch;
 import com.en_circle.slt.plugin.swank.requests.Eval;
 import com.en_circle.slt.plugin.ui.debug.SltBreakpointProperties;
 import com.intellij.openapi.project.Project;
 import com.intellij.xdebugger.breakpoints.XBreakpoint;
 import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
 
 public class SltBreakpointContainer implements LispEnvironmentListener {
+    private static final Logger log = LoggerFactory.getLogger(SltBreakpointContainer.class);
 
     private final TreeSet<SltBreakpoint> breakpoints = new TreeSet<>();
     private final Project project;
@@ -127,8 +133,20 @@ public class SltBreakpointContainer implements LispEnvironmentListener {
 
     @Override
     public void onPostStart() {
+        List<SlimeRequest> requests = new ArrayList<>();
         for (SltBreakpoint breakpoint : breakpoints) {
-            updateBreakpoint(breakpoint);
+            if (breakpoint.shouldBeInstalled()) {
+                requests.add(installRequest(breakpoint));
+            }
+        }
+        if (requests.isEmpty()) {
+            return;
+        }
+        try {
+            LispEnvironmentService.getInstance(project)
+                    .sendToLisp(Batch.batch(requests), false);
+        } catch (Exception e) {
+            log.warn("Failed to install breakpoints after start", e);
         }
     }
 
@@ -0,0 +1,154 @@
+package com.en_circle.slt.plugin.services.lisp.components;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Finds names of symbols whose binding may change by evaluating given code.
+ *
+ * Text is only scanned, not read, so it works for partial or broken code. Every {@code (def... name} form is
+ * found at any depth, so definitions wrapped in eval-when or progn count too, as well as slot accessors of
+ * classes and symbols removed by fmakunbound or makunbound. Finding more symbols than really changed only costs
+ * their analysis.
+ */
+public class SltDefinedSymbols {
+
+    private static final Set<String> DEFINING_FORMS = Set.of(
+            "DEFUN", "DEFMACRO", "DEFGENERIC", "DEFMETHOD", "DEFCLASS", "DEFSTRUCT", "DEFVAR", "DEFPARAMETER",
+            "DEFCONSTANT", "DEFTYPE", "DEFSETF", "FMAKUNBOUND", "MAKUNBOUND", "UNINTERN"
+    );
+    private static final Set<String> SLOT_FUNCTIONS = Set.of(":ACCESSOR", ":READER", ":WRITER");
+
+    private final String code;
+    private final Set<String> names = new HashSet<>();
+    private int position;
+
+    private SltDefinedSymbols(String code) {
+        this.code = code;
+    }
+
+    /**
+     * @return upper case symbol names without package prefix
+     */
+    public static Set<String> scan(String code) {
+        SltDefinedSymbols scanner = new SltDefinedSymbols(code);
+        scanner.scan();
+        return scanner.names;
+    }
+
+    private void scan() {
+        boolean operator = false;
+        String slotFunction = null;
+        while (position < code.length()) {
+            char c = code.charAt(position);
+            if (Character.isWhitespace(c)) {
+                ++position;
+                continue;
+            } else if (c == ')' || c == '\'' || c == '`' || c == ',') {
+                ++position;
+            } else if (c == '(') {
+                ++position;
+                operator = true;
+                continue;
+            } else if (c == ';') {
+                skipLine();
+            } else if (c == '"') {
+                skipString();
+            } else if (c == '#' && position + 1 < code.length() && code.charAt(position + 1) == '|') {
+                skipBlockComment();
+            } else if (c == '#' && position + 1 < code.length() && code.charAt(position + 1) == '\\') {
+                position += 2;
+                readToken();
+            } else {
+                String token = readToken().toUpperCase();
+                if (slotFunction != null) {
+                    addName(token);
+                    slotFunction = null;
+                } else if (SLOT_FUNCTIONS.contains(token)) {
+                    slotFunction = token;
+                } else if (operator && isDefining(stripPackage(token))) {
+                    readDefinedName();
+                }
+            }
+            operator = false;
+        }
+    }
+
+    private static boolean isDefining(String operator) {
+        return DEFINING_FORMS.contains(operator) || operator.startsWith("DEFINE-");
+    }
+
+    private void readDefinedName() {
+        skipWhitespace();
+        // (defun (setf name) ...), (defstruct (name options) ...), (fmakunbound 'name)
+        while (position < code.length() && (code.charAt(position) == '\'' || code.charAt(position) == '#'
+                || code.charAt(position) == '(')) {
+            if (code.charAt(position) == '(') {
+                int start = ++position;
+                String head = readToken().toUpperCase();
+                skipWhitespace();
+                if (!"SETF".equals(stripPackage(head))) {
+                    position = start;
+                }
+            } else {
+                ++position;
+            }
+            skipWhitespace();
+        }
+        addName(readToken().toUpperCase());
+    }
+
+    private void addName(String token) {
+        String name = stripPackage(token);
+        if (!name.isEmpty() && !name.startsWith("|") && !name.startsWith("#") && !"NIL".equals(name)
+                && !Character.isDigit(name.charAt(0))) {
+            names.add(name);
+        }
+    }
+
+    private static String stripPackage(String token) {
+        int separator = token.lastIndexOf(':');
+        return separator < 0 ? token : token.substring(separator + 1);
+    }
+
+    private String readToken() {
+        int start = position;
+        while (position < code.length()) {
+            char c = code.charAt(position);
+            if (Character.isWhitespace(c) || c == '(' || c == ')' || c == '"' || c == '\'' || c == ';') {
+                break;
+            }
+            ++position;
+        }
+        return code.substring(start, position);
+    }
+
+    private void skipWhitespace() {
+        while (position < code.length() && Character.isWhitespace(code.charAt(position))) {
+            ++position;
+        }
+    }
+
+    private void skipLine() {
+        while (position < code.length() && code.charAt(position) != '\n') {
+            ++position;
+        }
+    }
+
+    private void skipString() {
+        ++position;
+        while (position < code.length() && code.charAt(position) != '"') {
+            if (code.charAt(position) == '\\') {
+                ++position;
+            }
+            ++position;
+        }
+        ++position;
+    }
+
+    private void skipBlockComment() {
+        int end = code.indexOf("|#", position + 2);
+        position = end < 0 ? code.length() : end + 2;
+    }
+
+}
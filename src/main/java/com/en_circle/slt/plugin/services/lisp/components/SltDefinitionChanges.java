@@ -0,0 +1,49 @@
+package com.en_circle.slt.plugin.services.lisp.components;
+
+import com.en_circle.slt.plugin.lisp.lisp.LispContainer;
+import com.en_circle.slt.plugin.lisp.lisp.LispElement;
+import com.en_circle.slt.plugin.lisp.lisp.LispString;
+
+import java.util.*;
+
+/**
+ * Definition changes pushed by lisp as
+ * {@code (:slt-definitions-changed ((name package) ...) (created-package ...) (deleted-package ...))}, see
+ * slt.lisp.
+ *
+ * @param symbolNames names of watched symbols whose definition changed, without package
+ * @param createdPackages names of packages created since last event
+ * @param deletedPackages names of packages deleted since last event
+ */
+public record SltDefinitionChanges(Set<String> symbolNames, List<String> createdPackages,
+                                   List<String> deletedPackages) {
+
+    public static SltDefinitionChanges parse(LispContainer event) {
+        Set<String> symbolNames = new HashSet<>();
+        for (LispElement element : getList(event, 1)) {
+            if (element instanceof LispContainer symbol && !symbol.getItems().isEmpty()
+                    && symbol.getItems().get(0) instanceof LispString name) {
+                symbolNames.add(name.getValue().toUpperCase());
+            }
+        }
+        return new SltDefinitionChanges(symbolNames, getStrings(event, 2), getStrings(event, 3));
+    }
+
+    private static List<LispElement> getList(LispContainer event, int index) {
+        if (event.getItems().size() > index && event.getItems().get(index) instanceof LispContainer list) {
+            return list.getItems();
+        }
+        return Collections.emptyList();
+    }
+
+    private static List<String> getStrings(LispContainer event, int index) {
+        List<String> strings = new ArrayList<>();
+        for (LispElement element : getList(event, index)) {
+            if (element instanceof LispString string) {
+                strings.add(string.getValue());
+            }
+        }
+        return strings;
+    }
+
+}
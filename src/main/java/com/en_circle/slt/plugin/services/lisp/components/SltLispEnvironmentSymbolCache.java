@@ -3,34 +3,124 @@ package com.en_circle.slt.plugin.services.lisp.components;
 import com.en_circle.slt.plugin.SymbolState;
 import com.en_circle.slt.plugin.SymbolState.SymbolBinding;
 import com.en_circle.slt.plugin.lisp.lisp.*;
+import com.en_circle.slt.plugin.sdk.LispProjectSdk;
+import com.en_circle.slt.plugin.environment.SltLispEnvironment.SltOutput;
 import com.en_circle.slt.plugin.services.lisp.LispEnvironmentService;
+import com.en_circle.slt.plugin.services.lisp.LispEnvironmentService.LispEnvironmentListener;
 import com.en_circle.slt.plugin.services.lisp.LispEnvironmentService.LispEnvironmentState;
+import com.en_circle.slt.plugin.services.lisp.SltSwankSettings;
+import com.en_circle.slt.plugin.services.lisp.components.SltSymbolRefreshQueue.QueuedSymbol;
+import com.en_circle.slt.plugin.swank.SlimeRequest.RequestPriority;
 import com.en_circle.slt.plugin.swank.components.SourceLocation;
 import com.en_circle.slt.plugin.swank.requests.EvalAndGrab;
+import com.en_circle.slt.tools.PluginPath;
 import com.en_circle.slt.tools.SltApplicationUtils;
-import com.google.common.collect.Lists;
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.util.concurrency.FutureResult;
 import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
-public class SltLispEnvironmentSymbolCache extends Thread {
-
-    // TODO: Rewrite with events, if possible
-
-    private final Map<String, SymbolState> symbolInformation = Collections.synchronizedMap(new HashMap<>());
-    private final List<SymbolState> symbolRefreshQueue = Collections.synchronizedList(new ArrayList<>());
+/**
+ * Bindings, documentation and source locations of symbols, analyzed by lisp in background.
+ *
+ * Symbols without binding are queued into {@link SltSymbolRefreshQueue}, cache thread sleeps until there is work and
+ * lisp is running and sends whole debounced batch in single analyze-symbols request.
+ *
+ * Symbol states and their documentation are kept in separate {@link SltBoundedCache}s, so long docstrings do not
+ * push out bindings used by highlighting. Evicted documentation is analyzed again when it is asked for.
+ *
+ * Evaluated code can redefine analyzed symbols. Each {@link #invalidate(Collection, Collection)} starts new generation
+ * and marks the given symbol and package names as changed in it, cached states of these symbols are queued again and
+ * state analyzed in older generation is stale until analyzed again. Rest of the cache is kept. States are indexed by
+ * symbol and package name, so invalidation only touches the changed ones, and the change record is dropped once none
+ * of the states is stale anymore.
+ *
+ * Lisp watches every analyzed symbol and pushes its changes, see {@link SltDefinitionChanges}, so highlighting
+ * sends only symbols that were not analyzed yet or are stale.
+ *
+ * Bound symbols are kept in {@link SltSymbolSnapshot} per SDK and project when lisp stops. Snapshot is loaded as
+ * provisional states when IDE or lisp starts, so they are highlighted right away, and analyzed again in background
+ * once lisp is running.
+ *
+ * Symbol tables of referenced packages, and of COMMON-LISP right after start, are fetched in bulk into
+ * {@link SltPackageSymbols}. Symbols found there are filled in without analysis. Tables are fetched asynchronously,
+ * symbols of package whose table is still being fetched wait for it, are filled once it arrives and queued for analysis
+ * if they are not in it.
+ */
+public class SltLispEnvironmentSymbolCache extends Thread implements LispEnvironmentListener {
+    private static final Logger log = LoggerFactory.getLogger(SltLispEnvironmentSymbolCache.class);
+
+    // analysis describes and looks up source of every symbol, so its timeout grows with the batch
+    private static final long ANALYZE_TIMEOUT_SECONDS = 10;
+    private static final long ANALYZE_TIMEOUT_PER_SYMBOL_MILLIS = 100;
+    // highlighting does not wait longer, symbols analyzed later are highlighted on restart
+    private static final long RESULT_WAIT_SECONDS = 5;
+    private static final int MAX_BATCH_SIZE = 500;
+    private static final String SNAPSHOT_FOLDER = "symbols";
+
+    private final SltBoundedCache<String, SymbolState> symbolInformation;
+    private final SltBoundedCache<String, String> documentation;
+    private final SltSymbolRefreshQueue refreshQueue = new SltSymbolRefreshQueue(MAX_BATCH_SIZE);
+    private final AtomicLong generation = new AtomicLong();
+    private final SltPackageSymbols packageSymbols;
+    // upper case symbol name -> generation in which it was last invalidated, until its states are analyzed again
+    private final Map<String, Long> invalidated = new ConcurrentHashMap<>();
+    // upper case package name -> generation in which it was created or deleted, until its states are analyzed again
+    private final Map<String, Long> invalidatedPackages = new ConcurrentHashMap<>();
+    // upper case symbol name and upper case package name -> cached states, so invalidation does not walk whole cache
+    private final Map<String, Set<SymbolState>> statesByName = new ConcurrentHashMap<>();
+    private final Map<String, Set<SymbolState>> statesByPackage = new ConcurrentHashMap<>();
+    // upper case package name -> states waiting for its table to be fetched
+    private final Map<String, Set<SymbolState>> awaitingPackages = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean snapshotDirty = new AtomicBoolean();
+    private final Object snapshotLock = new Object();
+    private boolean snapshotLoaded;
+    private Path snapshotFile;
 
     private final Project project;
     private volatile boolean active = true;
 
     public SltLispEnvironmentSymbolCache(Project project) {
         this.project = project;
+        this.packageSymbols = new SltPackageSymbols(project, generation::get);
+
+        SltSwankSettings settings = SltSwankSettings.getInstance();
+        this.symbolInformation = new SltBoundedCache<>(settings.symbolCacheSize, settings.symbolCacheBytes,
+                SltLispEnvironmentSymbolCache::weigh);
+        this.symbolInformation.setListener(new SltBoundedCache.Listener<>() {
+            @Override
+            public void onAdded(String key, SymbolState state) {
+                index(statesByName, state.symbolName, state);
+                if (state.packageName != null) {
+                    index(statesByPackage, state.packageName, state);
+                }
+            }
+
+            @Override
+            public void onRemoved(String key, SymbolState state) {
+                unindex(statesByName, state.symbolName, state);
+                if (state.packageName != null) {
+                    unindex(statesByPackage, state.packageName, state);
+                }
+            }
+        });
+        this.documentation = new SltBoundedCache<>(settings.symbolCacheSize, settings.symbolDocumentationBytes,
+                text -> 40 + 2 * text.length());
 
         setDaemon(true);
         setName("SLT Symbol Cache Thread");
@@ -38,33 +128,105 @@ public class SltLispEnvironmentSymbolCache extends Thread {
 
     @Override
     public void run() {
+        loadSnapshot();
         while (active) {
             try {
-                if (LispEnvironmentService.getInstance(project).getState() == LispEnvironmentState.READY) {
-                    while (symbolRefreshQueue.isEmpty()) {
-                        Thread.sleep(1000);
-                    }
-                    List<SymbolState> refreshStates;
-                    synchronized (symbolRefreshQueue) {
-                        refreshStates = new ArrayList<>(symbolRefreshQueue);
-                        symbolRefreshQueue.clear();
-                    }
-                    System.err.println("Refreshing " + refreshStates.size() + " symbols");
-                    try {
-                        refreshSymbols(refreshStates);
-                    } catch (Exception e) {
-                        // ignored
-                    }
+                long debounce = TimeUnit.MILLISECONDS.toNanos(SltSwankSettings.getInstance().symbolRefreshDebounce);
+                List<QueuedSymbol> batch = refreshQueue.take(debounce);
+                if (batch.isEmpty()) {
+                    continue;
                 }
-                Thread.sleep(100);
+                if (LispEnvironmentService.getInstance(project).getState() != LispEnvironmentState.READY) {
+                    // lisp died without stop, symbols stay unbound and are queued again on next lookup
+                    refreshQueue.completed(batch);
+                    continue;
+                }
+                refreshSymbols(batch);
             } catch (InterruptedException exception) {
-
+                if (!active) {
+                    return;
+                }
             }
         }
     }
 
     public void terminate() {
         active = false;
+        refreshQueue.terminate();
+    }
+
+    public SltSymbolRefreshQueue getRefreshQueue() {
+        return refreshQueue;
+    }
+
+    public SltBoundedCache<String, SymbolState> getSymbolStore() {
+        return symbolInformation;
+    }
+
+    public SltBoundedCache<String, String> getDocumentationStore() {
+        return documentation;
+    }
+
+    public SltPackageSymbols getPackageSymbols() {
+        return packageSymbols;
+    }
+
+    /**
+     * @return documentation of analyzed symbol, null if it has none or if it was evicted, in which case symbol is
+     * queued for analysis again
+     */
+    public String getDocumentation(SymbolState state) {
+        String text = documentation.get(state.name);
+        if (text == null && state.hasDocumentation) {
+            offer(state);
+        }
+        return text;
+    }
+
+    private static int weigh(SymbolState state) {
+        // object headers and fields, strings as UTF-16
+        int weight = 96 + 2 * (state.name.length() + state.symbolName.length());
+        if (state.packageName != null) {
+            weight += 2 * state.packageName.length();
+        }
+        String location = state.location.getLocation();
+        if (location != null) {
+            weight += 2 * location.length();
+        }
+        return weight;
+    }
+
+    @Override
+    public void onPreStart() {
+        loadSnapshot();
+    }
+
+    @Override
+    public void onPostStart() {
+        refreshQueue.resume();
+        packageSymbols.requestWithUsed("COMMON-LISP");
+        packageSymbols.requestWithUsed(getGlobalPackage());
+        symbolInformation.forEach((name, state) -> {
+            if (state.provisional) {
+                offer(state);
+            }
+        });
+    }
+
+    @Override
+    public void onPreStop() {
+        refreshQueue.pause();
+        saveSnapshot();
+    }
+
+    @Override
+    public void onPostStop() {
+
+    }
+
+    @Override
+    public void onOutputChanged(SltOutput output, String newData) {
+
     }
 
     public SymbolState refreshSymbolFromServer(String packageName, String symbolName) {
@@ -72,17 +234,162 @@ public class SltLispEnvironmentSymbolCache extends Thread {
         SymbolState undefinedSymbol = getOrCreateBinding(null, symbolName);
         SymbolBinding currentBinding = state.binding;
         if (currentBinding == SymbolBinding.NONE) {
-            symbolRefreshQueue.add(state);
+            offer(state);
             if (undefinedSymbol.binding == SymbolBinding.NONE) {
-                symbolRefreshQueue.add(undefinedSymbol);
+                offer(undefinedSymbol);
             } else {
+                offerIfStale(undefinedSymbol);
                 return undefinedSymbol;
             }
+        } else {
+            offerIfStale(state);
         }
 
         return state;
     }
 
+    /**
+     * Marks symbols as redefined, ie after evaluation of their definitions. Their cached states are analyzed again in
+     * background, until then they keep their previous binding.
+     *
+     * @param symbolNames upper case symbol names without package, see {@link SltDefinedSymbols}
+     */
+    public void invalidate(Collection<String> symbolNames) {
+        invalidate(symbolNames, Collections.emptyList());
+    }
+
+    /**
+     * Marks symbols as redefined and all symbols of the packages as changed, ie when package was created and symbols
+     * that could not be read before can be analyzed.
+     *
+     * @param packageNames package names in any case
+     */
+    public void invalidate(Collection<String> symbolNames, Collection<String> packageNames) {
+        if (symbolNames.isEmpty() && packageNames.isEmpty()) {
+            return;
+        }
+        long current = generation.incrementAndGet();
+        for (String name : symbolNames) {
+            invalidated.put(name, current);
+            offerIfStale(statesByName.get(name));
+            // symbol not cached at all needs the record only until stale entries of package tables are dropped
+            pruneInvalidated(name);
+        }
+        for (String name : packageNames) {
+            String packageName = name.toUpperCase();
+            invalidatedPackages.put(packageName, current);
+            offerIfStale(statesByPackage.get(packageName));
+            pruneInvalidatedPackage(packageName);
+        }
+    }
+
+    private static void index(Map<String, Set<SymbolState>> index, String name, SymbolState state) {
+        index.computeIfAbsent(name.toUpperCase(), key -> ConcurrentHashMap.newKeySet()).add(state);
+    }
+
+    private static void unindex(Map<String, Set<SymbolState>> index, String name, SymbolState state) {
+        index.computeIfPresent(name.toUpperCase(), (key, states) -> {
+            states.remove(state);
+            return states.isEmpty() ? null : states;
+        });
+    }
+
+    private void offerIfStale(Set<SymbolState> states) {
+        if (states != null) {
+            states.forEach(this::offerIfStale);
+        }
+    }
+
+    /**
+     * Drops invalidation record of the symbol once none of its cached states is stale.
+     */
+    private void pruneInvalidated(String name) {
+        Long changed = invalidated.get(name);
+        if (changed == null || hasStaleState(statesByName.get(name), changed)) {
+            return;
+        }
+        // without the record, states created later must not be filled from tables older than the change
+        if (packageSymbols.forgetSymbol(name, changed)) {
+            invalidated.remove(name, changed);
+        }
+    }
+
+    /**
+     * Drops invalidation record of the package once none of its cached states is stale, its old table was already
+     * forgotten.
+     */
+    private void pruneInvalidatedPackage(String packageName) {
+        Long changed = invalidatedPackages.get(packageName);
+        if (changed != null && !hasStaleState(statesByPackage.get(packageName), changed)) {
+            invalidatedPackages.remove(packageName, changed);
+        }
+    }
+
+    private static boolean hasStaleState(Set<SymbolState> states, long changed) {
+        if (states != null) {
+            for (SymbolState state : states) {
+                if (changed > state.generation) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void pruneInvalidated(Collection<SymbolState> analyzed) {
+        if (invalidated.isEmpty() && invalidatedPackages.isEmpty()) {
+            return;
+        }
+        for (SymbolState state : analyzed) {
+            pruneInvalidated(state.symbolName.toUpperCase());
+            if (state.packageName != null) {
+                pruneInvalidatedPackage(state.packageName.toUpperCase());
+            }
+        }
+    }
+
+    /**
+     * Invalidates symbols and packages changed in lisp.
+     */
+    public void definitionsChanged(SltDefinitionChanges changes) {
+        List<String> packageNames = new ArrayList<>(changes.createdPackages());
+        packageNames.addAll(changes.deletedPackages());
+        packageSymbols.forget(packageNames);
+        invalidate(changes.symbolNames(), packageNames);
+    }
+
+    private boolean isStale(SymbolState state) {
+        if (invalidated.isEmpty() && invalidatedPackages.isEmpty()) {
+            return false;
+        }
+        Long changed = invalidated.get(state.symbolName.toUpperCase());
+        if (changed != null && changed > state.generation) {
+            return true;
+        }
+        if (state.packageName != null) {
+            changed = invalidatedPackages.get(state.packageName.toUpperCase());
+            return changed != null && changed > state.generation;
+        }
+        return false;
+    }
+
+    private boolean needsAnalysis(SymbolState state) {
+        // provisional states are analyzed in background after start
+        return (state.timestamp == null && !state.provisional) || isStale(state);
+    }
+
+    private void offerIfStale(SymbolState state) {
+        if (isStale(state)) {
+            offer(state);
+        }
+    }
+
+    private void offer(SymbolState state) {
+        if (removeBad(state)) {
+            refreshQueue.offer(state);
+        }
+    }
+
     private void refreshBatchedSymbols(BatchedSymbolRefreshAction action, Consumer<Boolean> onFinish) {
         HashSet<SymbolState> duplicityState = new HashSet<>();
         List<SymbolState> withoutDuplicity = action.states.stream()
@@ -93,8 +400,13 @@ public class SltLispEnvironmentSymbolCache extends Thread {
                 }).filter(this::removeBad).collect(Collectors.toList());
 
         try {
-            if (LispEnvironmentService.getInstance(project).getState() == LispEnvironmentState.READY) {
-                refreshSymbolsBatched(withoutDuplicity, onFinish);
+            withoutDuplicity.removeIf(this::fillOrAwaitPackage);
+            withoutDuplicity.removeIf(state -> !needsAnalysis(state));
+
+            if (!withoutDuplicity.isEmpty()
+                    && LispEnvironmentService.getInstance(project).getState() == LispEnvironmentState.READY) {
+                // awaited by highlighting, queued refreshes are not awaited by anyone and yield to it
+                refreshSymbolsBatched(withoutDuplicity, RequestPriority.NAVIGATION, onFinish);
             } else {
                 onFinish.accept(true);
             }
@@ -128,38 +440,172 @@ public class SltLispEnvironmentSymbolCache extends Thread {
         String combinedName = StringUtils.isBlank(packageName) ? symbolName : (packageName + ":" + symbolName);
         String pureName = symbolName;
         String packageNameFinal = packageName;
-        return symbolInformation.computeIfAbsent(combinedName, fullname -> new SymbolState(fullname, packageNameFinal, pureName));
+        SymbolState state = symbolInformation.computeIfAbsent(combinedName,
+                fullname -> new SymbolState(fullname, packageNameFinal, pureName));
+        if (state.timestamp == null) {
+            fillFromPackage(state);
+        }
+        return state;
     }
 
-    private void refreshSymbols(List<SymbolState> refreshStates) throws Exception {
-        HashSet<SymbolState> duplicityState = new HashSet<>();
-        List<SymbolState> withoutDuplicity = refreshStates.stream()
-                        .filter(s -> {
-                            boolean isDuplicit = duplicityState.contains(s);
-                            duplicityState.add(s);
-                            return !isDuplicit;
-                        }).filter(this::removeBad).collect(Collectors.toList());
-        Lists.partition(withoutDuplicity, 500).forEach(list -> {
-                    try {
-                        refreshSymbolsBatched(list);
-                    } catch (Exception e) {
-                        throw new RuntimeException(e);
-                    }
-                });
+    private String getGlobalPackage() {
+        return LispEnvironmentService.getInstance(project).getGlobalPackage();
     }
 
-    private boolean removeBad(SymbolState symbolState) {
-        return !symbolState.symbolName.contains(":");
+    /**
+     * Fills symbol not analyzed yet from table of its package. If the table was not fetched yet, it is requested and
+     * symbol is filled when it arrives, without waiting for it.
+     *
+     * @return true if symbol was filled or waits for table of its package, false if it has to be analyzed
+     */
+    private boolean fillOrAwaitPackage(SymbolState state) {
+        if (fillFromPackage(state)) {
+            return true;
+        }
+        if (state.timestamp != null || isStale(state)
+                || LispEnvironmentService.getInstance(project).getState() != LispEnvironmentState.READY) {
+            return false;
+        }
+        String packageName = (state.packageName == null ? getGlobalPackage() : state.packageName).toUpperCase();
+        CompletableFuture<Boolean> loaded = packageSymbols.requestWithUsed(packageName);
+        if (loaded.isDone()) {
+            // fetched without the symbol or failed
+            return false;
+        }
+        boolean[] first = new boolean[1];
+        awaitingPackages.compute(packageName, (name, states) -> {
+            if (states == null) {
+                states = new HashSet<>();
+                first[0] = true;
+            }
+            states.add(state);
+            return states;
+        });
+        if (first[0]) {
+            loaded.whenComplete((result, error) -> packageFetched(packageName));
+        }
+        return true;
+    }
+
+    /**
+     * Fills states that waited for the table of the package, states not found there are queued for analysis.
+     */
+    private void packageFetched(String packageName) {
+        Set<SymbolState> states = awaitingPackages.remove(packageName);
+        if (states == null) {
+            return;
+        }
+        boolean rebound = false;
+        for (SymbolState state : states) {
+            SymbolBinding binding = state.binding;
+            if (fillFromPackage(state)) {
+                rebound |= state.binding != binding;
+            } else if (needsAnalysis(state)) {
+                offer(state);
+            }
+        }
+        if (rebound) {
+            restartHighlighting();
+        }
+    }
+
+    /**
+     * Fills symbol not analyzed yet from table of its package, if the table was already fetched.
+     *
+     * @return true if symbol was filled
+     */
+    private boolean fillFromPackage(SymbolState state) {
+        if (state.timestamp != null || isStale(state)) {
+            return false;
+        }
+        String packageName = state.packageName == null ? getGlobalPackage() : state.packageName;
+        SltPackageSymbols.Entry entry = packageSymbols.find(packageName, state.symbolName);
+        if (entry == null) {
+            return false;
+        }
+        state.binding = entry.binding();
+        state.location = entry.location();
+        // analysis describes every bound symbol except special forms
+        state.hasDocumentation = entry.binding() != SymbolBinding.NONE && entry.binding() != SymbolBinding.SPECIAL_FORM;
+        state.generation = entry.generation();
+        state.provisional = false;
+        state.timestamp = System.currentTimeMillis();
+        symbolInformation.reweigh(state.name);
+        snapshotDirty.set(true);
+        return true;
+    }
+
+    static SymbolBinding toBinding(String kind) {
+        return switch (kind.toUpperCase()) {
+            case ":CLASS" -> SymbolBinding.CLASS;
+            case ":METHOD" -> SymbolBinding.METHOD;
+            case ":SPECIAL-FORM" -> SymbolBinding.SPECIAL_FORM;
+            case ":MACRO" -> SymbolBinding.MACRO;
+            case ":FUNCTION" -> SymbolBinding.FUNCTION;
+            case ":CONSTANT" -> SymbolBinding.CONSTANT;
+            case ":KEYWORD" -> SymbolBinding.KEYWORD;
+            case ":SPECIAL" -> SymbolBinding.SPECIAL_VARIABLE;
+            default -> SymbolBinding.NONE;
+        };
+    }
+
+    private void refreshSymbols(List<QueuedSymbol> batch) {
+        List<SymbolState> refreshStates = batch.stream().map(QueuedSymbol::state).collect(Collectors.toList());
+        Map<SymbolState, SymbolBinding> previous = new HashMap<>();
+        for (SymbolState state : refreshStates) {
+            if (isStale(state) || state.provisional) {
+                previous.put(state, state.binding);
+            }
+        }
+        // symbols of fetched packages need no analysis, symbols of packages being fetched are filled when they arrive
+        refreshStates.removeIf(state -> {
+            SymbolBinding binding = state.binding;
+            if (!fillOrAwaitPackage(state)) {
+                return false;
+            }
+            previous.putIfAbsent(state, binding);
+            return true;
+        });
+        Consumer<Boolean> finished = success -> {
+            refreshQueue.completed(batch);
+            boolean rebound = false;
+            for (Map.Entry<SymbolState, SymbolBinding> entry : previous.entrySet()) {
+                rebound |= entry.getKey().binding != entry.getValue();
+                if (success) {
+                    // invalidated again while in flight
+                    offerIfStale(entry.getKey());
+                }
+            }
+            if (rebound) {
+                restartHighlighting();
+            }
+        };
+        if (refreshStates.isEmpty()) {
+            finished.accept(true);
+            return;
+        }
+        try {
+            refreshSymbolsBatched(refreshStates, RequestPriority.BACKGROUND, finished);
+        } catch (Exception e) {
+            log.debug(e.getMessage(), e);
+            refreshQueue.completed(batch);
+        }
     }
 
-    private void refreshSymbolsBatched(List<SymbolState> refreshStates) throws Exception {
-        refreshSymbolsBatched(refreshStates, null);
+    private boolean removeBad(SymbolState symbolState) {
+        return !symbolState.symbolName.contains(":");
     }
 
-    private void refreshSymbolsBatched(List<SymbolState> refreshStates, Consumer<Boolean> requestFinished) throws Exception {
+    private void refreshSymbolsBatched(List<SymbolState> refreshStates, RequestPriority priority,
+                                       Consumer<Boolean> requestFinished) throws Exception {
         String request = "(" +
                 refreshStates.stream().map(x -> x.name.toUpperCase() + " ").collect(Collectors.joining()) + ")";
         request = StringUtils.replace(request, "\"", "\\\"");
+        Runnable onFailure = () -> requestFinished.accept(false);
+        // symbols invalidated after this point are analyzed again
+        long requestGeneration = generation.get();
+        long timeout = TimeUnit.SECONDS.toMillis(ANALYZE_TIMEOUT_SECONDS)
+                + refreshStates.size() * ANALYZE_TIMEOUT_PER_SYMBOL_MILLIS;
 
         LispEnvironmentService.getInstance(project).sendToLisp(EvalAndGrab.eval(
                 String.format(
@@ -173,48 +619,31 @@ public class SltLispEnvironmentSymbolCache extends Thread {
                         for (LispElement element : data.getItems()) {
                             LispContainer list = (LispContainer) element;
                             String name = ((LispSymbol) list.getItems().get(0)).getValue().toUpperCase();
+                            SymbolState state = refreshStates.get(ix++);
                             if ("NIL".equals(name)) {
-                                ++ix;
+                                if (state != null) {
+                                    // no longer resolves, ie after unintern
+                                    state.generation = requestGeneration;
+                                    state.provisional = false;
+                                    state.binding = SymbolBinding.NONE;
+                                }
                                 continue;
                             }
 
-                            SymbolState state = refreshStates.get(ix++);
                             if (state != null) {
+                                state.generation = requestGeneration;
+                                state.provisional = false;
+                                snapshotDirty.set(true);
                                 if (list.getItems().get(1) instanceof LispSymbol symbolBack) {
                                     String symValue = symbolBack.getValue().toUpperCase();
                                     state.timestamp = System.currentTimeMillis();
-                                    switch (symValue) {
-                                        case ":CLASS":
-                                            state.binding = SymbolBinding.CLASS;
-                                            break;
-                                        case ":METHOD":
-                                            state.binding = SymbolBinding.METHOD;
-                                            break;
-                                        case ":SPECIAL-FORM":
-                                            state.binding = SymbolBinding.SPECIAL_FORM;
-                                            break;
-                                        case ":MACRO":
-                                            state.binding = SymbolBinding.MACRO;
-                                            break;
-                                        case ":FUNCTION":
-                                            state.binding = SymbolBinding.FUNCTION;
-                                            break;
-                                        case ":CONSTANT":
-                                            state.binding = SymbolBinding.CONSTANT;
-                                            break;
-                                        case ":KEYWORD":
-                                            state.binding = SymbolBinding.KEYWORD;
-                                            break;
-                                        case ":SPECIAL":
-                                            state.binding = SymbolBinding.SPECIAL_VARIABLE;
-                                            break;
-                                        default:
-                                            state.binding = SymbolBinding.NONE;
-                                            break;
-                                    }
-                                    state.documentation = null;
-                                    if (list.getItems().get(2) instanceof LispString) {
-                                        state.documentation = ((LispString) list.getItems().get(2)).getValue();
+                                    state.binding = toBinding(symValue);
+                                    if (list.getItems().get(2) instanceof LispString text) {
+                                        state.hasDocumentation = true;
+                                        documentation.put(state.name, text.getValue());
+                                    } else {
+                                        state.hasDocumentation = false;
+                                        documentation.remove(state.name);
                                     }
 
                                     if (list.getItems().get(3) instanceof LispContainer) {
@@ -223,26 +652,100 @@ public class SltLispEnvironmentSymbolCache extends Thread {
                                             state.location = location;
                                         }
                                     }
+                                    symbolInformation.reweigh(state.name);
                                 } else {
-                                    System.out.println(list.getItems().get(1).toPrettyString());
+                                    log.debug("Symbol analysis failed: " + list.getItems().get(1).toPrettyString());
                                 }
                             }
                         }
                     }
 
-                    if (requestFinished != null) {
-                        requestFinished.accept(true);
-                    }
-                }), false, () -> {
-            if (requestFinished != null) {
-                requestFinished.accept(false);
+                    pruneInvalidated(refreshStates);
+                    requestFinished.accept(true);
+                }).idempotent().withPriority(priority).withTimeout(timeout, TimeUnit.MILLISECONDS, onFailure)
+                // analysis still running after timeout would keep its worker busy, its reply is thrown away
+                .interruptOnTimeout(), false, onFailure);
+    }
+
+    private void restartHighlighting() {
+        ApplicationManager.getApplication().invokeLater(() -> {
+            if (!project.isDisposed()) {
+                DaemonCodeAnalyzer.getInstance(project).restart();
             }
         });
     }
 
+    private Path getSnapshotFile() {
+        if (!SltSwankSettings.getInstance().symbolSnapshot) {
+            return null;
+        }
+        String sdk = LispProjectSdk.getInstance(project).currentSDK;
+        if (sdk == null) {
+            return null;
+        }
+        return PluginPath.getPluginFolder().toPath().resolve(SNAPSHOT_FOLDER)
+                .resolve(sdk + "-" + project.getLocationHash() + ".bin");
+    }
+
+    /**
+     * Loads snapshot once after start or clear, states already in cache are kept.
+     */
+    private void loadSnapshot() {
+        int loaded = 0;
+        synchronized (snapshotLock) {
+            if (snapshotLoaded) {
+                return;
+            }
+            snapshotLoaded = true;
+            try {
+                snapshotFile = getSnapshotFile();
+                if (snapshotFile == null) {
+                    return;
+                }
+                for (SymbolState state : SltSymbolSnapshot.read(snapshotFile)) {
+                    if (removeBad(state) && symbolInformation.computeIfAbsent(state.name, name -> state) == state) {
+                        ++loaded;
+                    }
+                }
+            } catch (Exception e) {
+                log.debug(e.getMessage(), e);
+            }
+        }
+        if (loaded > 0) {
+            restartHighlighting();
+        }
+    }
+
+    private void saveSnapshot() {
+        synchronized (snapshotLock) {
+            if (snapshotFile == null || !snapshotDirty.getAndSet(false)) {
+                return;
+            }
+            List<SymbolState> states = new ArrayList<>();
+            symbolInformation.forEach((name, state) -> {
+                if (state.binding != SymbolBinding.NONE) {
+                    states.add(state);
+                }
+            });
+            try {
+                SltSymbolSnapshot.write(snapshotFile, states);
+            } catch (Exception e) {
+                log.debug(e.getMessage(), e);
+            }
+        }
+    }
+
     public void clear() {
+        synchronized (snapshotLock) {
+            snapshotLoaded = false;
+        }
         symbolInformation.clear();
-        symbolRefreshQueue.clear();
+        documentation.clear();
+        refreshQueue.clear();
+        awaitingPackages.clear();
+        invalidated.clear();
+        invalidatedPackages.clear();
+        packageSymbols.clear();
     }
 
     public BatchedSymbolRefreshAction createNewBatch() {
@@ -262,7 +765,7 @@ public class SltLispEnvironmentSymbolCache extends Thread {
                 FutureResult<Boolean> waitForResult = new FutureResult<>();
                 refreshBatchedSymbols(this, waitForResult::set);
                 try {
-                    return waitForResult.get(200, TimeUnit.SECONDS);
+                    return waitForResult.get(RESULT_WAIT_SECONDS, TimeUnit.SECONDS);
                 } catch (Exception e) {
                     return false;
                 }
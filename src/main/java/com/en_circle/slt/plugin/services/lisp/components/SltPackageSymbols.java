@@ -0,0 +1,302 @@
+package com.en_circle.slt.plugin.services.lisp.components;
+
+import com.en_circle.slt.plugin.SymbolState.SymbolBinding;
+import com.en_circle.slt.plugin.lisp.lisp.*;
+import com.en_circle.slt.plugin.services.lisp.LispEnvironmentService;
+import com.en_circle.slt.plugin.swank.SlimeRequest.RequestPriority;
+import com.en_circle.slt.plugin.swank.components.SourceLocation;
+import com.en_circle.slt.plugin.swank.requests.EvalAndGrab;
+import com.intellij.openapi.project.Project;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Symbol tables of lisp packages, fetched page by page in background when package is first referenced.
+ *
+ * Each table holds symbols present in the package, internal and external, with their binding and source location.
+ * Symbol not present in the package is looked up in external symbols of the packages it uses, so tables of
+ * COMMON-LISP and other used packages are shared. Symbols not found are not known to lisp yet and have to be
+ * analyzed. Tables are not updated, entry of symbol invalidated after its table was fetched is stale, see
+ * {@link SltLispEnvironmentSymbolCache}. Symbols are keyed by their exact name, so FOO and |foo| are different symbols,
+ * names written in source are converted like lisp reader does on lookup.
+ */
+public class SltPackageSymbols {
+    private static final Logger log = LoggerFactory.getLogger(SltPackageSymbols.class);
+
+    private static final int PAGE_SIZE = 1000;
+    private static final long PAGE_TIMEOUT_SECONDS = 60;
+
+    private final Project project;
+    private final LongSupplier generation;
+    // upper case package name, as referenced or its real name -> table
+    private final Map<String, PackageTable> tables = new ConcurrentHashMap<>();
+
+    public SltPackageSymbols(Project project, LongSupplier generation) {
+        this.project = project;
+        this.generation = generation;
+    }
+
+    /**
+     * Starts fetching the table of the package and packages it uses, if it was not fetched yet.
+     *
+     * @return completed with false if package does not exist or could not be fetched
+     */
+    public CompletableFuture<Boolean> request(String packageName) {
+        String name = normalize(packageName);
+        PackageTable present = tables.get(name);
+        if (present != null) {
+            return present.loaded;
+        }
+        PackageTable table = new PackageTable(generation.getAsLong());
+        PackageTable existing = tables.putIfAbsent(name, table);
+        if (existing != null) {
+            return existing.loaded;
+        }
+        requestPage(name, table, 0);
+        return table.loaded;
+    }
+
+    /**
+     * @return completed when table of the package and tables of packages it uses are fetched
+     */
+    public CompletableFuture<Boolean> requestWithUsed(String packageName) {
+        String name = normalize(packageName);
+        return request(name).thenCompose(loaded -> {
+            PackageTable table = tables.get(name);
+            if (!loaded || table == null) {
+                return CompletableFuture.completedFuture(false);
+            }
+            CompletableFuture<?>[] used = table.used.stream().map(this::request).toArray(CompletableFuture[]::new);
+            return CompletableFuture.allOf(used).thenApply(ignored -> true);
+        });
+    }
+
+    /**
+     * @return true if table of the package is being fetched or was fetched
+     */
+    public boolean isRequested(String packageName) {
+        return tables.containsKey(normalize(packageName));
+    }
+
+    /**
+     * @return true if table of the package and tables of packages it uses are fetched
+     */
+    public boolean isLoaded(String packageName) {
+        PackageTable table = tables.get(normalize(packageName));
+        if (table == null || !table.isLoaded()) {
+            return false;
+        }
+        for (String used : table.used) {
+            PackageTable usedTable = tables.get(used);
+            if (usedTable == null || !usedTable.isLoaded()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param symbolName symbol name as written in source, converted like lisp reader does
+     * @return symbol accessible in the package, null if package table was not fetched or symbol is not known
+     */
+    public Entry find(String packageName, String symbolName) {
+        PackageTable table = tables.get(normalize(packageName));
+        if (table == null || !table.isLoaded()) {
+            return null;
+        }
+        String name = toSymbolName(symbolName);
+        Entry entry = table.symbols.get(name);
+        if (entry != null) {
+            return entry;
+        }
+        for (String used : table.used) {
+            PackageTable usedTable = tables.get(used);
+            if (usedTable != null && usedTable.isLoaded()) {
+                entry = usedTable.symbols.get(name);
+                if (entry != null && entry.external()) {
+                    return entry;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Forgets tables of created or deleted packages, they are fetched again on next reference.
+     */
+    public void forget(Collection<String> packageNames) {
+        for (String packageName : packageNames) {
+            String name = normalize(packageName);
+            tables.entrySet().removeIf(entry -> entry.getKey().equals(name) || name.equals(entry.getValue().name));
+        }
+    }
+
+    /**
+     * Drops entries of the symbol from tables requested before given generation, ie once it was redefined, so that
+     * they are not used anymore. Tables still being fetched could receive stale entry later and are left alone.
+     *
+     * @param symbolName symbol name as read by lisp
+     * @return false if some of the tables is still being fetched and nothing was dropped
+     */
+    public boolean forgetSymbol(String symbolName, long generation) {
+        for (PackageTable table : tables.values()) {
+            if (table.generation < generation && !table.loaded.isDone()) {
+                return false;
+            }
+        }
+        for (PackageTable table : tables.values()) {
+            if (table.generation < generation) {
+                table.symbols.remove(symbolName);
+            }
+        }
+        return true;
+    }
+
+    public void clear() {
+        tables.clear();
+    }
+
+    /**
+     * @return number of fetched symbols
+     */
+    public int size() {
+        return tables.values().stream().distinct().filter(PackageTable::isLoaded).mapToInt(table -> table.symbols.size()).sum();
+    }
+
+    /**
+     * Converts symbol name as written to name of the symbol, like reader with :upcase readtable case: characters
+     * between | and escaped by \ are kept, others are upper cased.
+     */
+    static String toSymbolName(String written) {
+        if (written.indexOf('|') < 0 && written.indexOf('\\') < 0) {
+            return written.toUpperCase();
+        }
+        StringBuilder name = new StringBuilder(written.length());
+        boolean quoted = false;
+        for (int i = 0; i < written.length(); i++) {
+            char c = written.charAt(i);
+            if (c == '|') {
+                quoted = !quoted;
+            } else if (c == '\\' && i + 1 < written.length()) {
+                name.append(written.charAt(++i));
+            } else {
+                name.append(quoted ? c : Character.toUpperCase(c));
+            }
+        }
+        return name.toString();
+    }
+
+    private static String normalize(String packageName) {
+        String name = StringUtils.stripStart(packageName, "#:");
+        return name.toUpperCase();
+    }
+
+    private void requestPage(String name, PackageTable table, int start) {
+        Runnable onFailure = () -> {
+            tables.remove(name, table);
+            table.loaded.complete(false);
+        };
+        try {
+            String code = String.format("(slt-core:package-symbols \"%s\" %d %d)",
+                    StringUtils.replace(name, "\"", "\\\""), start, PAGE_SIZE);
+            LispEnvironmentService service = LispEnvironmentService.getInstance(project);
+            service.sendToLisp(EvalAndGrab.eval(code, service.getGlobalPackage(), false, true,
+                    (result, stdout, parsed) -> {
+                        if (parsed.size() == 1 && parsed.get(0) instanceof LispContainer page
+                                && page.getItems().size() == 4) {
+                            readPage(name, table, start, page);
+                        } else {
+                            // no such package, until it is created
+                            table.loaded.complete(false);
+                        }
+                    })
+                    .whenFinished(() -> {
+                        if (!table.loaded.isDone() && table.fetched == start) {
+                            onFailure.run();
+                        }
+                    })
+                    .idempotent()
+                    .withPriority(RequestPriority.BACKGROUND)
+                    .withTimeout(PAGE_TIMEOUT_SECONDS, TimeUnit.SECONDS, onFailure)
+                    // page not done in a minute is stuck, ie looking up source location, and would keep its thread busy
+                    .interruptOnTimeout(), false, onFailure);
+        } catch (Exception e) {
+            log.debug(e.getMessage(), e);
+            onFailure.run();
+        }
+    }
+
+    private void readPage(String name, PackageTable table, int start, LispContainer page) {
+        List<LispElement> items = page.getItems();
+        table.name = ((LispString) items.get(0)).getValue().toUpperCase();
+        List<String> used = new ArrayList<>();
+        if (items.get(1) instanceof LispContainer usedPackages) {
+            for (LispElement element : usedPackages.getItems()) {
+                used.add(((LispString) element).getValue().toUpperCase());
+            }
+        }
+        table.used = used;
+        int total = ((LispInteger) items.get(2)).getValue().intValue();
+        int read = 0;
+        if (items.get(3) instanceof LispContainer symbols) {
+            for (LispElement element : symbols.getItems()) {
+                LispContainer symbol = (LispContainer) element;
+                List<LispElement> fields = symbol.getItems();
+                String symbolName = ((LispString) fields.get(0)).getValue();
+                boolean external = fields.get(1) instanceof LispSymbol status
+                        && ":EXTERNAL".equalsIgnoreCase(status.getValue());
+                SymbolBinding binding = fields.get(2) instanceof LispSymbol kind
+                        ? SltLispEnvironmentSymbolCache.toBinding(kind.getValue()) : SymbolBinding.NONE;
+                SourceLocation location = fields.get(3) instanceof LispContainer
+                        ? new SourceLocation(fields.get(3)) : new SourceLocation();
+                table.symbols.put(symbolName, new Entry(binding, location, external, table.generation));
+                ++read;
+            }
+        }
+        table.fetched = start + read;
+
+        if (read > 0 && table.fetched < total) {
+            requestPage(name, table, table.fetched);
+        } else {
+            tables.putIfAbsent(table.name, table);
+            for (String usedPackage : used) {
+                request(usedPackage);
+            }
+            table.loaded.complete(true);
+        }
+    }
+
+    /**
+     * @param generation generation of symbol cache when the table was requested
+     */
+    public record Entry(SymbolBinding binding, SourceLocation location, boolean external, long generation) {
+
+    }
+
+    private static class PackageTable {
+
+        private final long generation;
+        private final Map<String, Entry> symbols = new ConcurrentHashMap<>();
+        private final CompletableFuture<Boolean> loaded = new CompletableFuture<>();
+        private volatile String name;
+        private volatile List<String> used = Collections.emptyList();
+        private volatile int fetched;
+
+        private PackageTable(long generation) {
+            this.generation = generation;
+        }
+
+        private boolean isLoaded() {
+            return loaded.isDone() && Boolean.TRUE.equals(loaded.getNow(false));
+        }
+
+    }
+
+}
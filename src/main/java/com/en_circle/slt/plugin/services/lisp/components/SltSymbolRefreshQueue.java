@@ -0,0 +1,190 @@
+package com.en_circle.slt.plugin.services.lisp.components;
+
+import com.en_circle.slt.plugin.SymbolState;
+import com.en_circle.slt.plugin.swank.SlimeHistogram;
+
+import java.util.*;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Symbols waiting for analysis by lisp.
+ *
+ * Symbol already queued or being analyzed is not queued again. Taking blocks until there is work and lisp is running,
+ * then waits for the debounce period counted from the oldest queued symbol, so symbols found by single highlighting
+ * pass are sent in one batch. Full batch is taken right away.
+ */
+public class SltSymbolRefreshQueue {
+
+    private final int maxBatchSize;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final LinkedHashMap<SymbolState, Long> queued = new LinkedHashMap<>();
+    private final Set<SymbolState> inFlight = new HashSet<>();
+    private final SlimeHistogram batchSizes = new SlimeHistogram();
+    private final SlimeHistogram latency = new SlimeHistogram();
+    private boolean paused = true;
+    private boolean active = true;
+
+    public SltSymbolRefreshQueue(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * @return false if symbol was already queued or is being analyzed
+     */
+    public boolean offer(SymbolState state) {
+        lock.lock();
+        try {
+            if (!active || inFlight.contains(state) || queued.containsKey(state)) {
+                return false;
+            }
+            queued.put(state, System.nanoTime());
+            if (queued.size() == 1 || queued.size() == maxBatchSize) {
+                changed.signalAll();
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits for next batch. Returned symbols are in flight until {@link #completed(List)} is called.
+     *
+     * @return batch of at most maxBatchSize symbols, empty if queue was terminated or paused while debouncing
+     */
+    public List<QueuedSymbol> take(long debounceNanos) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (active && (paused || queued.isEmpty())) {
+                changed.await();
+            }
+            long deadline = queued.isEmpty() ? 0 : queued.values().iterator().next() + debounceNanos;
+            long remaining;
+            while (active && !paused && queued.size() < maxBatchSize && (remaining = deadline - System.nanoTime()) > 0) {
+                changed.awaitNanos(remaining);
+            }
+            if (!active || paused || queued.isEmpty()) {
+                return Collections.emptyList();
+            }
+
+            List<QueuedSymbol> batch = new ArrayList<>(Math.min(maxBatchSize, queued.size()));
+            Iterator<Map.Entry<SymbolState, Long>> iterator = queued.entrySet().iterator();
+            while (iterator.hasNext() && batch.size() < maxBatchSize) {
+                Map.Entry<SymbolState, Long> entry = iterator.next();
+                iterator.remove();
+                inFlight.add(entry.getKey());
+                batch.add(new QueuedSymbol(entry.getKey(), entry.getValue()));
+            }
+            batchSizes.record(batch.size());
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Marks batch as analyzed or failed, its symbols can be queued again.
+     */
+    public void completed(List<QueuedSymbol> batch) {
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            for (QueuedSymbol symbol : batch) {
+                inFlight.remove(symbol.state());
+                latency.record(now - symbol.enqueuedNanos());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops handing out batches, ie while lisp is not running. Queued symbols are kept.
+     */
+    public void pause() {
+        setPaused(true);
+    }
+
+    public void resume() {
+        setPaused(false);
+    }
+
+    private void setPaused(boolean paused) {
+        lock.lock();
+        try {
+            this.paused = paused;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            queued.clear();
+            inFlight.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wakes up waiting thread, no more batches are handed out.
+     */
+    public void terminate() {
+        lock.lock();
+        try {
+            active = false;
+            queued.clear();
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of symbols waiting to be taken
+     */
+    public int getDepth() {
+        lock.lock();
+        try {
+            return queued.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of symbols taken and not yet completed
+     */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return sizes of taken batches
+     */
+    public SlimeHistogram getBatchSizes() {
+        return batchSizes;
+    }
+
+    /**
+     * @return nanoseconds from queueing the symbol to completion of its batch
+     */
+    public SlimeHistogram getLatency() {
+        return latency;
+    }
+
+    public record QueuedSymbol(SymbolState state, long enqueuedNanos) {
+
+    }
+
+}
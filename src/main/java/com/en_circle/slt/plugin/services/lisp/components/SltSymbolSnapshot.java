@@ -0,0 +1,137 @@
+package com.en_circle.slt.plugin.services.lisp.components;
+
+import com.en_circle.slt.plugin.SymbolState;
+import com.en_circle.slt.plugin.SymbolState.SymbolBinding;
+import com.en_circle.slt.plugin.swank.components.SourceLocation;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Binary snapshot of analyzed symbols, so highlighting and navigation work right after IDE or lisp starts.
+ *
+ * File is header {@code SLTS version count} followed by entries of name, package name, symbol name, binding, flags,
+ * location and position. Strings are stored as length and UTF-8 bytes, length -1 for null. Documentation is not
+ * stored, only whether symbol has one. Snapshot of other version or damaged snapshot reads as empty.
+ */
+public class SltSymbolSnapshot {
+
+    private static final int MAGIC = 0x534c5453;
+    private static final int VERSION = 1;
+
+    private static final int HAS_DOCUMENTATION = 1;
+    private static final int PRECISE = 2;
+    private static final int FILE = 4;
+
+    /**
+     * Reads memory mapped snapshot.
+     *
+     * @return symbols marked as provisional, empty list if there is no valid snapshot
+     */
+    public static List<SymbolState> read(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return new ArrayList<>();
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(buffer);
+        }
+    }
+
+    private static List<SymbolState> read(ByteBuffer buffer) {
+        List<SymbolState> states = new ArrayList<>();
+        try {
+            if (buffer.remaining() < 12 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return states;
+            }
+            int count = buffer.getInt();
+            SymbolBinding[] bindings = SymbolBinding.values();
+            for (int i = 0; i < count; i++) {
+                String name = readString(buffer);
+                String packageName = readString(buffer);
+                String symbolName = readString(buffer);
+                int binding = buffer.get();
+                int flags = buffer.get();
+                String location = readString(buffer);
+                int position = buffer.getInt();
+                if (name == null || symbolName == null || location == null || binding < 0 || binding >= bindings.length) {
+                    return new ArrayList<>();
+                }
+
+                SymbolState state = new SymbolState(name, packageName, symbolName);
+                state.binding = bindings[binding];
+                state.hasDocumentation = (flags & HAS_DOCUMENTATION) != 0;
+                state.location = new SourceLocation(location, position, (flags & PRECISE) != 0, (flags & FILE) != 0);
+                state.provisional = true;
+                states.add(state);
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            // truncated by crash while writing
+            return new ArrayList<>();
+        }
+        return states;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] data = new byte[length];
+        buffer.get(data);
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes snapshot into temporary file first, so snapshot being read is never partially written.
+     */
+    public static void write(Path file, Collection<SymbolState> states) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(states.size());
+            for (SymbolState state : states) {
+                writeString(output, state.name);
+                writeString(output, state.packageName);
+                writeString(output, state.symbolName);
+                output.writeByte(state.binding.ordinal());
+                SourceLocation location = state.location;
+                int flags = (state.hasDocumentation ? HAS_DOCUMENTATION : 0) | (location.isPrecise() ? PRECISE : 0)
+                        | (location.isFile() ? FILE : 0);
+                output.writeByte(flags);
+                writeString(output, location.getLocation());
+                output.writeInt(location.getPosition());
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+        } else {
+            byte[] data = value.getBytes(StandardCharsets.UTF_8);
+            output.writeInt(data.length);
+            output.write(data);
+        }
+    }
+
+}
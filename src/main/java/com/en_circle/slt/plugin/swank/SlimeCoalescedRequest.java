@@ -0,0 +1,137 @@
+package com.en_circle.slt.plugin.swank;
+
+import com.en_circle.slt.plugin.lisp.lisp.LispContainer;
+import com.intellij.openapi.project.Project;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Single round trip shared by identical requests, see {@link SlimeRequest#getCoalescingKey()}.
+ *
+ * Packet is created by the first request, reply and timeout are delivered to all requests attached before the call
+ * completed, each in isolation so that failing callback does not take the reply from the others. Once completed, call
+ * is removed from registry and no more requests can attach to it.
+ *
+ * Call waits for the longest timeout of its participants, no timeout if any of them waits indefinitely. Its priority
+ * is the one its window slot was taken with, request with higher priority does not attach and is sent on its own.
+ */
+class SlimeCoalescedRequest extends SlimeRequest {
+    private static final Logger log = LoggerFactory.getLogger(SlimeCoalescedRequest.class);
+
+    private final String key;
+    private final SlimeRequest first;
+    private final Map<String, SlimeCoalescedRequest> registry;
+    private final List<SlimeRequest> participants = new ArrayList<>();
+    private volatile long timeoutMillis;
+    private boolean completed;
+
+    SlimeCoalescedRequest(String key, SlimeRequest first, Map<String, SlimeCoalescedRequest> registry) {
+        this.key = key;
+        this.first = first;
+        this.registry = registry;
+        participants.add(first);
+        calledNanos = first.calledNanos;
+        timeoutMillis = first.getTimeoutMillis();
+        withPriority(first.getPriority());
+    }
+
+    /**
+     * @return false if call already completed or request has higher priority than the call
+     */
+    synchronized boolean attach(SlimeRequest request) {
+        if (completed || request.getPriority().ordinal() < getPriority().ordinal()) {
+            return false;
+        }
+        participants.add(request);
+        long timeout = request.getTimeoutMillis();
+        if (timeoutMillis != 0 && (timeout == 0 || timeout > timeoutMillis)) {
+            timeoutMillis = timeout;
+        }
+        return true;
+    }
+
+    /**
+     * @return true if request was attached to this call
+     */
+    synchronized boolean detach(SlimeRequest request) {
+        return participants.remove(request);
+    }
+
+    synchronized boolean hasParticipants() {
+        return !participants.isEmpty();
+    }
+
+    private List<SlimeRequest> complete() {
+        List<SlimeRequest> attached;
+        synchronized (this) {
+            completed = true;
+            attached = new ArrayList<>(participants);
+            participants.clear();
+        }
+        registry.remove(key, this);
+        return attached;
+    }
+
+    /**
+     * Completes the call without reply, ie when connection was closed.
+     */
+    void drop() {
+        complete().forEach(request -> deliver(request, null));
+    }
+
+    @Override
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    @Override
+    String getTypeName() {
+        return first.getTypeName();
+    }
+
+    @Override
+    public SwankChannelPool.Channel getChannel() {
+        return first.getChannel();
+    }
+
+    @Override
+    public boolean isIdempotent() {
+        return first.isIdempotent();
+    }
+
+    @Override
+    public SwankPacket createPacket(long requestId, Project project) {
+        return first.createPacket(requestId, project);
+    }
+
+    @Override
+    public void processReply(LispContainer data) {
+        complete().forEach(request -> deliver(request, participant -> participant.processReply(data)));
+    }
+
+    @Override
+    public void onTimeout() {
+        complete().forEach(request -> deliver(request, SlimeRequest::onTimeout));
+    }
+
+    private static void deliver(SlimeRequest request, Consumer<SlimeRequest> action) {
+        try {
+            if (action != null) {
+                action.accept(request);
+            }
+        } catch (Exception e) {
+            log.warn("Coalesced request " + request.getTypeName() + " failed to process reply", e);
+        }
+        try {
+            request.onFinished();
+        } catch (Exception e) {
+            log.warn("Coalesced request " + request.getTypeName() + " failed to finish", e);
+        }
+    }
+
+}
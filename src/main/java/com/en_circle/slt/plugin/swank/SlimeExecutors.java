@@ -0,0 +1,79 @@
+package com.en_circle.slt.plugin.swank;
+
+import com.intellij.openapi.application.ApplicationManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Executors for swank tasks that mostly wait - resolving replies whose callbacks take read action and sending
+ * requests that wait for free slot in request window.
+ *
+ * Virtual threads are only used when runtime is Java 21 or newer, they are looked up reflectively since plugin is
+ * compiled for Java 17. IDE builds supported by the plugin (222 - 231) run on Java 17, so there tasks always run on
+ * IDE pooled threads, virtual threads are only available to benchmarks and newer runtimes.
+ */
+public class SlimeExecutors {
+    private static final Logger log = LoggerFactory.getLogger(SlimeExecutors.class);
+
+    private static final int VIRTUAL_THREADS_FEATURE = 21;
+    private static final ExecutorService VIRTUAL = createVirtualExecutor();
+
+    private static final Executor POOLED = command -> ApplicationManager.getApplication().executeOnPooledThread(command);
+
+    private static ExecutorService createVirtualExecutor() {
+        if (Runtime.version().feature() < VIRTUAL_THREADS_FEATURE) {
+            // Java 19 and 20 only have virtual threads as preview
+            log.debug("Virtual threads not available on Java " + Runtime.version().feature());
+            return null;
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            MethodHandle ofVirtual = lookup.findStatic(Thread.class, "ofVirtual",
+                    MethodType.methodType(Class.forName("java.lang.Thread$Builder$OfVirtual")));
+            MethodHandle name = lookup.findVirtual(builderClass, "name",
+                    MethodType.methodType(builderClass, String.class, long.class));
+            MethodHandle factory = lookup.findVirtual(builderClass, "factory", MethodType.methodType(ThreadFactory.class));
+            MethodHandle perTask = lookup.findStatic(Executors.class, "newThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class, ThreadFactory.class));
+
+            Object builder = name.invoke(ofVirtual.invoke(), "SWANK Virtual ", 0L);
+            ThreadFactory threadFactory = (ThreadFactory) factory.invoke(builder);
+            return (ExecutorService) perTask.invoke(threadFactory);
+        } catch (Throwable e) {
+            log.debug("Virtual threads not available: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * @return true if runtime can run tasks on virtual threads
+     */
+    public static boolean isVirtualThreadsSupported() {
+        return VIRTUAL != null;
+    }
+
+    /**
+     * @return executor starting virtual thread per task, null if not supported
+     */
+    public static ExecutorService getVirtualExecutor() {
+        return VIRTUAL;
+    }
+
+    /**
+     * @param virtualThreads prefer virtual threads if supported by the runtime
+     * @return executor for tasks that block, virtual thread per task or IDE pooled thread
+     */
+    public static Executor getBlockingExecutor(boolean virtualThreads) {
+        return virtualThreads && VIRTUAL != null ? VIRTUAL : POOLED;
+    }
+
+}
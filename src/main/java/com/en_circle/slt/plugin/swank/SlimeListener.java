@@ -1,255 +1,489 @@
 package com.en_circle.slt.plugin.swank;
 
-import com.en_circle.slt.plugin.SltCommonLispFileType;
-import com.en_circle.slt.plugin.SltCommonLispLanguage;
-import com.en_circle.slt.plugin.SltCommonLispParserDefinition;
 import com.en_circle.slt.plugin.lisp.lisp.*;
-import com.en_circle.slt.plugin.lisp.psi.LispCoreProjectEnvironment;
 import com.en_circle.slt.plugin.services.lisp.LispEnvironmentService;
+import com.en_circle.slt.plugin.swank.SlimePendingRequests.Pending;
+import com.en_circle.slt.plugin.swank.SwankChannelPool.Channel;
 import com.en_circle.slt.plugin.swank.debug.SltDebugInfo;
-import com.en_circle.slt.plugin.swank.requests.*;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.project.Project;
-import com.intellij.psi.PsiFile;
-import com.intellij.psi.PsiFileFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.math.BigInteger;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
-public class SlimeListener implements SwankClient.SwankReply {
+public class SlimeListener implements SwankChannelPool.ChannelListener, AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(SlimeListener.class);
 
-    private static BigInteger rpcIdentifier = BigInteger.ZERO;
+    private static final AtomicLong rpcIdentifier = new AtomicLong();
+    private static final long REAPER_PERIOD_MS = 250;
+    private static final ScheduledExecutorService reaper = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "SWANK Request Reaper");
+        thread.setDaemon(true);
+        return thread;
+    });
 
-    public static synchronized BigInteger nextRpc() {
-        BigInteger next = rpcIdentifier.add(BigInteger.ONE);
-        rpcIdentifier = next;
-        return next;
+    public static long nextRpc() {
+        return rpcIdentifier.incrementAndGet();
     }
 
     private final Project project;
     private final boolean fromUi;
-    private final Map<BigInteger, SlimeRequest> requests = Collections.synchronizedMap(new HashMap<>());
+    private final SlimePendingRequests requests;
     private final Consumer<Exception> onReadFailure;
     private final RequestResponseLogger logger;
     private final DebugInterface debugInterface;
+    private final Map<Channel, SlimeRequestWindow> requestWindows = new EnumMap<>(Channel.class);
+    private final Map<String, ReplyHandler> eventHandlers = new HashMap<>();
+    private final SlimeRequestStats stats = new SlimeRequestStats();
+    private final SlimeRequestMetrics metrics = new SlimeRequestMetrics();
+    private final Map<String, SlimeCoalescedRequest> coalesced = new ConcurrentHashMap<>();
+    // lost clients whose pending requests were already resent or failed, mapped to the client that replaced them or
+    // to empty if reconnect failed
+    private final Map<SwankClient, Optional<SwankClient>> replacedClients =
+            Collections.synchronizedMap(new WeakHashMap<>());
+    private final ScheduledFuture<?> reaperTask;
+    private volatile Executor dispatchExecutor;
 
     public SlimeListener(Project project, boolean fromUi, Consumer<Exception> onReadFailure, RequestResponseLogger logger, DebugInterface debugInterface) {
+        this(project, fromUi, onReadFailure, logger, debugInterface, SlimeRequestWindow.DEFAULT_SIZE);
+    }
+
+    public SlimeListener(Project project, boolean fromUi, Consumer<Exception> onReadFailure, RequestResponseLogger logger,
+                         DebugInterface debugInterface, int requestWindowSize) {
+        this(project, fromUi, onReadFailure, logger, debugInterface, requestWindowSize,
+                SlimeRequestWindow.DEFAULT_BACKGROUND_HOLDOFF_MS);
+    }
+
+    public SlimeListener(Project project, boolean fromUi, Consumer<Exception> onReadFailure, RequestResponseLogger logger,
+                         DebugInterface debugInterface, int requestWindowSize, long backgroundHoldoffMillis) {
         this.project = project;
         this.fromUi = fromUi;
         this.onReadFailure = onReadFailure;
         this.logger = logger;
         this.debugInterface = debugInterface;
+        // each connection has its own window, so that long running evaluations in REPL can't starve the editor
+        AtomicLong lastInteractive = new AtomicLong(System.nanoTime()
+                - TimeUnit.MILLISECONDS.toNanos(backgroundHoldoffMillis));
+        for (Channel channel : Channel.values()) {
+            requestWindows.put(channel,
+                    new SlimeRequestWindow(requestWindowSize, backgroundHoldoffMillis, lastInteractive));
+        }
+        this.requests = new SlimePendingRequests(requestWindows.get(Channel.REPL).getSize() * requestWindows.size());
+
+        eventHandlers.put(":return", this::processReturn);
+        eventHandlers.put(":debug", reply -> processDebug(reply.getForm()));
+        eventHandlers.put(":debug-return", this::processDebugReturn);
+        eventHandlers.put(":debug-activate", this::processDebugActivate);
+        eventHandlers.put(":indentation-update", reply -> processIndentation(reply.getForm()));
+        eventHandlers.put(":slt-definitions-changed", reply -> processDefinitions(reply.getForm()));
+        eventHandlers.put(":slt-request-thread", this::processRequestThread);
+
+        reaperTask = reaper.scheduleWithFixedDelay(this::reapExpired, REAPER_PERIOD_MS, REAPER_PERIOD_MS, TimeUnit.MILLISECONDS);
     }
 
-    public void call(SlimeRequest request, SwankClient client) {
-        BigInteger requestId = request.getRequestId() == null ? nextRpc() : request.getRequestId();
-        requests.put(requestId, request);
-        SwankPacket packet = request.createPacket(requestId, project);
-        if (logger != null) {
-            logger.logRequest(packet.getSentData());
+    /**
+     * Sends request, waiting for a free slot in request window if too many requests are in flight.
+     *
+     * @throws java.util.concurrent.CancellationException if background request was cancelled while waiting
+     */
+    public void call(SlimeRequest request, SwankClient client) throws InterruptedException {
+        request.calledNanos = System.nanoTime();
+        if (attachToInFlight(request)) {
+            return;
         }
-        client.swankSend(packet);
+        getRequestWindow(request.getChannel()).acquire(request.getPriority());
+        sendOrAttach(request, client);
     }
 
-    @Override
-    public void onSwankMessage(SwankPacket packet) {
-        String data = packet.getSentData();
-
-        if (fromUi) {
-            ApplicationManager.getApplication().executeOnPooledThread(() ->
-                    ApplicationManager.getApplication().runReadAction(() -> resolve(data)));
-        } else {
-            resolve(data);
+    /**
+     * Sends request only if slot in request window becomes free within the timeout.
+     *
+     * @return false if request was not sent
+     */
+    public boolean tryCall(SlimeRequest request, SwankClient client, long timeout, TimeUnit unit) throws InterruptedException {
+        request.calledNanos = System.nanoTime();
+        if (attachToInFlight(request)) {
+            return true;
+        }
+        if (!getRequestWindow(request.getChannel()).tryAcquire(request.getPriority(), timeout, unit)) {
+            return false;
         }
+        sendOrAttach(request, client);
+        return true;
     }
 
-    @Override
-    public void onReadError(Exception e) {
+    /**
+     * Resolves replies on given executor instead of the selector thread, or IDE pooled thread when listener was
+     * created from ui. Set before the first request is sent.
+     */
+    public void setDispatchExecutor(Executor dispatchExecutor) {
+        this.dispatchExecutor = dispatchExecutor;
+    }
 
+    public SlimeRequestWindow getRequestWindow(Channel channel) {
+        return requestWindows.get(channel);
     }
 
-    private void resolve(String data) {
-        if (logger != null) {
-            logger.logResponse(data);
-        }
+    /**
+     * Returns window slot of the request, to the window of the channel it was acquired from.
+     */
+    private void release(SlimeRequest request) {
+        getRequestWindow(request.getChannel()).release(request.getPriority());
+    }
 
-        List<LispElement> elements = parse(data);
-        if (elements.size() == 1) {
-            LispElement element = elements.get(0);
-            if (element instanceof LispContainer reply) {
-                if (isReturn(reply)) {
-                    processReturn(reply);
-                } else if (isDebug(reply)) {
-                    processDebug(reply);
-                } else if (isDebugReturn(reply)) {
-                    processDebugReturn(reply);
-                } else if (isDebugActivate(reply)) {
-                    processDebugActivate(reply);
-                } else if (isIndentation(reply)) {
-                    LispEnvironmentService.getInstance(project).updateIndentation(reply.getItems().get(1));
-                }
+    public SlimeRequestStats getStats() {
+        return stats;
+    }
+
+    public SlimeRequestMetrics getMetrics() {
+        return metrics;
+    }
+
+    public int getPendingCount() {
+        return requests.size();
+    }
+
+    /**
+     * Stops waiting for reply of the request. Its reply, if it ever comes, is ignored.
+     *
+     * @param interrupt also interrupt lisp worker thread of the request with :emacs-interrupt, only done for
+     *                  {@link SlimeRequest#interruptible()} requests whose thread is known
+     * @return false if request was not pending
+     */
+    public boolean cancel(SlimeRequest request, boolean interrupt) {
+        String key = request.getCoalescingKey();
+        SlimeCoalescedRequest call = key == null ? null : coalesced.get(key);
+        if (call != null && call.detach(request)) {
+            if (!call.hasParticipants() && requests.remove(call) != null) {
+                release(call);
+                // requests that attached in the meantime will not get their reply
+                call.onTimeout();
             }
+            request.onFinished();
+            return true;
         }
-    }
 
-    private List<LispElement> parse(String data) {
-        PsiFile source;
-        if (project == null) {
-            LispCoreProjectEnvironment projectEnvironment = new LispCoreProjectEnvironment();
-            projectEnvironment.getEnvironment()
-                    .registerParserDefinition(SltCommonLispLanguage.INSTANCE, new SltCommonLispParserDefinition());
-            PsiFileFactory factory = PsiFileFactory.getInstance(projectEnvironment.getProject());
-            source = factory.createFileFromText(UUID.randomUUID() + "swank-reply.cl", SltCommonLispFileType.INSTANCE, data);
-        } else {
-            PsiFileFactory factory = PsiFileFactory.getInstance(project);
-            source = factory.createFileFromText(UUID.randomUUID() + "swank-reply.cl", SltCommonLispFileType.INSTANCE, data);
+        Pending pending = requests.remove(request);
+        if (pending == null) {
+            return false;
+        }
+        release(request);
+        if (interrupt) {
+            interrupt(pending);
         }
+        request.onFinished();
+        return true;
+    }
 
-        return LispUtils.convertAst(source);
+    /**
+     * Drops background requests that are still waiting to be sent.
+     */
+    public void cancelBackgroundRequests() {
+        requestWindows.values().forEach(SlimeRequestWindow::cancelBackground);
     }
 
-    private boolean isReturn(LispContainer reply) {
-        return reply.getItems().size() > 0 &&
-                reply.getItems().get(0) instanceof LispSymbol &&
-                ":return".equals(((LispSymbol) reply.getItems().get(0)).getValue());
+    private boolean attachToInFlight(SlimeRequest request) {
+        String key = request.getCoalescingKey();
+        if (key == null) {
+            return false;
+        }
+        SlimeCoalescedRequest call = coalesced.get(key);
+        if (call != null && call.attach(request)) {
+            stats.coalesced();
+            return true;
+        }
+        return false;
     }
 
-    private void processReturn(LispContainer reply) {
-        LispInteger replyId = (LispInteger) reply.getItems().get(2);
-        try {
-            SlimeRequest request = requests.get(replyId.getValue());
-            if (request instanceof Eval eval) {
-                eval.processReply((LispContainer) reply.getItems().get(1));
-            }
+    /**
+     * Sends request with already acquired window slot, unless identical request got in flight in the meantime.
+     */
+    private void sendOrAttach(SlimeRequest request, SwankClient client) {
+        String key = request.getCoalescingKey();
+        if (key == null) {
+            send(request, client);
+            return;
+        }
 
-            if (request instanceof EvalAndGrab evalAndGrab) {
-                evalAndGrab.processReply((LispContainer) reply.getItems().get(1), this::parse);
+        while (true) {
+            SlimeCoalescedRequest call = new SlimeCoalescedRequest(key, request, coalesced);
+            SlimeCoalescedRequest existing = coalesced.putIfAbsent(key, call);
+            if (existing == null) {
+                send(call, client);
+                return;
             }
-
-            if (request instanceof InvokeNthRestart restart) {
-                restart.processReply((LispContainer) reply.getItems().get(1));
+            if (existing.attach(request)) {
+                release(request);
+                stats.coalesced();
+                return;
             }
+            // existing call completed but was not yet unregistered, or has lower priority than the request, new
+            // call takes its place in registry
+            coalesced.remove(key, existing);
+        }
+    }
 
-            if (request instanceof FrameLocalsAndCatchTags frames) {
-                frames.processReply((LispContainer) reply.getItems().get(1));
+    private void send(SlimeRequest request, SwankClient client) {
+        if (!client.isAlive() && !request.isIdempotent()) {
+            // channel is being reconnected, request could not be replayed
+            fail(request);
+            return;
+        }
+        long requestId = request.getRequestId() == 0 ? nextRpc() : request.getRequestId();
+        requests.put(requestId, request, client);
+        SwankPacket packet = request.createPacket(requestId, project);
+        if (logger != null) {
+            logger.logRequest(request.getTypeName(), requestId, packet);
+        }
+        request.requestBytes = packet.getLength();
+        request.sentNanos = System.nanoTime();
+        if (request.isInterruptible()) {
+            SwankPacket track = SwankPacket.trackRequestThread(requestId);
+            if (logger != null) {
+                logger.logRequest(":slt-track-request", requestId, track);
             }
+            client.swankSend(track);
+        }
+        if (!client.swankSend(packet) && !request.isIdempotent() && requests.remove(requestId) != null) {
+            // connection was lost meanwhile, idempotent request stays pending to be replayed
+            fail(request);
+            return;
+        }
 
-            if (request instanceof InspectFrameVar frameVar) {
-                frameVar.processReply((LispContainer) reply.getItems().get(1));
+        Optional<SwankClient> replacement = replacedClients.get(client);
+        if (replacement != null && requests.remove(requestId) != null) {
+            // client was replaced after its pending requests were resent, this one missed the replay
+            if (replacement.isPresent() && request.isIdempotent()) {
+                stats.replayed();
+                send(request, replacement.get());
+            } else {
+                fail(request);
             }
+        }
+    }
 
-            if (request instanceof InspectNth inspectNth) {
-                inspectNth.processReply((LispContainer) reply.getItems().get(1));
+    private void reapExpired() {
+        requests.reapExpired(System.nanoTime(), pending -> {
+            SlimeRequest request = pending.request();
+            release(request);
+            stats.timedOut(request.isInterruptOnTimeout());
+            if (request.isInterruptOnTimeout()) {
+                interrupt(pending);
             }
-
-            if (request instanceof InspectorAction action) {
-                action.processReply((LispContainer) reply.getItems().get(1));
+            try {
+                request.onTimeout();
+                request.onFinished();
+            } catch (Exception e) {
+                log.warn(e.getMessage(), e);
             }
+        });
+    }
 
-            if (request instanceof StepperAction action) {
-                action.processReply((LispContainer) reply.getItems().get(1));
-            }
+    /**
+     * Interrupts lisp thread the request runs in. Thread is not known until lisp reports it, request that did not
+     * start yet is not interrupted.
+     */
+    private void interrupt(Pending pending) {
+        BigInteger thread = pending.request().thread;
+        if (pending.client() == null || thread == null) {
+            log.debug("Thread of " + pending.request().getTypeName() + " " + pending.id() + " is not known");
+            return;
+        }
+        SwankPacket packet = SwankPacket.emacsInterrupt(thread);
+        if (logger != null) {
+            logger.logRequest(":emacs-interrupt", pending.id(), packet);
+        }
+        pending.client().swankSend(packet);
+    }
 
-            if (request instanceof MacroexpandAll macroexpandAll) {
-                macroexpandAll.processReply((LispContainer) reply.getItems().get(1));
+    /**
+     * Stops reaping and drops requests that will never get their reply.
+     */
+    @Override
+    public void close() {
+        reaperTask.cancel(false);
+        int leaked = requests.drain(pending -> {
+            release(pending.request());
+            if (pending.request() instanceof SlimeCoalescedRequest call) {
+                call.drop();
+            } else {
+                pending.request().onFinished();
             }
+        });
+        stats.leaked(leaked);
+    }
 
-            if (request instanceof Macroexpand macroexpand) {
-                macroexpand.processReply((LispContainer) reply.getItems().get(1));
+    @Override
+    public void onSwankMessage(SwankPacket packet) {
+        Executor executor = dispatchExecutor;
+        if (fromUi) {
+            Runnable task = () -> ApplicationManager.getApplication().runReadAction(() -> resolve(packet));
+            if (executor == null) {
+                ApplicationManager.getApplication().executeOnPooledThread(task);
+            } else {
+                executor.execute(task);
             }
+        } else if (executor != null) {
+            executor.execute(() -> resolve(packet));
+        } else {
+            resolve(packet);
+        }
+    }
 
-            if (request instanceof Macroexpand1 macroexpand1) {
-                macroexpand1.processReply((LispContainer) reply.getItems().get(1));
-            }
+    @Override
+    public void onReadError(Exception e) {
 
-            if (request instanceof SimpleCompletion simpleCompletion) {
-                simpleCompletion.processReply((LispContainer) reply.getItems().get(1));
-            }
+    }
 
-            if (request instanceof Xrefs xrefs) {
-                xrefs.processReply((LispContainer) reply.getItems().get(1));
-            }
+    /**
+     * Fails requests pending on lost connection that can not be sent again, idempotent ones wait for reconnect.
+     */
+    @Override
+    public void onDisconnected(SwankClient client, Exception cause) {
+        failPending(pending -> pending.client() == client && !pending.request().isIdempotent());
+    }
 
-            if (request instanceof CompleteSearch completeSearch) {
-                completeSearch.processReply((LispContainer) reply.getItems().get(1));
+    /**
+     * Resends idempotent requests pending on lost connection over the new one, with new continuation ids. Their
+     * window slots stay acquired.
+     */
+    @Override
+    public void onReconnected(SwankClient lost, SwankClient client) {
+        // recorded before draining, so that request registered with lost client afterwards is resent by send
+        replacedClients.put(lost, Optional.of(client));
+        List<Pending> lostRequests = new ArrayList<>();
+        requests.drain(pending -> pending.client() == lost, lostRequests::add);
+        for (Pending pending : lostRequests) {
+            SlimeRequest request = pending.request();
+            if (request.isIdempotent()) {
+                stats.replayed();
+                send(request, client);
+            } else {
+                fail(request);
             }
+        }
+    }
 
-            if (request instanceof ListThreads listThreads) {
-                listThreads.processReply((LispContainer) reply.getItems().get(1));
-            }
+    @Override
+    public void onReconnectFailed(SwankClient lost) {
+        replacedClients.put(lost, Optional.empty());
+        failPending(pending -> pending.client() == lost);
+    }
 
-            if (request instanceof KillThread killThread) {
-                killThread.processReply((LispContainer) reply.getItems().get(1));
-            }
+    private void failPending(Predicate<Pending> filter) {
+        requests.drain(filter, pending -> fail(pending.request()));
+    }
 
-            if (request instanceof SuspendThread suspendThread) {
-                suspendThread.processReply((LispContainer) reply.getItems().get(1));
-            }
+    private void fail(SlimeRequest request) {
+        release(request);
+        stats.disconnected();
+        try {
+            request.onTimeout();
+            request.onFinished();
+        } catch (Exception e) {
+            log.warn(e.getMessage(), e);
+        }
+    }
 
-            if (request instanceof Argslist argslist) {
-                argslist.processReply((LispContainer) reply.getItems().get(1));
+    private void resolve(SwankPacket packet) {
+        SwankEnvelope envelope = SwankEnvelope.scan(packet);
+        if (logger != null) {
+            logResponse(envelope);
+        }
+        if (envelope.getEvent() != null) {
+            ReplyHandler handler = eventHandlers.get(envelope.getEvent());
+            if (handler != null) {
+                handler.accept(envelope);
             }
+        }
+    }
 
-            if (request instanceof InspectSymbol action) {
-                action.processReply((LispContainer) reply.getItems().get(1));
+    private void logResponse(SwankEnvelope envelope) {
+        String type = envelope.getEvent() == null ? "?" : envelope.getEvent();
+        long replyId = Math.max(0, envelope.getContinuation());
+        if (replyId > 0) {
+            SlimeRequest request = requests.get(replyId);
+            if (request != null) {
+                type = request.getTypeName();
             }
+        }
+        logger.logResponse(type, replyId, envelope.getPacket());
+    }
+
+    private void processReturn(SwankEnvelope reply) {
+        SlimeRequest request = requests.remove(reply.getContinuation());
+        if (request == null) {
+            // cancelled or timed out, reply is dropped without parsing
+            stats.lateReply();
+            return;
+        }
+        long callbackStart = System.nanoTime();
+        try {
+            request.processReply((LispContainer) reply.getForm().getItems().get(1));
         } finally {
-            requests.remove(replyId.getValue());
+            release(request);
+            long completed = System.nanoTime();
+            metrics.record(request, reply.getPacket(), reply.getParseNanos(),
+                    completed - callbackStart - reply.getParseNanos(), completed);
+            request.onFinished();
         }
     }
 
-    private boolean isDebug(LispContainer reply) {
-        return reply.getItems().size() > 0 &&
-                reply.getItems().get(0) instanceof LispSymbol &&
-                ":debug".equals(((LispSymbol) reply.getItems().get(0)).getValue());
+    private void processRequestThread(SwankEnvelope reply) {
+        SlimeRequest request = requests.get(reply.getContinuation());
+        if (request != null) {
+            request.thread = reply.getThread();
+        }
     }
 
     private void processDebug(LispContainer reply) {
-        SltDebugInfo debugInfo = new SltDebugInfo(reply);
         if (debugInterface != null) {
+            SltDebugInfo debugInfo = new SltDebugInfo(reply);
             debugInterface.onDebugCreate(debugInfo);
         }
     }
 
-    private void processDebugReturn(LispContainer reply) {
+    private void processDebugReturn(SwankEnvelope reply) {
         if (debugInterface != null) {
-            BigInteger threadId = ((LispInteger) reply.getItems().get(1)).getValue();
-            BigInteger level = ((LispInteger) reply.getItems().get(1)).getValue();
-            debugInterface.onDebugReturn(threadId, level);
+            debugInterface.onDebugReturn(reply.getThread(), reply.getLevel());
         }
     }
 
-    private void processDebugActivate(LispContainer reply) {
+    private void processDebugActivate(SwankEnvelope reply) {
         if (debugInterface != null) {
-            BigInteger threadId = ((LispInteger) reply.getItems().get(1)).getValue();
-            BigInteger level = ((LispInteger) reply.getItems().get(1)).getValue();
-            debugInterface.onDebugActivate(threadId, level);
+            debugInterface.onDebugActivate(reply.getThread(), reply.getLevel());
         }
     }
 
-    private boolean isDebugReturn(LispContainer reply) {
-        return reply.getItems().size() > 0 &&
-                reply.getItems().get(0) instanceof LispSymbol &&
-                ":debug-return".equals(((LispSymbol) reply.getItems().get(0)).getValue());
+    private void processIndentation(LispContainer reply) {
+        LispEnvironmentService.getInstance(project).updateIndentation(reply.getItems().get(1));
     }
 
-    private boolean isDebugActivate(LispContainer reply) {
-        return reply.getItems().size() > 0 &&
-                reply.getItems().get(0) instanceof LispSymbol &&
-                ":debug-activate".equals(((LispSymbol) reply.getItems().get(0)).getValue());
+    private void processDefinitions(LispContainer reply) {
+        LispEnvironmentService.getInstance(project).updateDefinitions(reply);
     }
 
-    private boolean isIndentation(LispContainer reply) {
-        return reply.getItems().size() > 0 &&
-                reply.getItems().get(0) instanceof LispSymbol &&
-                ":indentation-update".equals(((LispSymbol) reply.getItems().get(0)).getValue());
+    private interface ReplyHandler {
+
+        void accept(SwankEnvelope reply);
+
     }
 
     public interface RequestResponseLogger {
 
-        void logRequest(String request);
-        void logResponse(String response);
+        void logRequest(String type, long requestId, SwankPacket request);
+        void logResponse(String type, long requestId, SwankPacket response);
 
     }
 
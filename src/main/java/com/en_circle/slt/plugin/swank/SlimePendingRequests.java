@@ -0,0 +1,186 @@
+package com.en_circle.slt.plugin.swank;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Requests waiting for their :return, keyed by continuation id.
+ *
+ * Open addressing table with primitive long keys over atomic slots, put, get and remove neither lock nor box.
+ * Request is stored in one of {@link #PROBE_LIMIT} slots following the home slot of its id, so lookup never probes
+ * more than that, even for ids that are not pending. Removed entries free their slot right away, there are no
+ * tombstones to accumulate. Continuation ids are sequential and {@link SlimeRequestWindow} keeps the table sparse, so
+ * home slot is almost always free. Request that finds no free slot, ie when more requests are pending than the table
+ * was sized for, goes to an overflow map.
+ *
+ * Entries store when request was sent, requests whose timeout passed since are removed by
+ * {@link #reapExpired(long, Consumer)}. Timeout is read from the request on every check, so it can still be extended
+ * while request is pending.
+ */
+public class SlimePendingRequests {
+
+    static final int PROBE_LIMIT = 8;
+
+    private final AtomicReferenceArray<Pending> slots;
+    private final int mask;
+    private final Map<Long, Pending> overflow = new ConcurrentHashMap<>();
+    private final AtomicInteger overflowSize = new AtomicInteger();
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * @param maxInFlight expected maximum number of requests pending at the same time
+     */
+    public SlimePendingRequests(int maxInFlight) {
+        int capacity = Integer.highestOneBit(Math.max(16, maxInFlight * 4) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    public void put(long id, SlimeRequest request, SwankClient client) {
+        Pending entry = new Pending(id, request, client, System.nanoTime());
+        int home = (int) id & mask;
+        for (int i = 0; i < PROBE_LIMIT; i++) {
+            int ix = (home + i) & mask;
+            if (slots.get(ix) == null && slots.compareAndSet(ix, null, entry)) {
+                size.incrementAndGet();
+                return;
+            }
+        }
+        overflowSize.incrementAndGet();
+        overflow.put(id, entry);
+        size.incrementAndGet();
+    }
+
+    public SlimeRequest get(long id) {
+        int ix = find(id);
+        if (ix >= 0) {
+            Pending entry = slots.get(ix);
+            if (entry != null && entry.id == id) {
+                return entry.request;
+            }
+        }
+        if (overflowSize.get() > 0) {
+            Pending entry = overflow.get(id);
+            return entry == null ? null : entry.request;
+        }
+        return null;
+    }
+
+    public SlimeRequest remove(long id) {
+        int ix = find(id);
+        if (ix >= 0) {
+            Pending entry = slots.get(ix);
+            if (entry != null && entry.id == id && slots.compareAndSet(ix, entry, null)) {
+                size.decrementAndGet();
+                return entry.request;
+            }
+        }
+        if (overflowSize.get() > 0) {
+            Pending entry = overflow.remove(id);
+            if (entry != null) {
+                overflowSize.decrementAndGet();
+                size.decrementAndGet();
+                return entry.request;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes request by identity, slow path used for cancellation.
+     *
+     * @return removed entry or null if request was not pending
+     */
+    public Pending remove(SlimeRequest request) {
+        Pending[] removed = new Pending[1];
+        removeIf(entry -> removed[0] == null && entry.request == request, entry -> removed[0] = entry);
+        return removed[0];
+    }
+
+    /**
+     * Removes all requests whose timeout passed.
+     *
+     * @return number of removed requests
+     */
+    public int reapExpired(long nanoTime, Consumer<Pending> onExpired) {
+        return removeIf(entry -> entry.isExpired(nanoTime), onExpired);
+    }
+
+    /**
+     * Removes all pending requests, ie when connection was closed.
+     *
+     * @return number of removed requests
+     */
+    public int drain(Consumer<Pending> onRemoved) {
+        return drain(entry -> true, onRemoved);
+    }
+
+    /**
+     * Removes pending requests matching the filter, ie requests sent over lost connection.
+     *
+     * @return number of removed requests
+     */
+    public int drain(Predicate<Pending> filter, Consumer<Pending> onRemoved) {
+        return removeIf(filter, onRemoved);
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    private int removeIf(Predicate<Pending> filter, Consumer<Pending> onRemoved) {
+        int removed = 0;
+        for (int ix = 0; ix <= mask; ix++) {
+            Pending entry = slots.get(ix);
+            if (entry != null && filter.test(entry) && slots.compareAndSet(ix, entry, null)) {
+                size.decrementAndGet();
+                ++removed;
+                onRemoved.accept(entry);
+            }
+        }
+        if (overflowSize.get() > 0) {
+            Iterator<Pending> iterator = overflow.values().iterator();
+            while (iterator.hasNext()) {
+                Pending entry = iterator.next();
+                if (filter.test(entry) && overflow.remove(entry.id, entry)) {
+                    overflowSize.decrementAndGet();
+                    size.decrementAndGet();
+                    ++removed;
+                    onRemoved.accept(entry);
+                }
+            }
+        }
+        return removed;
+    }
+
+    private int find(long id) {
+        int home = (int) id & mask;
+        for (int i = 0; i < PROBE_LIMIT; i++) {
+            int ix = (home + i) & mask;
+            Pending entry = slots.get(ix);
+            if (entry != null && entry.id == id) {
+                return ix;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Request sent over client, waiting for its reply.
+     */
+    public record Pending(long id, SlimeRequest request, SwankClient client, long sentNanos) {
+
+        boolean isExpired(long nanoTime) {
+            long timeout = request.getTimeoutMillis();
+            return timeout > 0 && nanoTime - sentNanos - TimeUnit.MILLISECONDS.toNanos(timeout) > 0;
+        }
+
+    }
+
+}
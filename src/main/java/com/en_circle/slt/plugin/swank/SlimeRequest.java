@@ -1,15 +1,185 @@
 package com.en_circle.slt.plugin.swank;
 
+import com.en_circle.slt.plugin.lisp.lisp.LispContainer;
+import com.en_circle.slt.plugin.swank.SwankChannelPool.Channel;
 import com.intellij.openapi.project.Project;
 
 import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
 
 public abstract  class SlimeRequest {
 
-    public abstract SwankPacket createPacket(BigInteger requestId, Project project);
+    private RequestPriority priority;
+    private long timeoutMillis;
+    private boolean interruptible;
+    private boolean interruptOnTimeout;
+    private boolean idempotent;
+    private Runnable timeoutCallback;
+    private Runnable finishCallback;
 
-    public BigInteger getRequestId() {
+    // timestamps and size for SlimeRequestMetrics, set by SlimeListener
+    long calledNanos;
+    long sentNanos;
+    int requestBytes;
+    // lisp worker thread of interruptible request, reported by lisp once it starts
+    volatile BigInteger thread;
+
+    public abstract SwankPacket createPacket(long requestId, Project project);
+
+    /**
+     * @return continuation id this request must be sent with, 0 to use next free one
+     */
+    public long getRequestId() {
+        return 0;
+    }
+
+    /**
+     * Called with the result form of :return reply to this request, ie (:ok value) or (:abort condition).
+     * Requests that are not interested in the result keep the default.
+     */
+    public void processReply(LispContainer data) {
+
+    }
+
+    /**
+     * Opt in for coalescing of read only requests. Request sent while another one with the same key is still waiting
+     * for its reply is not sent again, it gets the reply of the one in flight.
+     *
+     * @return stable key describing the query, null if request must always be sent
+     */
+    public String getCoalescingKey() {
         return null;
     }
 
+    /**
+     * Marks request as safe to send again, ie read only query sent as generic eval.
+     */
+    public SlimeRequest idempotent() {
+        this.idempotent = true;
+        return this;
+    }
+
+    /**
+     * Idempotent requests still waiting for their reply when connection was lost are replayed once it is
+     * reconnected, others are failed with {@link #onTimeout()}. Coalescing key does not make request idempotent,
+     * ie inspector requests refer to state of the connection they were sent over.
+     */
+    public boolean isIdempotent() {
+        return idempotent;
+    }
+
+    /**
+     * @return name metrics of this request are recorded under
+     */
+    String getTypeName() {
+        return getClass().getSimpleName();
+    }
+
+    public RequestPriority getPriority() {
+        return priority == null ? getDefaultPriority() : priority;
+    }
+
+    /**
+     * Overrides default priority of this request type, ie when request is sent by background task.
+     */
+    public SlimeRequest withPriority(RequestPriority priority) {
+        this.priority = priority;
+        return this;
+    }
+
+    protected RequestPriority getDefaultPriority() {
+        return RequestPriority.NAVIGATION;
+    }
+
+    /**
+     * @return connection this request is sent over
+     */
+    public Channel getChannel() {
+        return getPriority() == RequestPriority.BACKGROUND ? Channel.ANALYSIS : Channel.EDITOR;
+    }
+
+    /**
+     * Sets deadline for the reply, counted from the moment request is sent. Request without reply in time is
+     * removed from pending requests and its timeout callback is called from the reaper thread.
+     */
+    public SlimeRequest withTimeout(long timeout, TimeUnit unit) {
+        return withTimeout(timeout, unit, null);
+    }
+
+    public SlimeRequest withTimeout(long timeout, TimeUnit unit, Runnable onTimeout) {
+        this.timeoutMillis = unit.toMillis(timeout);
+        this.timeoutCallback = onTimeout;
+        return this;
+    }
+
+    /**
+     * Asks lisp to report worker thread of this request, so that cancelling it with interrupt sends :emacs-interrupt
+     * to exactly that thread. Only useful for requests that run user code, interrupted thread enters the debugger.
+     */
+    public SlimeRequest interruptible() {
+        this.interruptible = true;
+        return this;
+    }
+
+    /**
+     * Also interrupts lisp worker thread of this request when it times out, implies {@link #interruptible()}.
+     */
+    public SlimeRequest interruptOnTimeout() {
+        this.interruptOnTimeout = true;
+        return interruptible();
+    }
+
+    public boolean isInterruptible() {
+        return interruptible;
+    }
+
+    /**
+     * @return deadline for reply in milliseconds, 0 if request waits for its reply indefinitely
+     */
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public boolean isInterruptOnTimeout() {
+        return interruptOnTimeout;
+    }
+
+    public void onTimeout() {
+        if (timeoutCallback != null) {
+            timeoutCallback.run();
+        }
+    }
+
+    /**
+     * Adds callback called once request is done - its reply was processed, it timed out or it was dropped without
+     * reply, ie when connection was closed. Called after processReply and onTimeout, from the same thread. Callbacks
+     * run in the order they were added.
+     */
+    public SlimeRequest whenFinished(Runnable onFinished) {
+        Runnable previous = finishCallback;
+        this.finishCallback = previous == null ? onFinished : () -> {
+            previous.run();
+            onFinished.run();
+        };
+        return this;
+    }
+
+    public void onFinished() {
+        if (finishCallback != null) {
+            finishCallback.run();
+        }
+    }
+
+    /**
+     * Order in which requests waiting for request window are sent.
+     */
+    public enum RequestPriority {
+        // user is waiting for result while typing - completion, argument lists, repl and debugger actions
+        INTERACTIVE,
+        // user initiated lookups - xrefs, documentation, macroexpansion, highlighting
+        NAVIGATION,
+        // bulk analysis, can be deferred and cancelled
+        BACKGROUND
+    }
+
 }
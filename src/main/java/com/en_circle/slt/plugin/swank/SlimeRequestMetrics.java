@@ -0,0 +1,158 @@
+package com.en_circle.slt.plugin.swank;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency and size histograms of completed requests, per request type.
+ *
+ * Every request goes through phases:
+ * <ul>
+ *     <li>window - waiting for free slot in {@link SlimeRequestWindow}</li>
+ *     <li>first byte - from send to first byte of reply, network and lisp side</li>
+ *     <li>receive - from first to last byte of reply, including its decoding</li>
+ *     <li>parse - reading reply into lisp elements</li>
+ *     <li>callback - {@link SlimeRequest#processReply} and callback of the request</li>
+ * </ul>
+ * Total latency is measured from send until the callback returns. Times are in nanoseconds, sizes in bytes.
+ */
+public class SlimeRequestMetrics {
+
+    private static final double[] CSV_PERCENTILES = { 50, 90, 99, 99.9 };
+
+    private final Map<String, RequestTypeMetrics> metrics = new ConcurrentHashMap<>();
+    private volatile long since = System.nanoTime();
+
+    void record(SlimeRequest request, SwankPacket reply, long parseNanos, long callbackNanos, long completedNanos) {
+        RequestTypeMetrics typeMetrics = metrics.computeIfAbsent(request.getTypeName(), RequestTypeMetrics::new);
+        long sent = request.sentNanos;
+        if (request.calledNanos != 0) {
+            typeMetrics.window.record(sent - request.calledNanos);
+        }
+        if (reply.getFirstByteNanos() != 0) {
+            typeMetrics.firstByte.record(reply.getFirstByteNanos() - sent);
+            typeMetrics.receive.record(reply.getDecodedNanos() - reply.getFirstByteNanos());
+        }
+        typeMetrics.parse.record(parseNanos);
+        typeMetrics.callback.record(callbackNanos);
+        typeMetrics.total.record(completedNanos - sent);
+        typeMetrics.requestBytes.record(request.requestBytes);
+        typeMetrics.replyBytes.record(reply.getLength());
+    }
+
+    /**
+     * @return metrics of all request types, sorted by name
+     */
+    public List<RequestTypeMetrics> getMetrics() {
+        List<RequestTypeMetrics> result = new ArrayList<>(metrics.values());
+        result.sort(Comparator.comparing(RequestTypeMetrics::getName));
+        return result;
+    }
+
+    /**
+     * @return seconds since metrics are collected
+     */
+    public double getElapsedSeconds() {
+        return (System.nanoTime() - since) / 1_000_000_000.0;
+    }
+
+    public void reset() {
+        metrics.clear();
+        since = System.nanoTime();
+    }
+
+    /**
+     * Writes one row per request type and measured phase with count, mean, percentiles and maximum. Times are in
+     * microseconds.
+     */
+    public void writeCsv(Writer writer) throws IOException {
+        writer.write("request,metric,unit,count,rate,mean");
+        for (double percentile : CSV_PERCENTILES) {
+            writer.write(",p" + formatPercentile(percentile));
+        }
+        writer.write(",max\n");
+
+        double elapsed = getElapsedSeconds();
+        for (RequestTypeMetrics typeMetrics : getMetrics()) {
+            for (Metric metric : Metric.values()) {
+                SlimeHistogram histogram = typeMetrics.get(metric);
+                double scale = metric.isTime() ? TimeUnit.MICROSECONDS.toNanos(1) : 1;
+                writer.write(typeMetrics.getName() + "," + metric.name().toLowerCase() + "," +
+                        (metric.isTime() ? "us" : "bytes") + "," + histogram.getCount() + "," +
+                        String.format(Locale.ROOT, "%.3f", histogram.getCount() / elapsed) + "," +
+                        String.format(Locale.ROOT, "%.1f", histogram.getMean() / scale));
+                for (double percentile : CSV_PERCENTILES) {
+                    writer.write("," + String.format(Locale.ROOT, "%.1f", histogram.getValueAtPercentile(percentile) / scale));
+                }
+                writer.write("," + String.format(Locale.ROOT, "%.1f", histogram.getMax() / scale) + "\n");
+            }
+        }
+        writer.flush();
+    }
+
+    private static String formatPercentile(double percentile) {
+        return percentile == Math.rint(percentile) ? String.valueOf((int) percentile) : String.valueOf(percentile);
+    }
+
+    public enum Metric {
+        TOTAL(true), WINDOW(true), FIRST_BYTE(true), RECEIVE(true), PARSE(true), CALLBACK(true),
+        REQUEST_SIZE(false), REPLY_SIZE(false);
+
+        private final boolean time;
+
+        Metric(boolean time) {
+            this.time = time;
+        }
+
+        public boolean isTime() {
+            return time;
+        }
+    }
+
+    public static class RequestTypeMetrics {
+
+        private final String name;
+        private final SlimeHistogram total = new SlimeHistogram();
+        private final SlimeHistogram window = new SlimeHistogram();
+        private final SlimeHistogram firstByte = new SlimeHistogram();
+        private final SlimeHistogram receive = new SlimeHistogram();
+        private final SlimeHistogram parse = new SlimeHistogram();
+        private final SlimeHistogram callback = new SlimeHistogram();
+        private final SlimeHistogram requestBytes = new SlimeHistogram();
+        private final SlimeHistogram replyBytes = new SlimeHistogram();
+
+        private RequestTypeMetrics(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return total.getCount();
+        }
+
+        public SlimeHistogram get(Metric metric) {
+            return switch (metric) {
+                case TOTAL -> total;
+                case WINDOW -> window;
+                case FIRST_BYTE -> firstByte;
+                case RECEIVE -> receive;
+                case PARSE -> parse;
+                case CALLBACK -> callback;
+                case REQUEST_SIZE -> requestBytes;
+                case REPLY_SIZE -> replyBytes;
+            };
+        }
+
+    }
+
+}
@@ -0,0 +1,106 @@
+package com.en_circle.slt.plugin.swank;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of requests that never got their reply processed or were answered without their own round trip.
+ */
+public class SlimeRequestStats {
+
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder interrupted = new LongAdder();
+    private final LongAdder leaked = new LongAdder();
+    private final LongAdder lateReplies = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder disconnected = new LongAdder();
+
+    void timedOut(boolean interrupt) {
+        timedOut.increment();
+        if (interrupt) {
+            interrupted.increment();
+        }
+    }
+
+    void leaked(int count) {
+        leaked.add(count);
+    }
+
+    void lateReply() {
+        lateReplies.increment();
+    }
+
+    void coalesced() {
+        coalesced.increment();
+    }
+
+    void replayed() {
+        replayed.increment();
+    }
+
+    void disconnected() {
+        disconnected.increment();
+    }
+
+    /**
+     * @return requests removed by reaper after their deadline passed
+     */
+    public long getTimedOutCount() {
+        return timedOut.sum();
+    }
+
+    /**
+     * @return timed out requests whose lisp thread was interrupted
+     */
+    public long getInterruptedCount() {
+        return interrupted.sum();
+    }
+
+    /**
+     * @return requests still pending when connection was closed
+     */
+    public long getLeakedCount() {
+        return leaked.sum();
+    }
+
+    /**
+     * @return replies that arrived for unknown or already reaped requests
+     */
+    public long getLateReplyCount() {
+        return lateReplies.sum();
+    }
+
+    /**
+     * @return requests that were not sent because identical request was already in flight
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * @return idempotent requests sent again after their connection was reconnected
+     */
+    public long getReplayedCount() {
+        return replayed.sum();
+    }
+
+    /**
+     * @return requests failed because their connection was lost
+     */
+    public long getDisconnectedCount() {
+        return disconnected.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "SlimeRequestStats{" +
+                "timedOut=" + getTimedOutCount() +
+                ", interrupted=" + getInterruptedCount() +
+                ", leaked=" + getLeakedCount() +
+                ", lateReplies=" + getLateReplyCount() +
+                ", coalesced=" + getCoalescedCount() +
+                ", replayed=" + getReplayedCount() +
+                ", disconnected=" + getDisconnectedCount() +
+                '}';
+    }
+}
@@ -0,0 +1,271 @@
+package com.en_circle.slt.plugin.swank;
+
+import com.en_circle.slt.plugin.swank.SlimeRequest.RequestPriority;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded window of requests in flight on one swank connection.
+ *
+ * Slot is taken before request is sent and returned when its reply is processed. Callers either wait for a slot
+ * ({@link #acquire(RequestPriority)}) or give up when none is available in time
+ * ({@link #tryAcquire(RequestPriority, long, TimeUnit)}).
+ *
+ * Free slots go to the highest priority waiter first. Background requests can use at most half of the window,
+ * are held back while interactive requests were sent recently and can be cancelled while waiting. Windows of
+ * connections to the same lisp can share the time of last interactive request, so that background requests hold back
+ * for interactive requests sent over other connections too.
+ */
+public class SlimeRequestWindow {
+
+    public static final int DEFAULT_SIZE = 32;
+    public static final long DEFAULT_BACKGROUND_HOLDOFF_MS = 300;
+
+    private static final RequestPriority[] PRIORITIES = RequestPriority.values();
+
+    private final int size;
+    private final int backgroundLimit;
+    private final long backgroundHoldoffNanos;
+
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition[] slotFreed = new Condition[PRIORITIES.length];
+    private final int[] waiting = new int[PRIORITIES.length];
+    private final int[] inFlight = new int[PRIORITIES.length];
+    private int inFlightTotal;
+    private final AtomicLong lastInteractive;
+    private long backgroundGeneration;
+
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public SlimeRequestWindow(int size) {
+        this(size, DEFAULT_BACKGROUND_HOLDOFF_MS);
+    }
+
+    public SlimeRequestWindow(int size, long backgroundHoldoffMillis) {
+        this(size, backgroundHoldoffMillis, new AtomicLong(System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(
+                Math.max(0, backgroundHoldoffMillis))));
+    }
+
+    /**
+     * @param lastInteractive time of last interactive request, shared with windows of other connections
+     */
+    public SlimeRequestWindow(int size, long backgroundHoldoffMillis, AtomicLong lastInteractive) {
+        this.size = Math.max(1, size);
+        this.backgroundLimit = Math.max(1, this.size / 2);
+        this.backgroundHoldoffNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, backgroundHoldoffMillis));
+        this.lastInteractive = lastInteractive;
+        for (int i = 0; i < slotFreed.length; i++) {
+            slotFreed[i] = lock.newCondition();
+        }
+    }
+
+    /**
+     * Waits for a slot.
+     *
+     * @throws CancellationException if background request was cancelled by {@link #cancelBackground()}
+     */
+    public void acquire(RequestPriority priority) throws InterruptedException {
+        acquire(priority, -1);
+    }
+
+    /**
+     * @return false if no slot was available within timeout
+     * @throws CancellationException if background request was cancelled by {@link #cancelBackground()}
+     */
+    public boolean tryAcquire(RequestPriority priority, long timeout, TimeUnit unit) throws InterruptedException {
+        boolean hasSlot = acquire(priority, unit.toNanos(timeout));
+        if (!hasSlot) {
+            rejected.increment();
+        }
+        return hasSlot;
+    }
+
+    private boolean acquire(RequestPriority priority, long timeoutNanos) throws InterruptedException {
+        long start = System.nanoTime();
+        int ix = priority.ordinal();
+        lock.lock();
+        try {
+            long generation = backgroundGeneration;
+            ++waiting[ix];
+            try {
+                while (true) {
+                    if (priority == RequestPriority.BACKGROUND && generation != backgroundGeneration) {
+                        cancelled.increment();
+                        throw new CancellationException();
+                    }
+                    long now = System.nanoTime();
+                    long holdoff = remainingHoldoff(priority, now);
+                    if (holdoff == 0 && canGrant(priority)) {
+                        break;
+                    }
+
+                    long waitFor = holdoff > 0 ? holdoff : Long.MAX_VALUE;
+                    if (timeoutNanos >= 0) {
+                        long remaining = timeoutNanos - (now - start);
+                        if (remaining <= 0) {
+                            return false;
+                        }
+                        waitFor = Math.min(waitFor, remaining);
+                    }
+                    if (waitFor == Long.MAX_VALUE) {
+                        slotFreed[ix].await();
+                    } else {
+                        slotFreed[ix].awaitNanos(waitFor);
+                    }
+                }
+            } finally {
+                --waiting[ix];
+            }
+
+            ++inFlight[ix];
+            ++inFlightTotal;
+            if (priority == RequestPriority.INTERACTIVE) {
+                lastInteractive.set(System.nanoTime());
+            }
+        } finally {
+            lock.unlock();
+        }
+        recordWait(start);
+        return true;
+    }
+
+    private boolean canGrant(RequestPriority priority) {
+        if (inFlightTotal >= size) {
+            return false;
+        }
+        for (int i = 0; i < priority.ordinal(); i++) {
+            if (waiting[i] > 0) {
+                return false;
+            }
+        }
+        return priority != RequestPriority.BACKGROUND || inFlight[priority.ordinal()] < backgroundLimit;
+    }
+
+    private long remainingHoldoff(RequestPriority priority, long now) {
+        if (priority != RequestPriority.BACKGROUND) {
+            return 0;
+        }
+        return Math.max(0, backgroundHoldoffNanos - (now - lastInteractive.get()));
+    }
+
+    public void release(RequestPriority priority) {
+        lock.lock();
+        try {
+            --inFlight[priority.ordinal()];
+            --inFlightTotal;
+            signalWaiters();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Cancels all background requests currently waiting for a slot. Requests already sent are not affected.
+     */
+    public void cancelBackground() {
+        lock.lock();
+        try {
+            ++backgroundGeneration;
+            slotFreed[RequestPriority.BACKGROUND.ordinal()].signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void signalWaiters() {
+        for (RequestPriority priority : PRIORITIES) {
+            if (waiting[priority.ordinal()] > 0) {
+                slotFreed[priority.ordinal()].signalAll();
+                return;
+            }
+        }
+    }
+
+    private void recordWait(long start) {
+        long waited = System.nanoTime() - start;
+        acquired.increment();
+        totalWaitNanos.add(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlightTotal;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            int depth = 0;
+            for (int w : waiting) {
+                depth += w;
+            }
+            return depth;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueueDepth(RequestPriority priority) {
+        lock.lock();
+        try {
+            return waiting[priority.ordinal()];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getAcquiredCount() {
+        return acquired.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public long getCancelledCount() {
+        return cancelled.sum();
+    }
+
+    public double getAverageWaitMillis() {
+        long count = acquired.sum();
+        if (count == 0) {
+            return 0;
+        }
+        return totalWaitNanos.sum() / (double) count / 1_000_000.0;
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        return "SlimeRequestWindow{" +
+                "size=" + size +
+                ", inFlight=" + getInFlight() +
+                ", queueDepth=" + getQueueDepth() +
+                ", averageWaitMillis=" + getAverageWaitMillis() +
+                ", maxWaitMillis=" + getMaxWaitMillis() +
+                ", rejected=" + getRejectedCount() +
+                ", cancelled=" + getCancelledCount() +
+                '}';
+    }
+}
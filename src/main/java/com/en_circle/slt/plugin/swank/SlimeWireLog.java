@@ -0,0 +1,306 @@
+package com.en_circle.slt.plugin.swank;
+
+import com.en_circle.slt.plugin.swank.SlimeListener.RequestResponseLogger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded log of swank traffic.
+ *
+ * Appending is lock free and only keeps reference to already encoded frame of the packet, so selector and reply
+ * threads do not pay for decoding or rendering. At most {@code capacity} events and {@code maxBytes} of their frames
+ * are retained, oldest events are dropped first. Readers take snapshots by sequence number and render them when
+ * needed. Optionally retained events are also written into rotating files by background thread.
+ */
+public class SlimeWireLog implements RequestResponseLogger, AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(SlimeWireLog.class);
+
+    private static final long SPILL_PERIOD_MS = 500;
+
+    private final AtomicReferenceArray<WireEvent> events;
+    private final int mask;
+    private final long maxBytes;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong retainedBytes = new AtomicLong();
+    private final Set<String> types = ConcurrentHashMap.newKeySet();
+    private volatile SpillWriter spillWriter;
+
+    /**
+     * @param capacity maximum number of retained events, rounded up to power of two
+     * @param maxBytes maximum size of retained frames, single event larger than this is not retained
+     */
+    public SlimeWireLog(int capacity, long maxBytes) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.events = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public void logRequest(String type, long requestId, SwankPacket packet) {
+        append(Direction.REQUEST, type, requestId, packet);
+    }
+
+    @Override
+    public void logResponse(String type, long requestId, SwankPacket packet) {
+        append(Direction.RESPONSE, type, requestId, packet);
+    }
+
+    private void append(Direction direction, String type, long requestId, SwankPacket packet) {
+        types.add(type);
+        byte[] frame = packet.getFrame();
+        if (frame.length > maxBytes) {
+            // would evict all other events and still not fit
+            return;
+        }
+        long sequence = head.getAndIncrement();
+        WireEvent event = new WireEvent(sequence, System.currentTimeMillis(), direction, type, requestId, frame);
+
+        int slot = (int) (sequence & mask);
+        while (true) {
+            WireEvent current = events.get(slot);
+            if (current != null && current.sequence() > sequence) {
+                // lapped by faster writers, this event is already older than whole buffer
+                return;
+            }
+            if (events.compareAndSet(slot, current, event)) {
+                retainedBytes.addAndGet(event.size() - (current == null ? 0 : current.size()));
+                break;
+            }
+        }
+
+        while (retainedBytes.get() > maxBytes) {
+            long oldest = tail.get();
+            if (oldest >= head.get()) {
+                break;
+            }
+            if (!tail.compareAndSet(oldest, oldest + 1)) {
+                continue;
+            }
+            int oldestSlot = (int) (oldest & mask);
+            WireEvent evicted = events.get(oldestSlot);
+            if (evicted != null && evicted.sequence() == oldest && events.compareAndSet(oldestSlot, evicted, null)) {
+                retainedBytes.addAndGet(-evicted.size());
+            }
+        }
+    }
+
+    /**
+     * @return sequence number of next appended event
+     */
+    public long getHead() {
+        return head.get();
+    }
+
+    /**
+     * @return sequence number of oldest event that can still be retained
+     */
+    public long getFirstRetained() {
+        return Math.max(tail.get(), head.get() - events.length());
+    }
+
+    public long getRetainedBytes() {
+        return retainedBytes.get();
+    }
+
+    /**
+     * @return request types seen since log was created
+     */
+    public Set<String> getTypes() {
+        return Set.copyOf(types);
+    }
+
+    /**
+     * @return retained events with sequence number at least {@code from}, in order
+     */
+    public List<WireEvent> snapshot(long from) {
+        long end = head.get();
+        long start = Math.max(from, end - events.length());
+        List<WireEvent> result = new ArrayList<>((int) Math.max(0, end - start));
+        for (long sequence = start; sequence < end; sequence++) {
+            WireEvent event = events.get((int) (sequence & mask));
+            if (event != null && event.sequence() == sequence) {
+                result.add(event);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Drops all retained events. Sequence numbers keep increasing.
+     */
+    public void clear() {
+        long end = head.get();
+        tail.accumulateAndGet(end, Math::max);
+        for (int slot = 0; slot < events.length(); slot++) {
+            WireEvent event = events.get(slot);
+            if (event != null && event.sequence() < end && events.compareAndSet(slot, event, null)) {
+                retainedBytes.addAndGet(-event.size());
+            }
+        }
+    }
+
+    /**
+     * Starts writing events into {@code file}. When file grows over {@code maxFileBytes} it is renamed to file.1,
+     * previous file.1 to file.2 and so on, keeping at most {@code files} rotated files.
+     */
+    public synchronized void spillTo(Path file, long maxFileBytes, int files) {
+        stopSpill();
+        spillWriter = new SpillWriter(file, maxFileBytes, Math.max(1, files), head.get());
+        spillWriter.start();
+    }
+
+    public synchronized void stopSpill() {
+        SpillWriter writer = spillWriter;
+        spillWriter = null;
+        if (writer != null) {
+            writer.terminate();
+        }
+    }
+
+    @Override
+    public void close() {
+        stopSpill();
+    }
+
+    public enum Direction {
+        REQUEST, RESPONSE
+    }
+
+    public record WireEvent(long sequence, long timestamp, Direction direction, String type, long requestId,
+                            byte[] frame) {
+
+        public int size() {
+            return frame.length;
+        }
+
+        /**
+         * @return decoded message without frame header
+         */
+        public String getText() {
+            return new String(frame, SwankFraming.HEADER_LENGTH, frame.length - SwankFraming.HEADER_LENGTH - 1,
+                    StandardCharsets.UTF_8);
+        }
+
+        public String getHeader() {
+            return Instant.ofEpochMilli(timestamp) + " " + (direction == Direction.REQUEST ? "-->" : "<--") + " " +
+                    type + (requestId > 0 ? " #" + requestId : "");
+        }
+    }
+
+    private class SpillWriter extends Thread {
+
+        private final Path file;
+        private final long maxFileBytes;
+        private final int files;
+        private long next;
+        private long written;
+        private OutputStream writer;
+        private volatile boolean running = true;
+
+        private SpillWriter(Path file, long maxFileBytes, int files, long from) {
+            super("SWANK Wire Log Writer");
+            setDaemon(true);
+            this.file = file;
+            this.maxFileBytes = maxFileBytes;
+            this.files = files;
+            this.next = from;
+        }
+
+        @Override
+        public void run() {
+            try {
+                open();
+                while (running) {
+                    drain();
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(SPILL_PERIOD_MS));
+                }
+                drain();
+            } catch (IOException e) {
+                log.warn("Failed to write wire log into " + file, e);
+            } finally {
+                try {
+                    if (writer != null) {
+                        writer.close();
+                    }
+                } catch (IOException ignored) {
+
+                }
+            }
+        }
+
+        private void drain() throws IOException {
+            long first = getFirstRetained();
+            if (first > next) {
+                write("... " + (first - next) + " events dropped ...\n");
+                next = first;
+            }
+            for (WireEvent event : snapshot(next)) {
+                write(event.getHeader() + "\n" + event.getText() + "\n\n");
+                next = event.sequence() + 1;
+            }
+            writer.flush();
+        }
+
+        private void write(String text) throws IOException {
+            if (written > 0 && written >= maxFileBytes) {
+                rotate();
+            }
+            byte[] data = text.getBytes(StandardCharsets.UTF_8);
+            writer.write(data);
+            written += data.length;
+        }
+
+        private void open() throws IOException {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            writer = new BufferedOutputStream(Files.newOutputStream(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+            written = Files.size(file);
+        }
+
+        private void rotate() throws IOException {
+            writer.close();
+            for (int i = files - 1; i >= 1; i--) {
+                Path source = rotated(i);
+                if (Files.exists(source)) {
+                    Files.move(source, rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.move(file, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+            open();
+        }
+
+        private Path rotated(int index) {
+            return file.resolveSibling(file.getFileName() + "." + index);
+        }
+
+        private void terminate() {
+            running = false;
+            LockSupport.unpark(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.en_circle.slt.plugin.swank;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared pool of large read buffers.
+ *
+ * Swank connections read into small per connection buffer and only borrow large buffer for the duration of a
+ * single oversized packet (big :return payloads), so pool stays small. Only buffers up to
+ * {@link #MAX_POOLED_CAPACITY} are kept, rare larger ones, up to the 16 MB frame limit, are left to the collector.
+ */
+public class SwankBufferPool {
+
+    private static final int MAX_POOLED = 8;
+    private static final int MAX_POOLED_CAPACITY = 1024 * 1024;
+
+    private static final SwankBufferPool HEAP = new SwankBufferPool(false);
+    private static final SwankBufferPool DIRECT = new SwankBufferPool(true);
+
+    public static SwankBufferPool getPool(boolean direct) {
+        return direct ? DIRECT : HEAP;
+    }
+
+    private final boolean direct;
+    private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    private SwankBufferPool(boolean direct) {
+        this.direct = direct;
+    }
+
+    public ByteBuffer acquire(int minCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(minCapacity, 1) - 1) << 1;
+        if (capacity <= 0) {
+            capacity = minCapacity;
+        }
+        for (ByteBuffer buffer : buffers) {
+            if (buffer.capacity() >= minCapacity && buffers.remove(buffer)) {
+                pooled.decrementAndGet();
+                buffer.clear();
+                return buffer;
+            }
+        }
+        return allocate(capacity);
+    }
+
+    public void release(ByteBuffer buffer) {
+        if (buffer.isDirect() != direct || buffer.capacity() > MAX_POOLED_CAPACITY) {
+            return;
+        }
+        if (pooled.incrementAndGet() > MAX_POOLED) {
+            pooled.decrementAndGet();
+            return;
+        }
+        buffer.clear();
+        buffers.add(buffer);
+    }
+
+    public ByteBuffer allocate(int capacity) {
+        return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+}
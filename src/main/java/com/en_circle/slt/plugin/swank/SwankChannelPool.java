@@ -0,0 +1,243 @@
+package com.en_circle.slt.plugin.swank;
+
+import com.en_circle.slt.plugin.swank.SwankClient.SwankReply;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Several swank connections to the same lisp, so that long running REPL evaluation or debugger session does not
+ * stall editor features and bulk analysis.
+ *
+ * REPL channel is connected eagerly and becomes the default swank connection, other channels connect on first use.
+ * Replies from all channels go to the same callback, since debugger can answer on a different connection than request
+ * was sent to.
+ *
+ * Channel whose connection was lost is reconnected in background with exponential backoff, independently of the
+ * others. Until then the lost client is handed out, so requests sent in the meantime stay pending and the callback
+ * can replay them over the new client, see {@link ChannelListener}. When all attempts fail, channel is reopened on its
+ * next use.
+ */
+public class SwankChannelPool implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(SwankChannelPool.class);
+
+    private static final long INITIAL_BACKOFF_MS = 100;
+    private static final long MAX_BACKOFF_MS = 5000;
+    private static final long CONNECT_TIMEOUT_MS = 2000;
+    private static final int MAX_RECONNECT_ATTEMPTS = 8;
+    private static final ScheduledExecutorService reconnector = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "SWANK Reconnect");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String host;
+    private final int port;
+    private final ChannelListener callback;
+    private final boolean separateChannels;
+    private final SwankClient[] clients = new SwankClient[Channel.values().length];
+    private final boolean[] reconnecting = new boolean[Channel.values().length];
+    private boolean closed;
+
+    /**
+     * @param separateChannels if false, all requests share single REPL connection
+     */
+    public SwankChannelPool(String host, int port, ChannelListener callback, boolean separateChannels) {
+        this.host = host;
+        this.port = port;
+        this.callback = callback;
+        this.separateChannels = separateChannels;
+
+        getClient(Channel.REPL);
+    }
+
+    public SwankClient getClient(SlimeRequest request) {
+        return getClient(request.getChannel());
+    }
+
+    public synchronized SwankClient getClient(Channel channel) {
+        if (closed) {
+            throw new IllegalStateException("Swank channels are closed");
+        }
+
+        Channel target = separateChannels ? channel : Channel.REPL;
+        SwankClient client = clients[target.ordinal()];
+        if (client == null || (!client.isAlive() && !reconnecting[target.ordinal()])) {
+            if (client != null) {
+                log.info("Reconnecting swank channel " + target);
+            }
+            client = new SwankClient(host, port, new ChannelReply(target));
+            clients[target.ordinal()] = client;
+        }
+        return client;
+    }
+
+    /**
+     * @return true if any channel lost its connection and is being reconnected
+     */
+    public synchronized boolean isReconnecting() {
+        for (boolean channelReconnecting : reconnecting) {
+            if (channelReconnecting) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void connectionLost(Channel channel, SwankClient lost, Exception cause) {
+        synchronized (this) {
+            if (closed || clients[channel.ordinal()] != lost || reconnecting[channel.ordinal()]) {
+                return;
+            }
+            reconnecting[channel.ordinal()] = true;
+        }
+        log.info("Swank channel " + channel + " lost" + (cause == null ? "" : ": " + cause.getMessage()) +
+                ", reconnecting");
+        scheduleReconnect(channel, lost, 1);
+    }
+
+    private void scheduleReconnect(Channel channel, SwankClient lost, int attempt) {
+        long delay = Math.min(MAX_BACKOFF_MS, INITIAL_BACKOFF_MS << (attempt - 1));
+        reconnector.schedule(() -> reconnect(channel, lost, attempt), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void reconnect(Channel channel, SwankClient lost, int attempt) {
+        SwankClient client;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            client = new SwankClient(host, port, new ChannelReply(channel));
+        }
+
+        boolean connected;
+        try {
+            connected = client.awaitConnected(CONNECT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            connected = false;
+        }
+
+        if (connected) {
+            boolean installed = false;
+            synchronized (this) {
+                if (!closed) {
+                    clients[channel.ordinal()] = client;
+                    reconnecting[channel.ordinal()] = false;
+                    installed = true;
+                }
+            }
+            if (!installed) {
+                closeQuietly(client);
+                return;
+            }
+            log.info("Swank channel " + channel + " reconnected after " + attempt + " attempt(s)");
+            callback.onReconnected(lost, client);
+            return;
+        }
+
+        closeQuietly(client);
+        if (attempt < MAX_RECONNECT_ATTEMPTS) {
+            scheduleReconnect(channel, lost, attempt + 1);
+            return;
+        }
+        synchronized (this) {
+            reconnecting[channel.ordinal()] = false;
+        }
+        log.warn("Failed to reconnect swank channel " + channel + " after " + attempt + " attempts");
+        callback.onReconnectFailed(lost);
+    }
+
+    private static void closeQuietly(SwankClient client) {
+        try {
+            client.close();
+        } catch (Exception e) {
+            log.debug(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        SwankClient[] toClose;
+        synchronized (this) {
+            closed = true;
+            toClose = clients.clone();
+        }
+
+        Exception exception = null;
+        for (SwankClient client : toClose) {
+            if (client == null) {
+                continue;
+            }
+            try {
+                client.close();
+            } catch (Exception e) {
+                if (exception == null) {
+                    exception = e;
+                } else {
+                    exception.addSuppressed(e);
+                }
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    /**
+     * Swank callback also notified about reconnects of lost channels.
+     */
+    public interface ChannelListener extends SwankReply {
+
+        /**
+         * Called from reconnect thread once lost channel is connected again, requests still pending on the lost
+         * client can be resent over the new one.
+         */
+        void onReconnected(SwankClient lost, SwankClient client);
+
+        /**
+         * Called from reconnect thread when channel could not be reconnected, requests pending on the lost client
+         * will never get their reply.
+         */
+        void onReconnectFailed(SwankClient lost);
+
+    }
+
+    private class ChannelReply implements SwankReply {
+
+        private final Channel channel;
+
+        private ChannelReply(Channel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void onSwankMessage(SwankPacket packet) {
+            callback.onSwankMessage(packet);
+        }
+
+        @Override
+        public void onReadError(Exception e) {
+            callback.onReadError(e);
+        }
+
+        @Override
+        public void onDisconnected(SwankClient client, Exception cause) {
+            callback.onDisconnected(client, cause);
+            connectionLost(channel, client, cause);
+        }
+    }
+
+    public enum Channel {
+        // evaluation, loading files and debugger
+        REPL,
+        // completion, argument lists, documentation, navigation
+        EDITOR,
+        // bulk symbol analysis
+        ANALYSIS
+    }
+
+}
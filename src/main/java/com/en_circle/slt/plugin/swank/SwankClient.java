@@ -3,105 +3,274 @@ package com.en_circle.slt.plugin.swank;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.EOFException;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.ConnectException;
-import java.net.Socket;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Non-blocking swank transport.
+ *
+ * Single selector thread connects, reads and writes. Packets are queued by {@link #swankSend(SwankPacket)} and
+ * written in order, several pending packets are coalesced into one gather write. Connection closed by the other side
+ * or broken by an error is reported by {@link SwankReply#onDisconnected(SwankClient, Exception)}, packets sent after
+ * that are rejected.
+ */
 public class SwankClient implements AutoCloseable, Runnable {
     private static final Logger log = LoggerFactory.getLogger(SwankClient.class);
     private static final AtomicInteger TC = new AtomicInteger();
-
-    private Socket connection;
+    private static final int MAX_COALESCED_PACKETS = 64;
+    private static final long CONNECT_TIMEOUT_MS = 10_000;
+    private static final long CLOSE_TIMEOUT_MS = 2000;
 
     private final String host;
     private final int port;
     private final SwankReply callback;
-    private final Thread readThread;
+    private final Thread selectorThread;
+    private final Selector selector;
+    private final Queue<SwankPacket> sendQueue = new ConcurrentLinkedQueue<>();
+    private final SwankFraming framing = new SwankFraming();
+    private final CountDownLatch connectAttempted = new CountDownLatch(1);
 
-    private final ExecutorService swankExecutor;
+    private SocketChannel channel;
+    private SelectionKey key;
+    private ByteBuffer[] pendingWrite;
+    private volatile boolean active = true;
+    private volatile boolean connected;
+    private long firstByteAt;
 
     public SwankClient(String host, int port, SwankReply callback) {
-        this.swankExecutor = Executors.newCachedThreadPool();
         this.host = host;
         this.port = port;
         this.callback = callback;
+        try {
+            this.selector = Selector.open();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
 
-        readThread = new Thread(this);
-        readThread.setDaemon(true);
-        readThread.setName("SWANK ReadThread " + TC.addAndGet(1));
-        readThread.start();
+        selectorThread = new Thread(this);
+        selectorThread.setDaemon(true);
+        selectorThread.setName("SWANK SelectorThread " + TC.addAndGet(1));
+        selectorThread.start();
     }
 
-    private synchronized void checkConnection() throws Exception {
-        if (connection != null) {
-            if (connection.isConnected()) {
-                return;
-            }
-            connection.close();
+    /**
+     * Queues packet to be written by selector thread.
+     *
+     * @return false if client was closed or lost its connection, packet will not be written
+     */
+    public boolean swankSend(SwankPacket value) {
+        if (!active) {
+            return false;
         }
+        sendQueue.add(value);
+        selector.wakeup();
+        if (!active) {
+            // closed while queueing, selector thread might not see the packet anymore
+            sendQueue.remove(value);
+            return false;
+        }
+        return true;
+    }
 
-        connection = new Socket(host, port);
-        connection.setKeepAlive(true);
+    /**
+     * @return false once connection failed or was closed, client can not be used anymore
+     */
+    public boolean isAlive() {
+        return active && selectorThread.isAlive();
     }
 
-    public void swankSend(SwankPacket value) {
-        swankExecutor.submit(() -> {
-            synchronized (this) {
-                try {
-                    checkConnection();
-                    value.writeTo(connection.getOutputStream());
-                } catch (Exception e) {
-                    log.error(e.getMessage());
-                    log.debug(e.getMessage(), e);
-                }
-            }
-        });
+    /**
+     * Waits until connection is established or fails.
+     *
+     * @return true if client is connected
+     */
+    public boolean awaitConnected(long timeout, TimeUnit unit) throws InterruptedException {
+        return connectAttempted.await(timeout, unit) && connected && isAlive();
     }
 
     @Override
     public void close() throws Exception {
-        swankExecutor.shutdown();
+        active = false;
+        selector.wakeup();
+        selectorThread.join(CLOSE_TIMEOUT_MS);
+        if (selectorThread.isAlive()) {
+            log.warn(selectorThread.getName() + " did not stop in " + CLOSE_TIMEOUT_MS + " ms");
+        }
+    }
 
-        if (connection != null) {
-            connection.close();
+    @Override
+    public void run() {
+        Exception cause = null;
+        try {
+            connect();
+            loop();
+        } catch (ClosedSelectorException ignored) {
+
+        } catch (Exception e) {
+            cause = e;
+            callback.onReadError(e);
+        } finally {
+            closeChannel();
+            connectAttempted.countDown();
         }
 
-        while (readThread.isAlive()) {
-            readThread.interrupt();
+        // not closed by us
+        boolean lost = active && connected;
+        active = false;
+        sendQueue.clear();
+        if (lost) {
+            callback.onDisconnected(this, cause);
         }
-        readThread.join();
     }
 
-    @Override
-    public void run() {
-        while (!Thread.interrupted()) {
-            try {
-                checkConnection();
-                InputStream is = connection.getInputStream();
-                SwankPacket packet = SwankPacket.fromInput(is);
-                callback.onSwankMessage(packet);
-            } catch (ConnectException | InterruptedException e) {
-                callback.onReadError(e);
+    private void connect() throws IOException {
+        channel = SocketChannel.open();
+        channel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        channel.configureBlocking(false);
+        if (channel.connect(new InetSocketAddress(host, port))) {
+            key = channel.register(selector, SelectionKey.OP_READ);
+            onConnected();
+        } else {
+            key = channel.register(selector, SelectionKey.OP_CONNECT);
+        }
+    }
+
+    private void onConnected() {
+        connected = true;
+        connectAttempted.countDown();
+    }
+
+    private void loop() throws Exception {
+        long connectDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CONNECT_TIMEOUT_MS);
+        while (active) {
+            if (connected) {
+                if (pendingWrite != null || !sendQueue.isEmpty()) {
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                }
+                selector.select();
+            } else {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(connectDeadline - System.nanoTime());
+                if (remaining <= 0) {
+                    throw new ConnectException("Connection to " + host + ":" + port + " timed out");
+                }
+                selector.select(remaining);
+            }
+            if (!active) {
                 return;
-            } catch (IOException e) {
-                if (e instanceof EOFException) {
-                    return;
+            }
+
+            // ready ops of a key are only valid while it is in selected set, wakeup selects no keys
+            Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+            while (selected.hasNext()) {
+                SelectionKey ready = selected.next();
+                selected.remove();
+                if (ready.isValid() && ready.isConnectable()) {
+                    channel.finishConnect();
+                    ready.interestOps(SelectionKey.OP_READ);
+                    onConnected();
+                    continue;
                 }
+                if (ready.isValid() && ready.isReadable()) {
+                    if (!read()) {
+                        return;
+                    }
+                }
+                if (ready.isValid() && ready.isWritable()) {
+                    write();
+                }
+            }
+        }
+    }
+
+    private boolean read() throws Exception {
+        long readAt = System.nanoTime();
+        if (!framing.hasPendingData()) {
+            firstByteAt = readAt;
+        }
+        int read = channel.read(framing.getReadBuffer());
+        if (read < 0) {
+            return false;
+        }
+
+        SwankPacket packet;
+        while ((packet = framing.nextPacket()) != null) {
+            packet.received(firstByteAt, System.nanoTime());
+            // rest of the data arrived with this read
+            firstByteAt = readAt;
+            try {
+                callback.onSwankMessage(packet);
             } catch (Exception e) {
                 callback.onReadError(e);
             }
         }
+        return true;
+    }
+
+    private void write() throws IOException {
+        if (pendingWrite == null) {
+            List<ByteBuffer> buffers = new ArrayList<>();
+            SwankPacket packet;
+            int coalesced = 0;
+            while (coalesced < MAX_COALESCED_PACKETS && (packet = sendQueue.poll()) != null) {
+                buffers.add(packet.toBuffer());
+                ++coalesced;
+            }
+            if (buffers.isEmpty()) {
+                key.interestOps(SelectionKey.OP_READ);
+                return;
+            }
+            pendingWrite = buffers.toArray(new ByteBuffer[0]);
+        }
+
+        channel.write(pendingWrite);
+        if (!pendingWrite[pendingWrite.length - 1].hasRemaining()) {
+            pendingWrite = null;
+            if (sendQueue.isEmpty()) {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+    }
+
+    private void closeChannel() {
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+            selector.close();
+        } catch (IOException e) {
+            log.debug(e.getMessage(), e);
+        }
     }
 
     public interface SwankReply {
         void onSwankMessage(SwankPacket packet);
 
         void onReadError(Exception e);
+
+        /**
+         * Called from selector thread when established connection was lost, not when it was closed by the client.
+         *
+         * @param cause error that broke the connection, null if it was closed by the other side
+         */
+        default void onDisconnected(SwankClient client, Exception cause) {
+
+        }
     }
 
 }
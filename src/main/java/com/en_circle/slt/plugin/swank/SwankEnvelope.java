@@ -0,0 +1,251 @@
+package com.en_circle.slt.plugin.swank;
+
+import com.en_circle.slt.plugin.lisp.lisp.LispContainer;
+import com.en_circle.slt.plugin.lisp.lisp.LispElement;
+import com.en_circle.slt.plugin.lisp.lisp.LispInteger;
+import com.en_circle.slt.plugin.lisp.lisp.LispSymbol;
+
+import java.math.BigInteger;
+import java.util.List;
+
+/**
+ * Received swank message, routed by its envelope and parsed only when needed.
+ *
+ * Scanning reads just the event name and few atoms around the payload - status and continuation of
+ * {@code (:return (:ok|:abort ...) id)}, thread and level of debugger events and thread and continuation of
+ * {@code (:slt-request-thread thread id)}. Whole message is parsed into lisp
+ * elements on first call of {@link #getForm()}, so replies nobody waits for anymore are dropped without parsing.
+ * Messages the scanner does not understand are parsed right away and the envelope is read from the parsed form.
+ */
+public class SwankEnvelope {
+
+    private static final String RETURN = ":return";
+    private static final String REQUEST_THREAD = ":slt-request-thread";
+
+    private final SwankPacket packet;
+    private String event;
+    private String status;
+    private long continuation = -1;
+    private BigInteger thread;
+    private BigInteger level;
+    private LispContainer form;
+    private boolean parsed;
+    private long parseNanos;
+
+    private SwankEnvelope(SwankPacket packet) {
+        this.packet = packet;
+    }
+
+    public static SwankEnvelope scan(SwankPacket packet) {
+        SwankEnvelope envelope = new SwankEnvelope(packet);
+        if (!envelope.scanEnvelope(packet.getSentData())) {
+            envelope.readEnvelope();
+        }
+        return envelope;
+    }
+
+    private boolean scanEnvelope(String data) {
+        int position = skipWhitespace(data, 0);
+        if (position >= data.length() || data.charAt(position) != '(') {
+            return false;
+        }
+        int eventEnd = tokenEnd(data, ++position);
+        if (eventEnd == position || data.charAt(position) != ':') {
+            return false;
+        }
+        event = data.substring(position, eventEnd).toLowerCase();
+        position = eventEnd;
+
+        switch (event) {
+            case RETURN -> {
+                position = skipWhitespace(data, position);
+                if (position >= data.length() || data.charAt(position) != '(') {
+                    return false;
+                }
+                int statusEnd = tokenEnd(data, ++position);
+                status = data.substring(position, statusEnd).toLowerCase();
+
+                int end = data.length() - 1;
+                while (end >= 0 && Character.isWhitespace(data.charAt(end))) {
+                    --end;
+                }
+                if (end < 0 || data.charAt(end) != ')') {
+                    return false;
+                }
+                --end;
+                while (end >= 0 && Character.isWhitespace(data.charAt(end))) {
+                    --end;
+                }
+                int idEnd = end + 1;
+                while (end >= 0 && Character.isDigit(data.charAt(end))) {
+                    --end;
+                }
+                if (end + 1 == idEnd || end < 0 || !isDelimiter(data.charAt(end))) {
+                    return false;
+                }
+                try {
+                    continuation = Long.parseLong(data, end + 1, idEnd, 10);
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+            case ":debug", ":debug-activate", ":debug-return" -> {
+                position = skipWhitespace(data, position);
+                int threadEnd = tokenEnd(data, position);
+                thread = parseInteger(data, position, threadEnd);
+                position = skipWhitespace(data, threadEnd);
+                int levelEnd = tokenEnd(data, position);
+                level = parseInteger(data, position, levelEnd);
+                return thread != null && level != null;
+            }
+            case REQUEST_THREAD -> {
+                position = skipWhitespace(data, position);
+                int threadEnd = tokenEnd(data, position);
+                thread = parseInteger(data, position, threadEnd);
+                position = skipWhitespace(data, threadEnd);
+                int idEnd = tokenEnd(data, position);
+                BigInteger id = parseInteger(data, position, idEnd);
+                if (thread == null || id == null || id.bitLength() >= Long.SIZE) {
+                    return false;
+                }
+                continuation = id.longValue();
+            }
+        }
+        return true;
+    }
+
+    private void readEnvelope() {
+        event = null;
+        status = null;
+        continuation = -1;
+        thread = null;
+        level = null;
+
+        LispContainer form = getForm();
+        if (form == null || form.getItems().isEmpty() || !(form.getItems().get(0) instanceof LispSymbol symbol)) {
+            return;
+        }
+        List<LispElement> items = form.getItems();
+        event = symbol.getValue().toLowerCase();
+        if (RETURN.equals(event)) {
+            if (items.size() > 2 && items.get(1) instanceof LispContainer result && !result.getItems().isEmpty()
+                    && result.getItems().get(0) instanceof LispSymbol resultStatus
+                    && items.get(2) instanceof LispInteger id) {
+                status = resultStatus.getValue().toLowerCase();
+                continuation = id.getLongValue();
+            } else {
+                event = null;
+            }
+        } else if (REQUEST_THREAD.equals(event)) {
+            if (items.size() > 2 && items.get(1) instanceof LispInteger threadId && items.get(2) instanceof LispInteger id) {
+                thread = threadId.getValue();
+                continuation = id.getLongValue();
+            } else {
+                event = null;
+            }
+        } else if (items.size() > 2 && items.get(1) instanceof LispInteger threadId
+                && items.get(2) instanceof LispInteger debugLevel) {
+            thread = threadId.getValue();
+            level = debugLevel.getValue();
+        }
+    }
+
+    private static int skipWhitespace(String data, int position) {
+        while (position < data.length() && Character.isWhitespace(data.charAt(position))) {
+            ++position;
+        }
+        return position;
+    }
+
+    private static int tokenEnd(String data, int position) {
+        while (position < data.length() && !isDelimiter(data.charAt(position))) {
+            ++position;
+        }
+        return position;
+    }
+
+    private static boolean isDelimiter(char c) {
+        return Character.isWhitespace(c) || c == '(' || c == ')' || c == '"';
+    }
+
+    private static BigInteger parseInteger(String data, int start, int end) {
+        if (start == end) {
+            return null;
+        }
+        for (int i = start; i < end; i++) {
+            if (!Character.isDigit(data.charAt(i)) && !(i == start && data.charAt(i) == '-' && end - start > 1)) {
+                return null;
+            }
+        }
+        return new BigInteger(data.substring(start, end));
+    }
+
+    public SwankPacket getPacket() {
+        return packet;
+    }
+
+    /**
+     * @return event keyword in lower case, ie :return or :debug, null if message is not an event
+     */
+    public String getEvent() {
+        return event;
+    }
+
+    /**
+     * @return :ok or :abort for :return, null for other events
+     */
+    public String getStatus() {
+        return status;
+    }
+
+    /**
+     * @return continuation id of :return, -1 for other events
+     */
+    public long getContinuation() {
+        return continuation;
+    }
+
+    /**
+     * @return thread of debugger events, null for other events
+     */
+    public BigInteger getThread() {
+        return thread;
+    }
+
+    /**
+     * @return level of debugger events, null for other events
+     */
+    public BigInteger getLevel() {
+        return level;
+    }
+
+    /**
+     * Parses the message on first call.
+     *
+     * @return whole message, null if it is not single list
+     */
+    public LispContainer getForm() {
+        if (!parsed) {
+            long start = System.nanoTime();
+            List<LispElement> elements = SwankReader.read(packet.getSentData());
+            parseNanos = System.nanoTime() - start;
+            parsed = true;
+            if (elements.size() == 1 && elements.get(0) instanceof LispContainer container) {
+                form = container;
+            }
+        }
+        return form;
+    }
+
+    public boolean isParsed() {
+        return parsed;
+    }
+
+    /**
+     * @return time spent parsing the message, 0 if it was not parsed
+     */
+    public long getParseNanos() {
+        return parseNanos;
+    }
+
+}
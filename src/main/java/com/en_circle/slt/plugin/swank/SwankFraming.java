@@ -0,0 +1,142 @@
+package com.en_circle.slt.plugin.swank;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Incoming swank framing: 6 hex digit length header followed by utf-8 encoded message.
+ *
+ * Data is read into reusable buffer that is kept in write mode. Complete packets are decoded straight from the
+ * buffer without intermediate arrays, buffer is only compacted when partial packet has to be moved to the front.
+ * Packets larger than the connection buffer borrow a buffer from {@link SwankBufferPool} until they are consumed.
+ */
+public class SwankFraming {
+
+    public static final int HEADER_LENGTH = 6;
+    public static final int DEFAULT_CAPACITY = 64 * 1024;
+
+    private final SwankBufferPool pool;
+    private final ByteBuffer connectionBuffer;
+    private final CharsetDecoder decoder;
+    private ByteBuffer buffer;
+    private int readPosition;
+
+    public SwankFraming() {
+        this(false);
+    }
+
+    public SwankFraming(boolean direct) {
+        this.pool = SwankBufferPool.getPool(direct);
+        this.connectionBuffer = pool.allocate(DEFAULT_CAPACITY);
+        this.buffer = connectionBuffer;
+        this.decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    /**
+     * @return buffer to read data into, always has space remaining
+     */
+    public ByteBuffer getReadBuffer() {
+        if (!buffer.hasRemaining()) {
+            int required = buffer.position() - readPosition;
+            if (required >= HEADER_LENGTH) {
+                required = Math.max(required, HEADER_LENGTH + parseHeader(readPosition));
+            }
+            makeSpace(required + 1);
+        }
+        return buffer;
+    }
+
+    /**
+     * @return true if part of next packet was already read
+     */
+    public boolean hasPendingData() {
+        return buffer.position() > readPosition;
+    }
+
+    /**
+     * @return next complete packet or null if more data is needed
+     */
+    public SwankPacket nextPacket() throws CharacterCodingException {
+        int available = buffer.position() - readPosition;
+        if (available < HEADER_LENGTH) {
+            return null;
+        }
+        int length = parseHeader(readPosition);
+        if (available < HEADER_LENGTH + length) {
+            if (HEADER_LENGTH + length > buffer.capacity()) {
+                makeSpace(HEADER_LENGTH + length);
+            }
+            return null;
+        }
+
+        int start = readPosition + HEADER_LENGTH;
+        String data = decode(start, length);
+        readPosition = start + length;
+        if (readPosition == buffer.position()) {
+            reset();
+        }
+        return SwankPacket.fromDecoded(data, length);
+    }
+
+    private int parseHeader(int offset) {
+        int length = 0;
+        for (int i = 0; i < HEADER_LENGTH; i++) {
+            int digit = Character.digit(buffer.get(offset + i), 16);
+            if (digit < 0) {
+                throw new IllegalStateException("Invalid swank packet header");
+            }
+            length = (length << 4) | digit;
+        }
+        return length;
+    }
+
+    private String decode(int start, int length) throws CharacterCodingException {
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + start, length, StandardCharsets.UTF_8);
+        }
+        ByteBuffer slice = buffer.duplicate();
+        slice.limit(start + length).position(start);
+        CharBuffer chars = decoder.decode(slice);
+        return chars.toString();
+    }
+
+    private void reset() {
+        readPosition = 0;
+        if (buffer != connectionBuffer) {
+            pool.release(buffer);
+            buffer = connectionBuffer;
+        }
+        buffer.clear();
+    }
+
+    private void makeSpace(int required) {
+        ByteBuffer target = buffer;
+        if (required > buffer.capacity()) {
+            target = pool.acquire(required);
+        } else if (readPosition == 0) {
+            return;
+        }
+
+        if (target == buffer) {
+            buffer.limit(buffer.position()).position(readPosition);
+            buffer.compact();
+        } else {
+            ByteBuffer source = buffer.duplicate();
+            source.limit(buffer.position()).position(readPosition);
+            target.clear();
+            target.put(source);
+            if (buffer != connectionBuffer) {
+                pool.release(buffer);
+            }
+            buffer = target;
+        }
+        readPosition = 0;
+    }
+
+}
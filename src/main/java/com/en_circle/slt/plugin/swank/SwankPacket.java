@@ -1,433 +1,490 @@
 package com.en_circle.slt.plugin.swank;
 
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang3.StringUtils;
-
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 public class SwankPacket {
 
     public static SwankPacket writeString(String value) {
-        value = StringUtils.replace(value, "\\", "\\\\");
-        value = StringUtils.replace(value, "\"", "\\\"");
-        String formatted = String.format("(:write-string '\"%s\n\")", value);
-        return new SwankPacket(formatted);
+        return SwankPacketBuilder.builder()
+                .list().raw(":write-string").quote().beginString().stringContent(value).stringContent("\n").endString().end()
+                .build();
     }
 
     public static SwankPacket rpcReturnOk(String sexpression, int continuation) {
-        String formatted = String.format("(:return (:ok '%s) %s)", sexpression, continuation);
-        return new SwankPacket(formatted);
+        return SwankPacketBuilder.builder()
+                .list().raw(":return").list().raw(":ok").quote().raw(sexpression).end().number(continuation).end()
+                .build();
     }
 
     public static SwankPacket rpcReturnAbort(String sexpression, int continuation) {
-        String formatted = String.format("(:return (:abort '%s) %s)", sexpression, continuation);
-        return new SwankPacket(formatted);
+        return SwankPacketBuilder.builder()
+                .list().raw(":return").list().raw(":abort").quote().raw(sexpression).end().number(continuation).end()
+                .build();
     }
 
     public static SwankPacket rpcNewPackage(String newPackage) {
-        newPackage = StringUtils.replace(newPackage, "\\", "\\\\");
-        newPackage = StringUtils.replace(newPackage, "\"", "\\\"");
-        String formatted = String.format("(:new-package \"%s\" \"%s\")", newPackage, newPackage);
-        return new SwankPacket(formatted);
+        return SwankPacketBuilder.builder()
+                .list().raw(":new-package").string(newPackage).string(newPackage).end()
+                .build();
     }
 
     public static SwankPacket rpcWriteString(String sexpression) {
-        String formatted = String.format("(:write-string '\"%s\n\")", sexpression);
-        return new SwankPacket(formatted);
+        return SwankPacketBuilder.builder()
+                .list().raw(":write-string").quote().raw("\"" + sexpression + "\n\"").end()
+                .build();
     }
 
-    public static SwankPacket sltEval(String sexpression, String breakpoints, BigInteger continuation) {
+    public static SwankPacket sltEval(String sexpression, String breakpoints, long continuation) {
         return sltEval(sexpression, breakpoints, ":CL-USER", continuation);
     }
 
-    public static SwankPacket sltEval(String sexpression, String breakpoints, String packageName, BigInteger continuation) {
+    public static SwankPacket sltEval(String sexpression, String breakpoints, String packageName, long continuation) {
         return sltEval(sexpression, breakpoints, packageName, "T", continuation);
     }
 
     public static SwankPacket sltEval(String sexpression, String breakpoints,
-                                      String packageName, String thread, BigInteger continuation) {
-        String evalExpression = sexpression;
-        if (breakpoints != null) {
-            evalExpression = String.format("(progn (slt-core::with-breakpoints \"%s\") %s)", breakpoints, sexpression);
-        }
-        packageName = StringUtils.replace(packageName, "\\", "\\\\");
-        packageName = StringUtils.replace(packageName, "\"", "\\\"");
-        evalExpression = StringUtils.replace(evalExpression, "\\", "\\\\");
-        evalExpression = StringUtils.replace(evalExpression, "\"", "\\\"");
-        String formatted = String.format("(:emacs-rex (swank:slt-eval \"%s\") \":%s\" %s %s)",
-                evalExpression, packageName, thread, continuation);
-        return new SwankPacket(formatted);
+                                      String packageName, String thread, long continuation) {
+        SwankPacketBuilder builder = SwankPacketBuilder.builder().rex("swank:slt-eval");
+        return evalString(builder, sexpression, breakpoints)
+                .endRex(packageName, thread, continuation)
+                .build();
     }
 
-    public static SwankPacket evalInFrame(String sexpression, String breakpoints, BigInteger frame, String packageName, BigInteger thread, BigInteger continuation) {
-        String evalExpression = sexpression;
-        if (breakpoints != null) {
-            evalExpression = String.format("(progn (slt-core::with-breakpoints \"%s\") %s)", breakpoints, sexpression);
-        }
-        packageName = StringUtils.replace(packageName, "\\", "\\\\");
-        packageName = StringUtils.replace(packageName, "\"", "\\\"");
-        evalExpression = StringUtils.replace(evalExpression, "\\", "\\\\");
-        evalExpression = StringUtils.replace(evalExpression, "\"", "\\\"");
-        String formatted = String.format("(:emacs-rex (swank:eval-string-in-frame \"%s\" %s \"%s\") \":%s\" %s %s)",
-                evalExpression, frame, packageName, packageName, thread, continuation);
-        return new SwankPacket(formatted);
+    public static SwankPacket evalInFrame(String sexpression, String breakpoints, BigInteger frame, String packageName, BigInteger thread, long continuation) {
+        SwankPacketBuilder builder = SwankPacketBuilder.builder().rex("swank:eval-string-in-frame");
+        return evalString(builder, sexpression, breakpoints)
+                .number(frame).string(packageName)
+                .endRex(packageName, String.valueOf(thread), continuation)
+                .build();
     }
 
-    public static SwankPacket evalRegion(String region, String breakpoints, BigInteger continuation) {
+    public static SwankPacket evalRegion(String region, String breakpoints, long continuation) {
         return evalRegion(region, breakpoints, ":CL-USER", "T", continuation);
     }
 
-    public static SwankPacket evalRegion(String region, String breakpoints, String packageName, BigInteger continuation) {
+    public static SwankPacket evalRegion(String region, String breakpoints, String packageName, long continuation) {
         return evalRegion(region, breakpoints, packageName, "T", continuation);
     }
 
-    public static SwankPacket evalRegion(String region, String breakpoints, String packageName, String thread, BigInteger continuation) {
-        String evalRegion = region;
-        if (breakpoints != null) {
-            evalRegion = String.format("(progn (slt-core::with-breakpoints \"%s\") %s)", breakpoints, region);
-        }
-        packageName = StringUtils.replace(packageName, "\\", "\\\\");
-        packageName = StringUtils.replace(packageName, "\"", "\\\"");
-        evalRegion = StringUtils.replace(evalRegion, "\\", "\\\\");
-        evalRegion = StringUtils.replace(evalRegion, "\"", "\\\"");
-        String formatted = String.format("(:emacs-rex (swank:interactive-eval-region \"%s\") \":%s\" %s %s)",
-                evalRegion, packageName, thread, continuation);
-        return new SwankPacket(formatted);
+    public static SwankPacket evalRegion(String region, String breakpoints, String packageName, String thread, long continuation) {
+        SwankPacketBuilder builder = SwankPacketBuilder.builder().rex("swank:interactive-eval-region");
+        return evalString(builder, region, breakpoints)
+                .endRex(packageName, thread, continuation)
+                .build();
     }
 
-    public static SwankPacket swankEvalAndGrab(String sexpression, String breakpoints, BigInteger continuation) {
+    public static SwankPacket swankEvalAndGrab(String sexpression, String breakpoints, long continuation) {
         return swankEvalAndGrab(sexpression, breakpoints, ":CL-USER", continuation);
     }
 
-    public static SwankPacket swankEvalAndGrab(String sexpression, String breakpoints, String packageName, BigInteger continuation) {
+    public static SwankPacket swankEvalAndGrab(String sexpression, String breakpoints, String packageName, long continuation) {
         return swankEvalAndGrab(sexpression, breakpoints, packageName, "T", continuation);
     }
 
-    public static SwankPacket swankEvalAndGrab(String sexpression, String breakpoints, String packageName, String thread, BigInteger continuation) {
-        String evalExpression = sexpression;
+    public static SwankPacket swankEvalAndGrab(String sexpression, String breakpoints, String packageName, String thread, long continuation) {
+        SwankPacketBuilder builder = SwankPacketBuilder.builder().rex("swank:eval-and-grab-output");
+        return evalString(builder, sexpression, breakpoints)
+                .endRex(packageName, thread, continuation)
+                .build();
+    }
+
+    /**
+     * Writes code as string, wrapped in breakpoint installation when there are breakpoints.
+     */
+    private static SwankPacketBuilder evalString(SwankPacketBuilder builder, String code, String breakpoints) {
+        builder.beginString();
         if (breakpoints != null) {
-            evalExpression = String.format("(progn (slt-core::with-breakpoints \"%s\") %s)", breakpoints, sexpression);
+            builder.stringContent("(progn (slt-core::with-breakpoints \"").stringContent(breakpoints).stringContent("\") ")
+                    .stringContent(code).stringContent(")");
+        } else {
+            builder.stringContent(code);
         }
-        packageName = StringUtils.replace(packageName, "\\", "\\\\");
-        packageName = StringUtils.replace(packageName, "\"", "\\\"");
-        evalExpression = StringUtils.replace(evalExpression, "\\", "\\\\");
-        evalExpression = StringUtils.replace(evalExpression, "\"", "\\\"");
-        String formatted = String.format("(:emacs-rex (swank:eval-and-grab-output \"%s\") \":%s\" %s %s)",
-                evalExpression, packageName, thread, continuation);
-        return new SwankPacket(formatted);
+        return builder.endString();
     }
 
-    public static SwankPacket swankEvalRegion(String code, String breakpoints, String filename, int bufferPosition, BigInteger continuation) {
+    public static SwankPacket swankEvalRegion(String code, String breakpoints, String filename, int bufferPosition, long continuation) {
         return swankEvalRegion(code, breakpoints, filename, bufferPosition, ":CL-USER", continuation);
     }
 
-    public static SwankPacket swankEvalRegion(String code, String breakpoints, String filename, int bufferPosition, String packageName, BigInteger continuation) {
+    public static SwankPacket swankEvalRegion(String code, String breakpoints, String filename, int bufferPosition, String packageName, long continuation) {
         return swankEvalRegion(code, breakpoints, filename, bufferPosition, packageName, "T", continuation);
     }
 
     public static SwankPacket swankEvalRegion(String code, String breakpoints, String filename, int bufferPosition,
-                                              String packageName, String thread, BigInteger continuation) {
-        if (breakpoints == null) {
-            breakpoints = "NIL";
-        } else {
-            breakpoints = "\"" + breakpoints + "\"";
-        }
-        packageName = StringUtils.replace(packageName, "\\", "\\\\");
-        packageName = StringUtils.replace(packageName, "\"", "\\\"");
-        code = StringUtils.replace(code, "\\", "\\\\");
-        code = StringUtils.replace(code, "\"", "\\\"");
-        breakpoints = StringUtils.replace(breakpoints, "\\", "\\\\");
-        breakpoints = StringUtils.replace(breakpoints, "\"", "\\\"");
-        filename = StringUtils.replace(filename, "\\", "\\\\");
-        filename = StringUtils.replace(filename, "\"", "\\\"");
-        String formatted = String.format("(:emacs-rex (swank:compile-string-region-slt \"%s\" %s \"%s\" %s \"%s\" :%s) \":%s\" %s %s)",
-                code, breakpoints, filename, bufferPosition, filename, packageName, packageName, thread, continuation);
-        return new SwankPacket(formatted);
+                                              String packageName, String thread, long continuation) {
+        SwankPacketBuilder builder = SwankPacketBuilder.builder().rex("swank:compile-string-region-slt")
+                .string(code);
+        return breakpoints(builder, breakpoints)
+                .string(filename).number(bufferPosition).string(filename).raw(":" + packageName)
+                .endRex(packageName, thread, continuation)
+                .build();
+    }
+
+    private static SwankPacketBuilder breakpoints(SwankPacketBuilder builder, String breakpoints) {
+        return breakpoints == null ? builder.raw("NIL") : builder.string(breakpoints);
     }
 
     public static SwankPacket invokeNthRestart(BigInteger option, BigInteger level,
-                                               String restartArg, String restartArgs, BigInteger threadId, BigInteger continuation) {
-        restartArg = StringUtils.replace(restartArg, "\\", "\\\\");
-        restartArg = StringUtils.replace(restartArg, "\"", "\\\"");
-        restartArgs = StringUtils.replace(restartArgs, "\\", "\\\\");
-        restartArgs = StringUtils.replace(restartArgs, "\"", "\\\"");
-        String formatted = String.format("(:emacs-rex (swank:invoke-nth-restart-slt '%s '%s \"%s\" \"%s\") \":CL-USER\" %s %s)",
-                level, option, restartArg, restartArgs, threadId, continuation);
-        return new SwankPacket(formatted);
+                                               String restartArg, String restartArgs, BigInteger threadId, long continuation) {
+        return SwankPacketBuilder.builder().rex("swank:invoke-nth-restart-slt")
+                .quote().number(level).quote().number(option).string(restartArg).string(restartArgs)
+                .endRex("CL-USER", String.valueOf(threadId), continuation)
+                .build();
     }
 
-    public static SwankPacket throwToToplevel(BigInteger threadId, BigInteger continuation) {
-        String formatted = String.format("(:emacs-rex (swank:throw-to-toplevel) :CL-USER %s %s)", threadId, continuation);
-        return new SwankPacket(formatted);
+    public static SwankPacket emacsInterrupt(BigInteger thread) {
+        return SwankPacketBuilder.builder()
+                .list().raw(":emacs-interrupt").number(thread).end()
+                .build();
     }
 
-    public static SwankPacket frameLocals(BigInteger frame, BigInteger threadId, String packageName, BigInteger continuation) {
-        packageName = StringUtils.replace(packageName, "\\", "\\\\");
-        packageName = StringUtils.replace(packageName, "\"", "\\\"");
-        String formatted = String.format("(:emacs-rex (swank:frame-locals-and-catch-tags %s) \":%s\" %s %s)",
-                frame, packageName, threadId == null ? "T" : threadId, continuation);
-        return new SwankPacket(formatted);
+    /**
+     * Asks lisp to report worker thread of the request with given continuation as (:slt-request-thread thread id).
+     * Sent right before the request.
+     */
+    public static SwankPacket trackRequestThread(long continuation) {
+        return SwankPacketBuilder.builder()
+                .list().raw(":slt-track-request").number(continuation).end()
+                .build();
     }
 
-    public static SwankPacket inspectLocal(BigInteger ix, BigInteger frameId, BigInteger threadId, String packageName, BigInteger continuation) {
-        packageName = StringUtils.replace(packageName, "\\", "\\\\");
-        packageName = StringUtils.replace(packageName, "\"", "\\\"");
-        String formatted = String.format("(:emacs-rex (swank:inspect-frame-var %s %s) \":%s\" %s %s)",
-                frameId, ix, packageName, threadId == null ? "T" : threadId, continuation);
-        return new SwankPacket(formatted);
+    public static SwankPacket throwToToplevel(BigInteger threadId, long continuation) {
+        return SwankPacketBuilder.builder().rex("swank:throw-to-toplevel").end()
+                .raw(":CL-USER").number(threadId).number(continuation).end()
+                .build();
     }
 
-    public static SwankPacket frameInspectNth(BigInteger ix, BigInteger threadId, String packageName, BigInteger continuation) {
-        packageName = StringUtils.replace(packageName, "\\", "\\\\");
-        packageName = StringUtils.replace(packageName, "\"", "\\\"");
-        String formatted = String.format("(:emacs-rex (swank:inspect-nth-part %s) \":%s\" %s %s)",
-                ix, packageName, threadId == null ? "T" : threadId, continuation);
-        return new SwankPacket(formatted);
+    public static SwankPacket frameLocals(BigInteger frame, BigInteger threadId, String packageName, long continuation) {
+        return SwankPacketBuilder.builder().rex("swank:frame-locals-and-catch-tags")
+                .number(frame)
+                .endRex(packageName, thread(threadId), continuation)
+                .build();
     }
 
-    public static SwankPacket inspectorBack(BigInteger threadId, String packageName, BigInteger continuation) {
-        packageName = StringUtils.replace(packageName, "\\", "\\\\");
-        packageName = StringUtils.replace(packageName, "\"", "\\\"");
-        String formatted = String.format("(:emacs-rex (swank:inspector-pop) \":%s\" %s %s)",
-                packageName, threadId == null ? "T" : threadId, continuation);
-        return new SwankPacket(formatted);
+    public static SwankPacket inspectLocal(BigInteger ix, BigInteger frameId, BigInteger threadId, String packageName, long continuation) {
+        return SwankPacketBuilder.builder().rex("swank:inspect-frame-var")
+                .number(frameId).number(ix)
+                .endRex(packageName, thread(threadId), continuation)
+                .build();
     }
 
-    public static SwankPacket inspectorForward(BigInteger threadId, String packageName, BigInteger continuation) {
-        packageName = StringUtils.replace(packageName, "\\", "\\\\");
-        packageName = StringUtils.replace(packageName, "\"", "\\\"");
-        String formatted = String.format("(:emacs-rex (swank:inspector-next) \":%s\" %s %s)",
-                packageName, threadId == null ? "T" : threadId, continuation);
-        return new SwankPacket(formatted);
+    public static SwankPacket frameInspectNth(BigInteger ix, BigInteger threadId, String packageName, long continuation) {
+        return SwankPacketBuilder.builder().rex("swank:inspect-nth-part")
+                .number(ix)
+                .endRex(packageName, thread(threadId), continuation)
+                .build();
     }
 
-    public static SwankPacket inspectorRefresh(BigInteger threadId, String packageName, BigInteger continuation) {
-        packageName = StringUtils.replace(packageName, "\\", "\\\\");
-        packageName = StringUtils.replace(packageName, "\"", "\\\"");
-        String formatted = String.format("(:emacs-rex (swank:inspector-reinspect) \":%s\" %s %s)",
-                packageName, threadId == null ? "T" : threadId, continuation);
-        return new SwankPacket(formatted);
+    public static SwankPacket inspectorBack(BigInteger threadId, String packageName, long continuation) {
+        return SwankPacketBuilder.builder().rex("swank:inspector-pop")
+                .endRex(packageName, thread(threadId), continuation)
+                .build();
     }
 
-    public static SwankPacket inspectSymbol(String symbol, BigInteger threadId, String packageName, BigInteger continuation) {
-        packageName = StringUtils.replace(packageName, "\\", "\\\\");
-        packageName = StringUtils.replace(packageName, "\"", "\\\"");
-        symbol = StringUtils.replace(symbol, "\\", "\\\\");
-        symbol = StringUtils.replace(symbol, "\"", "\\\"");
-        String formatted = String.format("(:emacs-rex (swank:init-inspector \"%s\") \":%s\" %s %s)",
-                symbol, packageName, threadId == null ? "T" : threadId, continuation);
-        return new SwankPacket(formatted);
+    public static SwankPacket inspectorForward(BigInteger threadId, String packageName, long continuation) {
+        return SwankPacketBuilder.builder().rex("swank:inspector-next")
+                .endRex(packageName, thread(threadId), continuation)
+                .build();
     }
 
-    public static SwankPacket activateStepping(BigInteger threadId, String packageName, BigInteger continuation) {
-        packageName = StringUtils.replace(packageName, "\\", "\\\\");
-        packageName = StringUtils.replace(packageName, "\"", "\\\"");
-        String formatted = String.format("(:emacs-rex (swank::activate-stepping 0) \":%s\" %s %s)",
-                packageName, threadId, continuation);
-        return new SwankPacket(formatted);
+    public static SwankPacket inspectorRefresh(BigInteger threadId, String packageName, long continuation) {
+        return SwankPacketBuilder.builder().rex("swank:inspector-reinspect")
+                .endRex(packageName, thread(threadId), continuation)
+                .build();
     }
 
-    public static SwankPacket stepperIn(BigInteger threadId, String packageName, BigInteger continuation) {
-        packageName = StringUtils.replace(packageName, "\\", "\\\\");
-        packageName = StringUtils.replace(packageName, "\"", "\\\"");
-        String formatted = String.format("(:emacs-rex (swank:sldb-step 0) \":%s\" %s %s)",
-                packageName, threadId, continuation);
-        return new SwankPacket(formatted);
+    public static SwankPacket inspectSymbol(String symbol, BigInteger threadId, String packageName, long continuation) {
+        return SwankPacketBuilder.builder().rex("swank:init-inspector")
+                .string(symbol)
+                .endRex(packageName, thread(threadId), continuation)
+                .build();
     }
 
-    public static SwankPacket stepperOut(BigInteger threadId, String packageName, BigInteger continuation) {
-        packageName = StringUtils.replace(packageName, "\\", "\\\\");
-        packageName = StringUtils.replace(packageName, "\"", "\\\"");
-        String formatted = String.format("(:emacs-rex (swank:sldb-out 0) \":%s\" %s %s)",
-                packageName, threadId, continuation);
-        return new SwankPacket(formatted);
+    public static SwankPacket activateStepping(BigInteger threadId, String packageName, long continuation) {
+        return SwankPacketBuilder.builder().rex("swank::activate-stepping")
+                .number(0)
+                .endRex(packageName, String.valueOf(threadId), continuation)
+                .build();
     }
 
-    public static SwankPacket stepperNext(BigInteger threadId, String packageName, BigInteger continuation) {
-        packageName = StringUtils.replace(packageName, "\\", "\\\\");
-        packageName = StringUtils.replace(packageName, "\"", "\\\"");
-        String formatted = String.format("(:emacs-rex (swank:sldb-next 0) \":%s\" %s %s)",
-                packageName, threadId, continuation);
-        return new SwankPacket(formatted);
+    public static SwankPacket stepperIn(BigInteger threadId, String packageName, long continuation) {
+        return SwankPacketBuilder.builder().rex("swank:sldb-step")
+                .number(0)
+                .endRex(packageName, String.valueOf(threadId), continuation)
+                .build();
     }
 
-    public static SwankPacket loadFile(String file, String breakpoints, BigInteger continuation) {
+    public static SwankPacket stepperOut(BigInteger threadId, String packageName, long continuation) {
+        return SwankPacketBuilder.builder().rex("swank:sldb-out")
+                .number(0)
+                .endRex(packageName, String.valueOf(threadId), continuation)
+                .build();
+    }
+
+    public static SwankPacket stepperNext(BigInteger threadId, String packageName, long continuation) {
+        return SwankPacketBuilder.builder().rex("swank:sldb-next")
+                .number(0)
+                .endRex(packageName, String.valueOf(threadId), continuation)
+                .build();
+    }
+
+    private static String thread(BigInteger threadId) {
+        return threadId == null ? "T" : threadId.toString();
+    }
+
+    public static SwankPacket loadFile(String file, String breakpoints, long continuation) {
         return loadFile(file, breakpoints, "CL-USER", continuation);
     }
 
-    public static SwankPacket loadFile(String file, String breakpoints, String packageName, BigInteger continuation) {
+    public static SwankPacket loadFile(String file, String breakpoints, String packageName, long continuation) {
         return loadFile(file, breakpoints, packageName, "T", continuation);
     }
 
-    public static SwankPacket loadFile(String file, String breakpoints, String packageName, String thread, BigInteger continuation) {
-        if (breakpoints == null) {
-            breakpoints = "NIL";
-        } else {
-            breakpoints = "\"" + breakpoints + "\"";
-        }
-        packageName = StringUtils.replace(packageName, "\\", "\\\\");
-        packageName = StringUtils.replace(packageName, "\"", "\\\"");
-        file = StringUtils.replace(file, "\\", "\\\\");
-        file = StringUtils.replace(file, "\"", "\\\"");
-        String formatted = String.format("(:emacs-rex (swank:load-file-breakpoints \"%s\" %s) \":%s\" %s %s)",
-                file, breakpoints, packageName, thread, continuation);
-        return new SwankPacket(formatted);
+    public static SwankPacket loadFile(String file, String breakpoints, String packageName, String thread, long continuation) {
+        SwankPacketBuilder builder = SwankPacketBuilder.builder().rex("swank:load-file-breakpoints")
+                .string(file);
+        return breakpoints(builder, breakpoints)
+                .endRex(packageName, thread, continuation)
+                .build();
     }
 
-    public static SwankPacket macroexpand1(String form, String packageName, BigInteger continuation) {
+    public static SwankPacket macroexpand1(String form, String packageName, long continuation) {
         return macroexpand1(form, "T", packageName, continuation);
     }
 
-    public static SwankPacket macroexpand1(String form, String threadId, String packageName, BigInteger continuation) {
-        form = StringUtils.replace(form, "\\", "\\\\");
-        form = StringUtils.replace(form, "\"", "\\\"");
-        packageName = StringUtils.replace(packageName, "\\", "\\\\");
-        packageName = StringUtils.replace(packageName, "\"", "\\\"");
-        String formatted = String.format("(:emacs-rex (swank:swank-macroexpand-1 \"%s\") \":%s\" %s %s)",
-                form, packageName, threadId, continuation);
-        return new SwankPacket(formatted);
+    public static SwankPacket macroexpand1(String form, String threadId, String packageName, long continuation) {
+        return SwankPacketBuilder.builder().rex("swank:swank-macroexpand-1")
+                .string(form)
+                .endRex(packageName, threadId, continuation)
+                .build();
     }
 
-    public static SwankPacket macroexpand(String form, String packageName, BigInteger continuation) {
+    public static SwankPacket macroexpand(String form, String packageName, long continuation) {
         return macroexpand(form, "T", packageName, continuation);
     }
 
-    public static SwankPacket macroexpand(String form, String threadId, String packageName, BigInteger continuation) {
-        form = StringUtils.replace(form, "\\", "\\\\");
-        form = StringUtils.replace(form, "\"", "\\\"");
-        packageName = StringUtils.replace(packageName, "\\", "\\\\");
-        packageName = StringUtils.replace(packageName, "\"", "\\\"");
-        String formatted = String.format("(:emacs-rex (swank:swank-macroexpand \"%s\") \":%s\" %s %s)",
-                form, packageName, threadId, continuation);
-        return new SwankPacket(formatted);
+    public static SwankPacket macroexpand(String form, String threadId, String packageName, long continuation) {
+        return SwankPacketBuilder.builder().rex("swank:swank-macroexpand")
+                .string(form)
+                .endRex(packageName, threadId, continuation)
+                .build();
     }
 
-    public static SwankPacket macroexpandAll(String form, String packageName, BigInteger continuation) {
+    public static SwankPacket macroexpandAll(String form, String packageName, long continuation) {
         return macroexpandAll(form, "T", packageName, continuation);
     }
 
-    public static SwankPacket macroexpandAll(String form, String threadId, String packageName, BigInteger continuation) {
-        form = StringUtils.replace(form, "\\", "\\\\");
-        form = StringUtils.replace(form, "\"", "\\\"");
-        packageName = StringUtils.replace(packageName, "\\", "\\\\");
-        packageName = StringUtils.replace(packageName, "\"", "\\\"");
-        String formatted = String.format("(:emacs-rex (swank:swank-macroexpand-all \"%s\") \":%s\" %s %s)",
-                form, packageName, threadId, continuation);
-        return new SwankPacket(formatted);
+    public static SwankPacket macroexpandAll(String form, String threadId, String packageName, long continuation) {
+        return SwankPacketBuilder.builder().rex("swank:swank-macroexpand-all")
+                .string(form)
+                .endRex(packageName, threadId, continuation)
+                .build();
     }
 
-    public static SwankPacket simpleCompletion(String prefix, String packageName, String requestPackageName, BigInteger continuation) {
+    public static SwankPacket simpleCompletion(String prefix, String packageName, String requestPackageName, long continuation) {
         return simpleCompletion(prefix, packageName, "T", requestPackageName, continuation);
     }
 
-    public static SwankPacket simpleCompletion(String prefix, String packageName, String threadId, String requestPackageName, BigInteger continuation) {
-        requestPackageName = StringUtils.replace(requestPackageName, "\\", "\\\\");
-        requestPackageName = StringUtils.replace(requestPackageName, "\"", "\\\"");
-        String formatted = String.format("(:emacs-rex (swank:simple-completions \"%s\" \"%s\") \":%s\" %s %s)",
-                prefix, packageName, requestPackageName, threadId, continuation);
-        return new SwankPacket(formatted);
+    public static SwankPacket simpleCompletion(String prefix, String packageName, String threadId, String requestPackageName, long continuation) {
+        return SwankPacketBuilder.builder().rex("swank:simple-completions")
+                .string(prefix).string(packageName)
+                .endRex(requestPackageName, threadId, continuation)
+                .build();
     }
 
-    public static SwankPacket xrefs(String types, String name, String packageName, BigInteger continuation) {
+    public static SwankPacket xrefs(String types, String name, String packageName, long continuation) {
         return xrefs(types, name, "T", packageName, continuation);
     }
 
-    public static SwankPacket xrefs(String types, String name, String threadId, String requestPackageName, BigInteger continuation) {
-        name = StringUtils.replace(name, "\\", "\\\\");
-        name = StringUtils.replace(name, "\"", "\\\"");
-        requestPackageName = StringUtils.replace(requestPackageName, "\\", "\\\\");
-        requestPackageName = StringUtils.replace(requestPackageName, "\"", "\\\"");
-        String formatted = String.format("(:emacs-rex (swank:xrefs '(%s) \"%s\") \":%s\" %s %s)",
-                types, name, requestPackageName, threadId, continuation);
-        return new SwankPacket(formatted);
+    public static SwankPacket xrefs(String types, String name, String threadId, String requestPackageName, long continuation) {
+        return SwankPacketBuilder.builder().rex("swank:xrefs")
+                .quote().list().raw(types).end().string(name)
+                .endRex(requestPackageName, threadId, continuation)
+                .build();
     }
 
-    public static SwankPacket completeSearch(String prefix, String type, BigInteger continuation) {
+    public static SwankPacket completeSearch(String prefix, String type, long continuation) {
         return completeSearch(prefix, type, ":CL-USER", continuation);
     }
 
-    public static SwankPacket completeSearch(String prefix, String type, String packageName, BigInteger continuation) {
+    public static SwankPacket completeSearch(String prefix, String type, String packageName, long continuation) {
         return completeSearch(prefix, type, "T", packageName, continuation);
     }
 
-    public static SwankPacket completeSearch(String prefix, String type, String threadId, String packageName, BigInteger continuation) {
-        prefix = StringUtils.replace(prefix, "\\", "\\\\");
-        prefix = StringUtils.replace(prefix, "\"", "\\\"");
-        packageName = StringUtils.replace(packageName, "\\", "\\\\");
-        packageName = StringUtils.replace(packageName, "\"", "\\\"");
-        String formatted = String.format("(:emacs-rex (swank:find-reference-prefix \"%s\" %s) \":%s\" %s %s)",
-                prefix, type, packageName, threadId, continuation);
-        return new SwankPacket(formatted);
+    public static SwankPacket completeSearch(String prefix, String type, String threadId, String packageName, long continuation) {
+        return SwankPacketBuilder.builder().rex("swank:find-reference-prefix")
+                .string(prefix).raw(type)
+                .endRex(packageName, threadId, continuation)
+                .build();
     }
 
-    public static SwankPacket dumpThreads(BigInteger continuation) {
-        String formatted = String.format("(:emacs-rex (swank:list-threads) \":CL-USER\" T %s)", continuation);
-        return new SwankPacket(formatted);
+    public static SwankPacket batch(List<SwankPacket> requests, long continuation) {
+        SwankPacketBuilder builder = SwankPacketBuilder.builder().rex("swank:slt-batch").vector();
+        for (SwankPacket request : requests) {
+            builder.packet(request);
+        }
+        return builder.end()
+                .endRex("CL-USER", "T", continuation)
+                .build();
     }
 
-    public static SwankPacket breakThread(BigInteger thread, BigInteger continuation) {
-        String formatted = String.format("(:emacs-rex (swank:debug-nth-thread %s) \":CL-USER\" T %s)", thread, continuation);
-        return new SwankPacket(formatted);
+    public static SwankPacket dumpThreads(long continuation) {
+        return SwankPacketBuilder.builder().rex("swank:list-threads")
+                .endRex("CL-USER", "T", continuation)
+                .build();
     }
 
-    public static SwankPacket killThread(BigInteger thread, BigInteger continuation) {
-        String formatted = String.format("(:emacs-rex (swank:kill-nth-thread %s) \":CL-USER\" T %s)", thread, continuation);
-        return new SwankPacket(formatted);
+    public static SwankPacket breakThread(BigInteger thread, long continuation) {
+        return SwankPacketBuilder.builder().rex("swank:debug-nth-thread")
+                .number(thread)
+                .endRex("CL-USER", "T", continuation)
+                .build();
     }
 
-    public static SwankPacket argslist(String symbol, String packageName, BigInteger continuation) {
-        symbol = StringUtils.replace(symbol, "\\", "\\\\");
-        symbol = StringUtils.replace(symbol, "\"", "\\\"");
-        packageName = StringUtils.replace(packageName, "\\", "\\\\");
-        packageName = StringUtils.replace(packageName, "\"", "\\\"");
+    public static SwankPacket killThread(BigInteger thread, long continuation) {
+        return SwankPacketBuilder.builder().rex("swank:kill-nth-thread")
+                .number(thread)
+                .endRex("CL-USER", "T", continuation)
+                .build();
+    }
 
-        String formatted = String.format("(:emacs-rex (swank:operator-arglist \"%s\" \"%s\") \":CL-USER\" T %s)", symbol, packageName, continuation);
-        return new SwankPacket(formatted);
+    public static SwankPacket argslist(String symbol, String packageName, long continuation) {
+        return SwankPacketBuilder.builder().rex("swank:operator-arglist")
+                .string(symbol).string(packageName)
+                .endRex("CL-USER", "T", continuation)
+                .build();
     }
 
     private int length;
     private String expressionSource;
+    private byte[] frame;
+    private long firstByteNanos;
+    private long decodedNanos;
 
-    public static SwankPacket fromInput(InputStream is) throws Exception {
-        byte[] header = new byte[6];
-        IOUtils.readFully(is, header);
-        int length = Integer.parseInt(new String(header, StandardCharsets.UTF_8), 16);
-        byte[] data = new byte[length];
-        IOUtils.readFully(is, data);
+    static SwankPacket fromDecoded(String expressionSource, int length) {
         SwankPacket packet = new SwankPacket();
         packet.length = length;
-        packet.expressionSource = new String(data, StandardCharsets.UTF_8);
+        packet.expressionSource = expressionSource;
         return packet;
     }
 
     public SwankPacket(String expressionSource) {
         this.expressionSource = expressionSource;
-        this.length = expressionSource.getBytes(StandardCharsets.UTF_8).length;
+        this.frame = encodeFrame(expressionSource);
+        this.length = frame.length - SwankFraming.HEADER_LENGTH - 1;
+    }
+
+    /**
+     * @param frame complete frame produced by {@link SwankPacketBuilder}, message is decoded lazily
+     */
+    SwankPacket(byte[] frame) {
+        this.frame = frame;
+        this.length = frame.length - SwankFraming.HEADER_LENGTH - 1;
     }
 
     private SwankPacket() {
 
     }
 
-    public void writeTo(OutputStream inputStream) throws Exception {
-        String length = String.format("%06X", this.length+1);
-        IOUtils.write(length.getBytes(StandardCharsets.UTF_8), inputStream);
-        IOUtils.write(expressionSource.getBytes(StandardCharsets.UTF_8), inputStream);
-        IOUtils.write("\n".getBytes(StandardCharsets.UTF_8), inputStream);
+    private static byte[] encodeFrame(String expressionSource) {
+        int length = utf8Length(expressionSource);
+        byte[] frame = new byte[SwankFraming.HEADER_LENGTH + length + 1];
+        int messageLength = length + 1;
+        for (int i = SwankFraming.HEADER_LENGTH - 1; i >= 0; i--) {
+            frame[i] = (byte) Character.toUpperCase(Character.forDigit(messageLength & 0xF, 16));
+            messageLength >>>= 4;
+        }
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        encoder.encode(CharBuffer.wrap(expressionSource),
+                ByteBuffer.wrap(frame, SwankFraming.HEADER_LENGTH, length), true);
+        frame[frame.length - 1] = '\n';
+        return frame;
+    }
+
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                ++length;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                ++i;
+            } else if (Character.isSurrogate(c)) {
+                ++length;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * @return whole frame (header, message and newline) as single buffer, backed by cached encoded data
+     */
+    public ByteBuffer toBuffer() {
+        if (frame == null) {
+            frame = encodeFrame(expressionSource);
+        }
+        return ByteBuffer.wrap(frame).asReadOnlyBuffer();
+    }
+
+    /**
+     * @return whole encoded frame, shared with this packet and must not be modified
+     */
+    byte[] getFrame() {
+        if (frame == null) {
+            frame = encodeFrame(expressionSource);
+        }
+        return frame;
+    }
+
+    /**
+     * Records when first byte of received packet arrived and when it was decoded.
+     */
+    void received(long firstByteNanos, long decodedNanos) {
+        this.firstByteNanos = firstByteNanos;
+        this.decodedNanos = decodedNanos;
+    }
+
+    /**
+     * @return nano time first byte of this packet was read, 0 if packet was not received by {@link SwankClient}
+     */
+    public long getFirstByteNanos() {
+        return firstByteNanos;
+    }
+
+    public long getDecodedNanos() {
+        return decodedNanos;
+    }
+
+    public int getLength() {
+        return length;
     }
 
     @Override
     public String toString() {
         return "SlimePacket{" +
                 "length=" + length +
-                ", expressionSource='" + expressionSource + '\'' +
+                ", expressionSource='" + getSentData() + '\'' +
                 '}';
     }
 
     public String getSentData() {
+        if (expressionSource == null) {
+            expressionSource = new String(frame, SwankFraming.HEADER_LENGTH, frame.length - SwankFraming.HEADER_LENGTH - 1,
+                    StandardCharsets.UTF_8);
+        }
         return expressionSource;
     }
 }
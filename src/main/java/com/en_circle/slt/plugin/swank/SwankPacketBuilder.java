@@ -0,0 +1,248 @@
+package com.en_circle.slt.plugin.swank;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Writes swank message token by token straight into utf-8 encoded frame.
+ *
+ * Strings are escaped while they are encoded, so arguments are copied exactly once no matter how large they are.
+ * Space for the length header is reserved up front and filled in by {@link #build()}. Each thread reuses its
+ * builder and its buffer, buffers grown by large messages are dropped after the packet is built.
+ *
+ * Tokens are separated by single space automatically.
+ */
+public class SwankPacketBuilder {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int RETAINED_CAPACITY = 64 * 1024;
+
+    private static final ThreadLocal<SwankPacketBuilder> builders = ThreadLocal.withInitial(SwankPacketBuilder::new);
+
+    /**
+     * @return empty builder, reused by the thread unless another message is being built on it at the moment
+     */
+    public static SwankPacketBuilder builder() {
+        SwankPacketBuilder builder = builders.get();
+        if (builder.inUse) {
+            builder = new SwankPacketBuilder();
+        }
+        builder.inUse = true;
+        builder.reset();
+        return builder;
+    }
+
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+    private int position;
+    private boolean separate;
+    private boolean inString;
+    private boolean inUse;
+
+    private SwankPacketBuilder() {
+
+    }
+
+    private void reset() {
+        position = SwankFraming.HEADER_LENGTH;
+        separate = false;
+        inString = false;
+    }
+
+    public SwankPacketBuilder list() {
+        token();
+        write('(');
+        separate = false;
+        return this;
+    }
+
+    /**
+     * Starts #( vector literal, closed by {@link #end()}.
+     */
+    public SwankPacketBuilder vector() {
+        token();
+        write('#');
+        write('(');
+        separate = false;
+        return this;
+    }
+
+    public SwankPacketBuilder end() {
+        write(')');
+        separate = true;
+        return this;
+    }
+
+    /**
+     * Quotes next token.
+     */
+    public SwankPacketBuilder quote() {
+        token();
+        write('\'');
+        separate = false;
+        return this;
+    }
+
+    /**
+     * Writes symbol, keyword or already formatted form as is.
+     */
+    public SwankPacketBuilder raw(String value) {
+        token();
+        writeChars(value, false);
+        separate = true;
+        return this;
+    }
+
+    public SwankPacketBuilder number(long value) {
+        return raw(Long.toString(value));
+    }
+
+    public SwankPacketBuilder number(BigInteger value) {
+        return raw(String.valueOf(value));
+    }
+
+    /**
+     * Writes escaped string literal.
+     */
+    public SwankPacketBuilder string(String value) {
+        return beginString().stringContent(value).endString();
+    }
+
+    /**
+     * Starts string literal assembled from several parts with {@link #stringContent(String)}.
+     */
+    public SwankPacketBuilder beginString() {
+        token();
+        write('"');
+        inString = true;
+        return this;
+    }
+
+    /**
+     * Appends escaped content to string started by {@link #beginString()}.
+     */
+    public SwankPacketBuilder stringContent(String value) {
+        if (!inString) {
+            throw new IllegalStateException("Not in string");
+        }
+        writeChars(value, true);
+        return this;
+    }
+
+    public SwankPacketBuilder endString() {
+        write('"');
+        inString = false;
+        separate = true;
+        return this;
+    }
+
+    /**
+     * Appends message of other packet as escaped string literal, so that receiver can read it later in its own
+     * package.
+     */
+    public SwankPacketBuilder packet(SwankPacket packet) {
+        beginString();
+        byte[] frame = packet.getFrame();
+        int end = frame.length - 1;
+        // escaped bytes are ascii and never part of multibyte utf-8 sequence
+        ensureCapacity(packet.getLength() * 2);
+        for (int i = SwankFraming.HEADER_LENGTH; i < end; i++) {
+            byte b = frame[i];
+            if (b == '"' || b == '\\') {
+                buffer[position++] = '\\';
+            }
+            buffer[position++] = b;
+        }
+        return endString();
+    }
+
+    /**
+     * Starts (:emacs-rex (function ...) call, arguments follow, finished by {@link #endRex(String, String, long)}.
+     */
+    public SwankPacketBuilder rex(String function) {
+        return list().raw(":emacs-rex").list().raw(function);
+    }
+
+    /**
+     * Closes function call started by {@link #rex(String)} and writes package as ":package" string, thread and
+     * continuation.
+     */
+    public SwankPacketBuilder endRex(String packageName, String thread, long continuation) {
+        return end().beginString().stringContent(":").stringContent(packageName).endString()
+                .raw(thread).number(continuation).end();
+    }
+
+    /**
+     * Finishes the frame, builder must not be used after this call.
+     */
+    public SwankPacket build() {
+        write('\n');
+        int messageLength = position - SwankFraming.HEADER_LENGTH;
+        if (messageLength > 0xFFFFFF) {
+            inUse = false;
+            throw new IllegalStateException("Swank message too large: " + messageLength);
+        }
+        for (int i = SwankFraming.HEADER_LENGTH - 1; i >= 0; i--) {
+            buffer[i] = (byte) Character.toUpperCase(Character.forDigit(messageLength & 0xF, 16));
+            messageLength >>>= 4;
+        }
+        byte[] frame = Arrays.copyOf(buffer, position);
+        if (buffer.length > RETAINED_CAPACITY) {
+            buffer = new byte[INITIAL_CAPACITY];
+        }
+        inUse = false;
+        return new SwankPacket(frame);
+    }
+
+    private void token() {
+        if (separate) {
+            write(' ');
+        }
+    }
+
+    private void write(char c) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) c;
+    }
+
+    private void writeChars(String value, boolean escape) {
+        int length = value.length();
+        // worst case is 3 bytes per char, escaped chars take 2 and surrogate pairs 4 per 2 chars
+        ensureCapacity(length * 3);
+        byte[] buffer = this.buffer;
+        int position = this.position;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (escape && (c == '"' || c == '\\')) {
+                    buffer[position++] = '\\';
+                }
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buffer[position++] = '?';
+            } else {
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        this.position = position;
+    }
+
+    private void ensureCapacity(int additional) {
+        // one byte is always kept for the trailing newline
+        int required = position + additional + 1;
+        if (required > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length * 2));
+        }
+    }
+
+}
@@ -0,0 +1,421 @@
+package com.en_circle.slt.plugin.swank;
+
+import com.en_circle.slt.plugin.lisp.lisp.*;
+import com.en_circle.slt.plugin.lisp.lisp.LispComplex.ComplexNumber;
+import com.en_circle.slt.plugin.lisp.lisp.LispContainer.ContainerType;
+import com.en_circle.slt.plugin.lisp.lisp.LispRational.RationalNumber;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Single pass reader of swank wire data into {@link LispElement} trees.
+ *
+ * Does not use PSI, so it is safe to use from any thread and does not need a project. Produces same element
+ * shapes as {@link LispUtils#convertAst(com.intellij.psi.PsiFile)} - strings keep their escapes, symbols keep their
+ * source text, quotes and comments are dropped.
+ */
+public class SwankReader {
+
+    public static List<LispElement> read(String data) {
+        return new SwankReader(data).readAll();
+    }
+
+    private final String data;
+    private final int length;
+    private int position;
+
+    public SwankReader(String data) {
+        this.data = data;
+        this.length = data.length();
+        this.position = 0;
+    }
+
+    public List<LispElement> readAll() {
+        List<LispElement> elements = new ArrayList<>();
+        while (true) {
+            skipWhitespaceAndComments();
+            if (position >= length) {
+                return elements;
+            }
+            if (data.charAt(position) == ')') {
+                // unbalanced parenthesis, ignore like the PSI parser does
+                ++position;
+                continue;
+            }
+            readInto(elements);
+        }
+    }
+
+    private void readInto(List<LispElement> target) {
+        char c = data.charAt(position);
+        switch (c) {
+            case '(' -> {
+                ++position;
+                target.add(new LispContainer(readSequence(), ContainerType.LIST));
+            }
+            case '"' -> target.add(readString());
+            case '\'', '`' -> {
+                ++position;
+                readNext(target);
+            }
+            case ',' -> {
+                ++position;
+                if (position < length && data.charAt(position) == '@') {
+                    ++position;
+                }
+                readNext(target);
+            }
+            case '#' -> readDispatch(target);
+            default -> readToken(target);
+        }
+    }
+
+    private void readNext(List<LispElement> target) {
+        skipWhitespaceAndComments();
+        if (position < length && data.charAt(position) != ')') {
+            readInto(target);
+        }
+    }
+
+    private LispElement readNextElement() {
+        List<LispElement> elements = new ArrayList<>(1);
+        readNext(elements);
+        return elements.isEmpty() ? null : elements.get(0);
+    }
+
+    private List<LispElement> readSequence() {
+        List<LispElement> items = new ArrayList<>();
+        while (true) {
+            skipWhitespaceAndComments();
+            if (position >= length) {
+                return items;
+            }
+            if (data.charAt(position) == ')') {
+                ++position;
+                return items;
+            }
+            readInto(items);
+        }
+    }
+
+    private LispString readString() {
+        int start = position++;
+        while (position < length) {
+            char c = data.charAt(position++);
+            if (c == '\\') {
+                ++position;
+            } else if (c == '"') {
+                return new LispString(data.substring(start, position));
+            }
+        }
+        position = length;
+        return new LispString(data.substring(start) + "\"");
+    }
+
+    private void readDispatch(List<LispElement> target) {
+        int start = position++;
+        while (position < length && Character.isDigit(data.charAt(position))) {
+            ++position;
+        }
+        if (position >= length) {
+            target.add(new LispUnparsedElement(data.substring(start)));
+            return;
+        }
+        char c = data.charAt(position++);
+        switch (c) {
+            case '(' -> target.add(new LispContainer(readSequence(), ContainerType.VECTOR));
+            case '\'', '.', '=' -> readNext(target);
+            case ':' -> readToken(target);
+            case '#' -> {
+                // reference label, dropped like the PSI parser does
+            }
+            case '+', '-' -> {
+                readNext(target);
+                readNext(target);
+            }
+            case '|' -> skipBlockComment();
+            case '\\' -> {
+                ++position;
+                skipToken();
+                target.add(new LispUnparsedElement(data.substring(start, position)));
+            }
+            case 'a', 'A' -> {
+                LispElement array = readNextElement();
+                List<LispElement> items = new ArrayList<>(1);
+                if (array != null) {
+                    items.add(array);
+                }
+                target.add(new LispContainer(items, ContainerType.VECTOR));
+            }
+            case 's', 'S' -> {
+                List<LispElement> items = new ArrayList<>();
+                items.add(new LispSymbol("defstructure"));
+                readNext(items);
+                target.add(new LispContainer(items, ContainerType.LIST));
+            }
+            case 'c', 'C' -> target.add(readComplex(start));
+            case 'p', 'P' -> {
+                readNextElement();
+                target.add(new LispUnparsedElement(data.substring(start, position)));
+            }
+            case '<' -> {
+                int depth = 1;
+                while (position < length && depth > 0) {
+                    char n = data.charAt(position++);
+                    if (n == '<') {
+                        ++depth;
+                    } else if (n == '>') {
+                        --depth;
+                    }
+                }
+                target.add(new LispUnparsedElement(data.substring(start, position)));
+            }
+            default -> {
+                skipToken();
+                target.add(new LispUnparsedElement(data.substring(start, position)));
+            }
+        }
+    }
+
+    private LispElement readComplex(int start) {
+        LispElement parts = readNextElement();
+        String text = data.substring(start, position);
+        if (parts instanceof LispContainer container && container.getItems().size() == 2) {
+            LispDouble r = asDouble(container.getItems().get(0));
+            LispDouble i = asDouble(container.getItems().get(1));
+            if (r != null && i != null) {
+                return new LispComplex(text, new ComplexNumber(r, i));
+            }
+        }
+        return new LispUnparsedElement(text);
+    }
+
+    private LispDouble asDouble(LispElement element) {
+        if (element instanceof LispDouble lispDouble) {
+            return lispDouble;
+        } else if (element instanceof LispInteger lispInteger) {
+            return new LispDouble(lispInteger.toString(), new BigDecimal(lispInteger.getValue()));
+        }
+        return null;
+    }
+
+    private void readToken(List<LispElement> target) {
+        int start = position;
+        boolean escaped = skipToken();
+        if (start == position) {
+            // lone terminating character that cannot start a token
+            ++position;
+            return;
+        }
+        String token = data.substring(start, position);
+        if (!escaped) {
+            if (isDots(token)) {
+                // dotted pair marker, dropped like the PSI parser does
+                return;
+            }
+            LispElement number = parseNumber(token);
+            if (number != null) {
+                target.add(number);
+                return;
+            }
+        }
+        target.add(new LispSymbol(token));
+    }
+
+    private boolean skipToken() {
+        boolean escaped = false;
+        boolean multipleEscape = false;
+        while (position < length) {
+            char c = data.charAt(position);
+            if (multipleEscape) {
+                if (c == '|') {
+                    multipleEscape = false;
+                } else if (c == '\\') {
+                    ++position;
+                }
+            } else if (c == '|') {
+                escaped = true;
+                multipleEscape = true;
+            } else if (c == '\\') {
+                escaped = true;
+                ++position;
+            } else if (isWhitespace(c) || isTerminating(c)) {
+                break;
+            }
+            ++position;
+        }
+        if (position > length) {
+            position = length;
+        }
+        return escaped;
+    }
+
+    private void skipWhitespaceAndComments() {
+        while (position < length) {
+            char c = data.charAt(position);
+            if (isWhitespace(c)) {
+                ++position;
+            } else if (c == ';') {
+                while (position < length && data.charAt(position) != '\n') {
+                    ++position;
+                }
+            } else if (c == '#' && position + 1 < length && data.charAt(position + 1) == '|') {
+                position += 2;
+                skipBlockComment();
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void skipBlockComment() {
+        int depth = 1;
+        while (position < length && depth > 0) {
+            char c = data.charAt(position++);
+            if (c == '|' && position < length && data.charAt(position) == '#') {
+                ++position;
+                --depth;
+            } else if (c == '#' && position < length && data.charAt(position) == '|') {
+                ++position;
+                ++depth;
+            }
+        }
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\f';
+    }
+
+    private static boolean isTerminating(char c) {
+        return c == '(' || c == ')' || c == '"' || c == '\'' || c == ';' || c == '`' || c == ',';
+    }
+
+    private static boolean isDots(String token) {
+        for (int i = 0; i < token.length(); i++) {
+            if (token.charAt(i) != '.') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static LispElement parseNumber(String token) {
+        int len = token.length();
+        int ix = 0;
+        boolean negative = false;
+        if (token.charAt(0) == '+' || token.charAt(0) == '-') {
+            negative = token.charAt(0) == '-';
+            ++ix;
+        }
+        int digitsStart = ix;
+        while (ix < len && isDigit(token.charAt(ix))) {
+            ++ix;
+        }
+        int beforeDot = ix - digitsStart;
+
+        if (ix == len) {
+            if (beforeDot == 0) {
+                return null;
+            }
+            return integer(token, digitsStart, ix, negative);
+        }
+
+        char c = token.charAt(ix);
+        if (c == '/') {
+            int qStart = ++ix;
+            while (ix < len && isDigit(token.charAt(ix))) {
+                ++ix;
+            }
+            if (beforeDot == 0 || ix == qStart || ix != len) {
+                return null;
+            }
+            BigInteger p = parseInteger(token, digitsStart, qStart - 1, negative);
+            BigInteger q = new BigInteger(token.substring(qStart, ix));
+            return new LispRational(token, new RationalNumber(p, q));
+        }
+
+        int afterDot = 0;
+        if (c == '.') {
+            ++ix;
+            if (ix == len) {
+                if (beforeDot == 0) {
+                    return null;
+                }
+                return integer(token, digitsStart, ix - 1, negative);
+            }
+            int afterStart = ix;
+            while (ix < len && isDigit(token.charAt(ix))) {
+                ++ix;
+            }
+            afterDot = ix - afterStart;
+        }
+        if (beforeDot == 0 && afterDot == 0) {
+            return null;
+        }
+
+        int mantissaEnd = ix;
+        String exponent = null;
+        if (ix < len) {
+            if (!isExponentMarker(token.charAt(ix))) {
+                return null;
+            }
+            int exponentStart = ++ix;
+            if (ix < len && (token.charAt(ix) == '+' || token.charAt(ix) == '-')) {
+                ++ix;
+            }
+            int exponentDigits = ix;
+            while (ix < len && isDigit(token.charAt(ix))) {
+                ++ix;
+            }
+            if (ix == exponentDigits || ix != len) {
+                return null;
+            }
+            exponent = token.substring(exponentStart, ix);
+        } else if (afterDot == 0) {
+            return null;
+        }
+
+        String mantissa = token.substring(0, mantissaEnd);
+        if (mantissa.endsWith(".")) {
+            mantissa = mantissa + "0";
+        }
+        if (mantissa.startsWith(".") || mantissa.startsWith("+.") || mantissa.startsWith("-.")) {
+            mantissa = mantissa.replace(".", "0.");
+        }
+        BigDecimal value = new BigDecimal(exponent == null ? mantissa : mantissa + "E" + exponent);
+        return new LispDouble(token, value);
+    }
+
+    private static LispInteger integer(String token, int start, int end, boolean negative) {
+        if (end - start < 18) {
+            long value = Long.parseLong(token, start, end, 10);
+            return new LispInteger(token, negative ? -value : value);
+        }
+        return new LispInteger(token, parseInteger(token, start, end, negative));
+    }
+
+    private static BigInteger parseInteger(String token, int start, int end, boolean negative) {
+        BigInteger value;
+        if (end - start < 18) {
+            value = BigInteger.valueOf(Long.parseLong(token, start, end, 10));
+        } else {
+            value = new BigInteger(token.substring(start, end));
+        }
+        return negative ? value.negate() : value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isExponentMarker(char c) {
+        return switch (c) {
+            case 'e', 'E', 's', 'S', 'f', 'F', 'd', 'D', 'l', 'L' -> true;
+            default -> false;
+        };
+    }
+
+}
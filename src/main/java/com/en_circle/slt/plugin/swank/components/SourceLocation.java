@@ -13,6 +13,13 @@ public class SourceLocation {
 
     }
 
+    public SourceLocation(String location, int position, boolean isPrecise, boolean isFile) {
+        this.location = location;
+        this.position = position;
+        this.isPrecise = isPrecise;
+        this.isFile = isFile;
+    }
+
     public SourceLocation(LispElement srcElement) {
         try {
             LispContainer src = (LispContainer) srcElement;
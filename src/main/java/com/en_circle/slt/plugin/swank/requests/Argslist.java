@@ -7,8 +7,6 @@ import com.en_circle.slt.plugin.swank.SlimeRequest;
 import com.en_circle.slt.plugin.swank.SwankPacket;
 import com.intellij.openapi.project.Project;
 
-import java.math.BigInteger;
-
 public class Argslist extends SlimeRequest {
 
     public static SlimeRequest getArgslist(String symbol, String packageName, Callback callback) {
@@ -26,10 +24,26 @@ public class Argslist extends SlimeRequest {
     }
 
     @Override
-    public SwankPacket createPacket(BigInteger requestId, Project project) {
+    protected RequestPriority getDefaultPriority() {
+        return RequestPriority.INTERACTIVE;
+    }
+
+    @Override
+    public boolean isIdempotent() {
+        return true;
+    }
+
+    @Override
+    public String getCoalescingKey() {
+        return "argslist " + packageName + " " + symbol;
+    }
+
+    @Override
+    public SwankPacket createPacket(long requestId, Project project) {
         return SwankPacket.argslist(symbol, packageName, requestId);
     }
 
+    @Override
     public void processReply(LispContainer data) {
         if (isOk(data)) {
             callback.onResult(new LispArgslist(data.getItems().get(1)));
@@ -0,0 +1,127 @@
+package com.en_circle.slt.plugin.swank.requests;
+
+import com.en_circle.slt.plugin.lisp.lisp.LispContainer;
+import com.en_circle.slt.plugin.lisp.lisp.LispElement;
+import com.en_circle.slt.plugin.lisp.lisp.LispSymbol;
+import com.en_circle.slt.plugin.swank.SlimeRequest;
+import com.en_circle.slt.plugin.swank.SwankChannelPool.Channel;
+import com.en_circle.slt.plugin.swank.SwankPacket;
+import com.intellij.openapi.project.Project;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends many independent requests in one round trip, evaluated by swank:slt-batch.
+ *
+ * Every request gets its own (:ok value) or (:abort condition) result, failure of one request does not affect the
+ * others. Messages of the requests are sent as strings, so that each form is read in the package of its request.
+ * Requests are evaluated in order in a single lisp thread, so they should not depend on a particular thread,
+ * ie debugger actions must not be batched.
+ */
+public class Batch extends SlimeRequest {
+
+    private static final Logger log = LoggerFactory.getLogger(Batch.class);
+
+    public static SlimeRequest batch(List<SlimeRequest> requests) {
+        return new Batch(requests);
+    }
+
+    private final List<SlimeRequest> requests;
+
+    private Batch(List<SlimeRequest> requests) {
+        this.requests = new ArrayList<>(requests);
+        long timeout = 0;
+        for (SlimeRequest request : this.requests) {
+            if (request.getTimeoutMillis() == 0) {
+                timeout = 0;
+                break;
+            }
+            timeout = Math.max(timeout, request.getTimeoutMillis());
+        }
+        withTimeout(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected RequestPriority getDefaultPriority() {
+        RequestPriority priority = RequestPriority.BACKGROUND;
+        for (SlimeRequest request : requests) {
+            if (request.getPriority().ordinal() < priority.ordinal()) {
+                priority = request.getPriority();
+            }
+        }
+        return priority;
+    }
+
+    @Override
+    public Channel getChannel() {
+        return requests.isEmpty() ? super.getChannel() : requests.get(0).getChannel();
+    }
+
+    @Override
+    public SwankPacket createPacket(long requestId, Project project) {
+        List<SwankPacket> packets = new ArrayList<>();
+        for (SlimeRequest request : requests) {
+            packets.add(request.createPacket(requestId, project));
+        }
+        return SwankPacket.batch(packets, requestId);
+    }
+
+    @Override
+    public void processReply(LispContainer data) {
+        if (isOk(data) && data.getItems().get(1) instanceof LispContainer results
+                && results.getItems().size() == requests.size()) {
+            for (int i = 0; i < requests.size(); i++) {
+                LispElement result = results.getItems().get(i);
+                if (result instanceof LispContainer container) {
+                    deliver(requests.get(i), container);
+                }
+            }
+        } else {
+            // whole batch failed, ie because it could not be read
+            for (SlimeRequest request : requests) {
+                deliver(request, data);
+            }
+        }
+    }
+
+    private void deliver(SlimeRequest request, LispContainer data) {
+        try {
+            request.processReply(data);
+        } catch (Exception e) {
+            log.warn("Batched request " + request.getClass().getSimpleName() + " failed to process reply", e);
+        }
+    }
+
+    @Override
+    public void onTimeout() {
+        for (SlimeRequest request : requests) {
+            try {
+                request.onTimeout();
+            } catch (Exception e) {
+                log.warn("Batched request " + request.getClass().getSimpleName() + " failed to process timeout", e);
+            }
+        }
+    }
+
+    @Override
+    public void onFinished() {
+        for (SlimeRequest request : requests) {
+            try {
+                request.onFinished();
+            } catch (Exception e) {
+                log.warn("Batched request " + request.getClass().getSimpleName() + " failed to finish", e);
+            }
+        }
+    }
+
+    private boolean isOk(LispContainer data) {
+        return data.getItems().size() > 1 &&
+                data.getItems().get(0) instanceof LispSymbol &&
+                ":ok".equals(((LispSymbol) data.getItems().get(0)).getValue());
+    }
+
+}
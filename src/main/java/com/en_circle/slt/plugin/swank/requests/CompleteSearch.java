@@ -7,8 +7,6 @@ import com.en_circle.slt.plugin.swank.SlimeRequest;
 import com.en_circle.slt.plugin.swank.SwankPacket;
 import com.intellij.openapi.project.Project;
 
-import java.math.BigInteger;
-
 public class CompleteSearch extends SlimeRequest {
 
     public static SlimeRequest search(String prefix, Callback callback) {
@@ -30,10 +28,21 @@ public class CompleteSearch extends SlimeRequest {
     }
 
     @Override
-    public SwankPacket createPacket(BigInteger requestId, Project project) {
+    protected RequestPriority getDefaultPriority() {
+        return RequestPriority.BACKGROUND;
+    }
+
+    @Override
+    public boolean isIdempotent() {
+        return true;
+    }
+
+    @Override
+    public SwankPacket createPacket(long requestId, Project project) {
         return SwankPacket.completeSearch(prefix, searchFilter == null ? "NIL" : searchFilter.str, requestId);
     }
 
+    @Override
     public void processReply(LispContainer data) {
         if (isOk(data)) {
             callback.onResult(data.getItems().get(1));
@@ -5,11 +5,10 @@ import com.en_circle.slt.plugin.lisp.lisp.LispString;
 import com.en_circle.slt.plugin.lisp.lisp.LispSymbol;
 import com.en_circle.slt.plugin.services.lisp.LispEnvironmentService;
 import com.en_circle.slt.plugin.swank.SlimeRequest;
+import com.en_circle.slt.plugin.swank.SwankChannelPool.Channel;
 import com.en_circle.slt.plugin.swank.SwankPacket;
 import com.intellij.openapi.project.Project;
 
-import java.math.BigInteger;
-
 public class Eval extends SlimeRequest {
 
     public static SlimeRequest eval(String code, String module, boolean includeDebugger, Callback callback) {
@@ -40,6 +39,7 @@ public class Eval extends SlimeRequest {
         this.code = code;
     }
 
+    @Override
     public void processReply(LispContainer data) {
         if (isOk(data)) {
             String returnedText = ((LispString) data.getItems().get(1)).getValue();
@@ -54,7 +54,17 @@ public class Eval extends SlimeRequest {
     }
 
     @Override
-    public SwankPacket createPacket(BigInteger requestId, Project project) {
+    protected RequestPriority getDefaultPriority() {
+        return RequestPriority.INTERACTIVE;
+    }
+
+    @Override
+    public Channel getChannel() {
+        return Channel.REPL;
+    }
+
+    @Override
+    public SwankPacket createPacket(long requestId, Project project) {
         return SwankPacket.sltEval(code, includeDebugger ? LispEnvironmentService.getInstance(project)
                 .getBreakpointsForInstall() : null, module, requestId);
     }
@@ -6,13 +6,13 @@ import com.en_circle.slt.plugin.lisp.lisp.LispString;
 import com.en_circle.slt.plugin.lisp.lisp.LispSymbol;
 import com.en_circle.slt.plugin.services.lisp.LispEnvironmentService;
 import com.en_circle.slt.plugin.swank.SlimeRequest;
+import com.en_circle.slt.plugin.swank.SwankChannelPool.Channel;
 import com.en_circle.slt.plugin.swank.SwankPacket;
+import com.en_circle.slt.plugin.swank.SwankReader;
 import com.intellij.openapi.project.Project;
 import org.apache.commons.lang3.StringUtils;
 
-import java.math.BigInteger;
 import java.util.List;
-import java.util.function.Function;
 
 public class EvalAndGrab extends SlimeRequest {
 
@@ -38,16 +38,23 @@ public class EvalAndGrab extends SlimeRequest {
         this.includeDebugger = includeDebugger;
     }
 
-    public void processReply(LispContainer data, Function<String, List<LispElement>> parser) {
+    @Override
+    public Channel getChannel() {
+        // evaluation with breakpoints installed runs user code, plugin queries stay off the REPL
+        return includeDebugger ? Channel.REPL : super.getChannel();
+    }
+
+    @Override
+    public void processReply(LispContainer data) {
         if (isOk(data)) {
             LispContainer list = (LispContainer) data.getItems().get(1);
             String returnedStdout = ((LispString) list.getItems().get(0)).getValue();
             String returnedForm = ((LispString) list.getItems().get(1)).getValue();
             List<LispElement> parsed = null;
-            if (parse && parser != null) {
+            if (parse) {
                 returnedForm = StringUtils.replace(returnedForm, "\\\"", "\"");
                 returnedForm = StringUtils.replace(returnedForm, "\\\\", "\\");
-                parsed = parser.apply(returnedForm);
+                parsed = SwankReader.read(returnedForm);
             }
             callback.onResult(returnedForm, returnedStdout, parsed);
         }
@@ -60,7 +67,7 @@ public class EvalAndGrab extends SlimeRequest {
     }
 
     @Override
-    public SwankPacket createPacket(BigInteger requestId, Project project) {
+    public SwankPacket createPacket(long requestId, Project project) {
         return SwankPacket.swankEvalAndGrab(code,
                 includeDebugger ? LispEnvironmentService.getInstance(project).getBreakpointsForInstall() : null,
                 module, requestId);
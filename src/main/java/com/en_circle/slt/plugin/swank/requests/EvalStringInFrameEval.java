@@ -24,7 +24,7 @@ public class EvalStringInFrameEval extends Eval {
 
 
     @Override
-    public SwankPacket createPacket(BigInteger requestId, Project project) {
+    public SwankPacket createPacket(long requestId, Project project) {
         return SwankPacket.evalInFrame(code, LispEnvironmentService.getInstance(project)
                 .getBreakpointsForInstall(), frame, module, thread, requestId);
     }
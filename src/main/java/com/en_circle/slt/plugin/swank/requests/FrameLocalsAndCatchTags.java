@@ -4,6 +4,7 @@ import com.en_circle.slt.plugin.lisp.lisp.LispContainer;
 import com.en_circle.slt.plugin.lisp.lisp.LispElement;
 import com.en_circle.slt.plugin.lisp.lisp.LispSymbol;
 import com.en_circle.slt.plugin.swank.SlimeRequest;
+import com.en_circle.slt.plugin.swank.SwankChannelPool.Channel;
 import com.en_circle.slt.plugin.swank.SwankPacket;
 import com.intellij.openapi.project.Project;
 
@@ -31,6 +32,7 @@ public class FrameLocalsAndCatchTags extends SlimeRequest {
         this.threadId = threadId;
     }
 
+    @Override
     public void processReply(LispContainer data) {
         if (isOk(data)) {
             callback.onResult(data.getItems().get(1));
@@ -44,7 +46,17 @@ public class FrameLocalsAndCatchTags extends SlimeRequest {
     }
 
     @Override
-    public SwankPacket createPacket(BigInteger requestId, Project project) {
+    protected RequestPriority getDefaultPriority() {
+        return RequestPriority.INTERACTIVE;
+    }
+
+    @Override
+    public Channel getChannel() {
+        return Channel.REPL;
+    }
+
+    @Override
+    public SwankPacket createPacket(long requestId, Project project) {
         return SwankPacket.frameLocals(frame, threadId, module, requestId);
     }
 
@@ -3,12 +3,11 @@ package com.en_circle.slt.plugin.swank.requests;
 import com.en_circle.slt.plugin.lisp.lisp.LispContainer;
 import com.en_circle.slt.plugin.lisp.lisp.LispSymbol;
 import com.en_circle.slt.plugin.swank.SlimeRequest;
+import com.en_circle.slt.plugin.swank.SwankChannelPool.Channel;
 import com.en_circle.slt.plugin.swank.SwankPacket;
 import com.en_circle.slt.plugin.swank.components.ThreadInfo;
 import com.intellij.openapi.project.Project;
 
-import java.math.BigInteger;
-
 public class ListThreads extends SlimeRequest {
 
     public static SlimeRequest dumpThreads(Callback callback) {
@@ -22,10 +21,16 @@ public class ListThreads extends SlimeRequest {
     }
 
     @Override
-    public SwankPacket createPacket(BigInteger requestId, Project project) {
+    public Channel getChannel() {
+        return Channel.REPL;
+    }
+
+    @Override
+    public SwankPacket createPacket(long requestId, Project project) {
         return SwankPacket.dumpThreads(requestId);
     }
 
+    @Override
     public void processReply(LispContainer data) {
         if (isOk(data)) {
             callback.onResult(new ThreadInfo((LispContainer) data.getItems().get(1)));
@@ -2,11 +2,10 @@ package com.en_circle.slt.plugin.swank.requests;
 
 import com.en_circle.slt.plugin.services.lisp.LispEnvironmentService;
 import com.en_circle.slt.plugin.swank.SlimeRequest;
+import com.en_circle.slt.plugin.swank.SwankChannelPool.Channel;
 import com.en_circle.slt.plugin.swank.SwankPacket;
 import com.intellij.openapi.project.Project;
 
-import java.math.BigInteger;
-
 public class LoadFile extends SlimeRequest {
 
     public static SlimeRequest loadFile(String file) {
@@ -20,7 +19,17 @@ public class LoadFile extends SlimeRequest {
     }
 
     @Override
-    public SwankPacket createPacket(BigInteger requestId, Project project) {
+    protected RequestPriority getDefaultPriority() {
+        return RequestPriority.INTERACTIVE;
+    }
+
+    @Override
+    public Channel getChannel() {
+        return Channel.REPL;
+    }
+
+    @Override
+    public SwankPacket createPacket(long requestId, Project project) {
         return SwankPacket.loadFile(file, LispEnvironmentService.getInstance(project).getBreakpointsForInstall(),
                 requestId);
     }
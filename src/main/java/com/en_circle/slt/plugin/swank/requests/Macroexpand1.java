@@ -7,8 +7,6 @@ import com.en_circle.slt.plugin.swank.SlimeRequest;
 import com.en_circle.slt.plugin.swank.SwankPacket;
 import com.intellij.openapi.project.Project;
 
-import java.math.BigInteger;
-
 public class Macroexpand1 extends SlimeRequest {
 
     public static SlimeRequest macroexpand(String form, String module, Callback callback) {
@@ -25,6 +23,7 @@ public class Macroexpand1 extends SlimeRequest {
         this.callback = callback;
     }
 
+    @Override
     public void processReply(LispContainer data) {
         if (isOk(data)) {
             callback.onResult(data.getItems().get(1));
@@ -38,7 +37,7 @@ public class Macroexpand1 extends SlimeRequest {
     }
 
     @Override
-    public SwankPacket createPacket(BigInteger requestId, Project project) {
+    public SwankPacket createPacket(long requestId, Project project) {
         return SwankPacket.macroexpand1(form, module, requestId);
     }
 
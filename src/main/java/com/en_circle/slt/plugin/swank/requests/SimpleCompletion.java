@@ -7,8 +7,6 @@ import com.en_circle.slt.plugin.swank.SlimeRequest;
 import com.en_circle.slt.plugin.swank.SwankPacket;
 import com.intellij.openapi.project.Project;
 
-import java.math.BigInteger;
-
 public class SimpleCompletion extends SlimeRequest {
 
     public static SlimeRequest simpleCompletion(String prefix, String packageName, Callback callback) {
@@ -27,6 +25,7 @@ public class SimpleCompletion extends SlimeRequest {
         this.packageName = packageName;
     }
 
+    @Override
     public void processReply(LispContainer data) {
         if (isOk(data)) {
             callback.onResult(data.getItems().get(1));
@@ -40,7 +39,17 @@ public class SimpleCompletion extends SlimeRequest {
     }
 
     @Override
-    public SwankPacket createPacket(BigInteger requestId, Project project) {
+    protected RequestPriority getDefaultPriority() {
+        return RequestPriority.INTERACTIVE;
+    }
+
+    @Override
+    public boolean isIdempotent() {
+        return true;
+    }
+
+    @Override
+    public SwankPacket createPacket(long requestId, Project project) {
         return SwankPacket.simpleCompletion(prefix, packageName, module, requestId);
     }
 
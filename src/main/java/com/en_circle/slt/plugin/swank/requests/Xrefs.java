@@ -7,7 +7,6 @@ import com.en_circle.slt.plugin.swank.SlimeRequest;
 import com.en_circle.slt.plugin.swank.SwankPacket;
 import com.intellij.openapi.project.Project;
 
-import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -38,6 +37,7 @@ public class Xrefs extends SlimeRequest {
         this.callback = callback;
     }
 
+    @Override
     public void processReply(LispContainer data) {
         if (isOk(data)) {
             callback.onResult(data.getItems().get(1));
@@ -51,7 +51,18 @@ public class Xrefs extends SlimeRequest {
     }
 
     @Override
-    public SwankPacket createPacket(BigInteger requestId, Project project) {
+    public boolean isIdempotent() {
+        return true;
+    }
+
+    @Override
+    public String getCoalescingKey() {
+        return "xrefs " + packageName + " " + name + " " +
+                xrefTypeList.stream().map(XrefType::getName).collect(Collectors.joining(" "));
+    }
+
+    @Override
+    public SwankPacket createPacket(long requestId, Project project) {
         return SwankPacket.xrefs(xrefTypeList.stream().map(XrefType::getName).collect(Collectors.joining(" ")),
                 name, packageName, requestId);
     }
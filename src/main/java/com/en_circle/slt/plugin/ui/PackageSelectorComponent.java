@@ -6,9 +6,11 @@ import com.en_circle.slt.plugin.lisp.lisp.LispElement;
 import com.en_circle.slt.plugin.lisp.lisp.LispString;
 import com.en_circle.slt.plugin.services.lisp.LispEnvironmentService;
 import com.en_circle.slt.plugin.services.lisp.LispEnvironmentService.LispEnvironmentState;
+import com.en_circle.slt.plugin.services.lisp.LispEnvironmentService.LispPackagesListener;
 import com.en_circle.slt.plugin.swank.requests.EvalAndGrab;
 import com.en_circle.slt.tools.ProjectUtils;
 import com.intellij.icons.AllIcons.Actions;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.actionSystem.*;
 import com.intellij.openapi.actionSystem.ex.CustomComponentAction;
 import com.intellij.openapi.project.Project;
@@ -26,7 +28,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Supplier;
 
-public class PackageSelectorComponent {
+public class PackageSelectorComponent implements LispPackagesListener {
     private static final Logger log = LoggerFactory.getLogger(PackageSelectorComponent.class);
 
     private final ActionToolbar content;
@@ -52,6 +54,12 @@ public class PackageSelectorComponent {
         controlGroup.add(new RefreshPackagesAction());
         this.content = ActionManager.getInstance()
                 .createActionToolbar(id, controlGroup, true);
+
+        LispEnvironmentService.getInstance(project).addPackagesListener(this);
+    }
+
+    public void dispose() {
+        LispEnvironmentService.getInstance(project).removePackagesListener(this);
     }
 
     public ActionToolbar getActionToolbar() {
@@ -62,7 +70,7 @@ public class PackageSelectorComponent {
         try {
             LispEnvironmentService.getInstance(project).sendToLisp(EvalAndGrab.eval("(slt-core:list-package-names)", false, true, (result, stdout, parsed) -> {
                 resolvePackages(parsed);
-            }), false);
+            }).idempotent(), false);
         } catch (Exception e) {
             log.warn(SltBundle.message("slt.error.start"), e);
             Messages.showErrorDialog(ProjectManager.getInstance().getDefaultProject(),
@@ -83,6 +91,32 @@ public class PackageSelectorComponent {
         if (packages.contains("COMMON-LISP-USER")) {
             packages.add("CL-USER");
         }
+        setPackages(packages);
+    }
+
+    @Override
+    public void onPackagesChanged(List<String> createdPackages, List<String> deletedPackages) {
+        ApplicationManager.getApplication().invokeLater(() -> {
+            ComboBoxModel<String> model = packageComboBox.getModel();
+            List<String> packages = new ArrayList<>();
+            for (int i = 0; i < model.getSize(); i++) {
+                packages.add(model.getElementAt(i));
+            }
+            if (packages.isEmpty()) {
+                // not listed yet, first refresh will list them all
+                return;
+            }
+            packages.removeAll(deletedPackages);
+            for (String name : createdPackages) {
+                if (!packages.contains(name)) {
+                    packages.add(name);
+                }
+            }
+            setPackages(packages);
+        });
+    }
+
+    private void setPackages(List<String> packages) {
         packages.sort(String::compareToIgnoreCase);
         packageComboBox.setModel(new DefaultComboBoxModel<>(packages.toArray(new String[0])));
         if (packages.contains(currentPackage.get())) {
@@ -53,6 +53,10 @@ public class SltCoreWindow implements LispEnvironmentListener, Disposable {
         components.add(generalLog);
         LispEnvironmentService.getInstance(project).setRequestResponseLogger(generalLog);
 
+        SltRequestMetricsView metricsView = new SltRequestMetricsView(project);
+        Disposer.register(this, metricsView);
+        components.add(metricsView);
+
         createSbclControls();
 
         JLabel processLabel = new JLabel(SltBundle.message("slt.ui.process.processpid") + " ");
@@ -2,29 +2,62 @@ package com.en_circle.slt.plugin.ui;
 
 import com.en_circle.slt.plugin.SltBundle;
 import com.en_circle.slt.plugin.environment.SltLispEnvironment.SltOutput;
+import com.en_circle.slt.plugin.services.lisp.SltSwankSettings;
 import com.en_circle.slt.plugin.swank.SlimeListener.RequestResponseLogger;
+import com.en_circle.slt.plugin.swank.SlimeWireLog;
+import com.en_circle.slt.plugin.swank.SlimeWireLog.Direction;
+import com.en_circle.slt.plugin.swank.SlimeWireLog.WireEvent;
+import com.en_circle.slt.plugin.swank.SwankPacket;
 import com.intellij.execution.filters.TextConsoleBuilderFactory;
 import com.intellij.execution.ui.ConsoleView;
 import com.intellij.execution.ui.ConsoleViewContentType;
+import com.intellij.icons.AllIcons.Actions;
+import com.intellij.icons.AllIcons.RunConfigurations;
 import com.intellij.openapi.Disposable;
+import com.intellij.openapi.actionSystem.*;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.ComboBox;
 import com.intellij.openapi.util.Disposer;
 import com.intellij.ui.tabs.TabInfo;
+import org.apache.commons.lang3.StringUtils;
+import org.jetbrains.annotations.NotNull;
 
 import javax.swing.*;
 import java.awt.*;
-
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Shows swank traffic kept in {@link SlimeWireLog}. Messages are only appended to the wire log when they are sent or
+ * received and are rendered into console periodically, only for selected request type.
+ */
 public class SltGeneralLog implements SltComponent, RequestResponseLogger, Disposable {
 
+    private static final int WIRE_LOG_EVENTS = 16 * 1024;
+    private static final int RENDER_INTERVAL = 500;
+
     private final JPanel dataContainer;
+    private final SlimeWireLog wireLog;
+    private final Set<String> knownTypes = new TreeSet<>();
     private ConsoleView consoleView;
+    private ComboBox<String> typeFilter;
+    private Timer timer;
     private TabInfo tabInfo;
+    private long rendered;
+    private boolean follow = true;
 
     private final Project project;
 
     public SltGeneralLog(Project project) {
         this.project = project;
         this.dataContainer = new JPanel(new BorderLayout());
+
+        SltSwankSettings settings = SltSwankSettings.getInstance();
+        this.wireLog = new SlimeWireLog(WIRE_LOG_EVENTS, settings.wireLogBytes);
+        if (StringUtils.isNotBlank(settings.wireLogFile)) {
+            wireLog.spillTo(Path.of(settings.wireLogFile), settings.wireLogFileBytes, settings.wireLogFiles);
+        }
     }
 
     @Override
@@ -33,13 +66,75 @@ public class SltGeneralLog implements SltComponent, RequestResponseLogger, Dispo
                 .createBuilder(project)
                 .getConsole();
         Disposer.register(this, consoleView);
-        dataContainer.add(consoleView.getComponent());
+        dataContainer.add(consoleView.getComponent(), BorderLayout.CENTER);
+
+        DefaultActionGroup controlGroup = new DefaultActionGroup();
+        controlGroup.add(new FollowAction());
+        controlGroup.add(new ClearAction());
+        JPanel west = new JPanel(new BorderLayout());
+        ActionToolbar toolbar = ActionManager.getInstance()
+                .createActionToolbar("SltGeneralLog", controlGroup, false);
+        toolbar.setTargetComponent(dataContainer);
+        west.add(toolbar.getComponent(), BorderLayout.NORTH);
+        dataContainer.add(west, BorderLayout.WEST);
+
+        typeFilter = new ComboBox<>();
+        typeFilter.addItem(SltBundle.message("slt.ui.process.gl.filter.all"));
+        typeFilter.addActionListener(e -> rerender());
+        JPanel filterPanel = new JPanel();
+        filterPanel.setLayout(new BoxLayout(filterPanel, BoxLayout.LINE_AXIS));
+        filterPanel.add(new JLabel(SltBundle.message("slt.ui.process.gl.filter") + " "));
+        filterPanel.add(typeFilter);
+        filterPanel.add(Box.createHorizontalGlue());
+        dataContainer.add(filterPanel, BorderLayout.NORTH);
+
+        timer = new Timer(RENDER_INTERVAL, e -> {
+            if (follow) {
+                render();
+            }
+        });
+        timer.start();
 
         tabInfo = new TabInfo(dataContainer);
         tabInfo.setText(getTitle());
         return tabInfo;
     }
 
+    private void render() {
+        for (String type : wireLog.getTypes()) {
+            if (knownTypes.add(type)) {
+                typeFilter.addItem(type);
+            }
+        }
+
+        long first = wireLog.getFirstRetained();
+        if (first > rendered && rendered > 0) {
+            consoleView.print("\n\n" + SltBundle.message("slt.ui.process.gl.dropped", first - rendered),
+                    ConsoleViewContentType.SYSTEM_OUTPUT);
+        }
+        String filter = typeFilter.getSelectedIndex() > 0 ? (String) typeFilter.getSelectedItem() : null;
+        for (WireEvent event : wireLog.snapshot(rendered)) {
+            rendered = event.sequence() + 1;
+            if (filter != null && !filter.equals(event.type())) {
+                continue;
+            }
+            consoleView.print("\n\n" + event.getHeader() + "\n", ConsoleViewContentType.SYSTEM_OUTPUT);
+            consoleView.print(event.getText(), event.direction() == Direction.REQUEST ?
+                    ConsoleViewContentType.LOG_ERROR_OUTPUT : ConsoleViewContentType.LOG_INFO_OUTPUT);
+        }
+        rendered = Math.max(rendered, first);
+    }
+
+    private void rerender() {
+        consoleView.clear();
+        rendered = wireLog.getFirstRetained();
+        render();
+    }
+
+    public SlimeWireLog getWireLog() {
+        return wireLog;
+    }
+
     @Override
     public TabInfo getTabInfo() {
         return tabInfo;
@@ -76,17 +171,64 @@ public class SltGeneralLog implements SltComponent, RequestResponseLogger, Dispo
     }
 
     @Override
-    public void logRequest(String request) {
-        consoleView.print("\n\n" + request, ConsoleViewContentType.LOG_ERROR_OUTPUT);
+    public void logRequest(String type, long requestId, SwankPacket request) {
+        wireLog.logRequest(type, requestId, request);
     }
 
     @Override
-    public void logResponse(String response) {
-        consoleView.print("\n\n" + response, ConsoleViewContentType.LOG_INFO_OUTPUT);
+    public void logResponse(String type, long requestId, SwankPacket response) {
+        wireLog.logResponse(type, requestId, response);
     }
 
     @Override
     public void dispose() {
+        if (timer != null) {
+            timer.stop();
+        }
+        wireLog.close();
+    }
+
+    private class FollowAction extends ToggleAction {
+
+        private FollowAction() {
+            super(SltBundle.message("slt.ui.process.gl.scroll"), "", RunConfigurations.Scroll_down);
+        }
+
+        @Override
+        public boolean isSelected(@NotNull AnActionEvent e) {
+            return follow;
+        }
+
+        @Override
+        public void setSelected(@NotNull AnActionEvent e, boolean state) {
+            follow = state;
+            if (follow) {
+                render();
+            }
+        }
+
+        @Override
+        public @NotNull ActionUpdateThread getActionUpdateThread() {
+            return ActionUpdateThread.EDT;
+        }
+    }
 
+    private class ClearAction extends AnAction {
+
+        private ClearAction() {
+            super(SltBundle.message("slt.ui.process.gl.clear"), "", Actions.GC);
+        }
+
+        @Override
+        public void actionPerformed(@NotNull AnActionEvent e) {
+            wireLog.clear();
+            rerender();
+        }
+
+        @Override
+        public @NotNull ActionUpdateThread getActionUpdateThread() {
+            return ActionUpdateThread.EDT;
+        }
     }
+
 }
@@ -0,0 +1,309 @@
+package com.en_circle.slt.plugin.ui;
+
+import com.en_circle.slt.plugin.SltBundle;
+import com.en_circle.slt.plugin.SymbolState;
+import com.en_circle.slt.plugin.environment.SltLispEnvironment.SltOutput;
+import com.en_circle.slt.plugin.services.lisp.LispEnvironmentService;
+import com.en_circle.slt.plugin.services.lisp.components.SltBoundedCache;
+import com.en_circle.slt.plugin.services.lisp.components.SltSymbolRefreshQueue;
+import com.en_circle.slt.plugin.swank.SlimeHistogram;
+import com.en_circle.slt.plugin.swank.SlimeRequestMetrics;
+import com.en_circle.slt.plugin.swank.SlimeRequestMetrics.Metric;
+import com.en_circle.slt.plugin.swank.SlimeRequestMetrics.RequestTypeMetrics;
+import com.intellij.icons.AllIcons.Actions;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.actionSystem.*;
+import com.intellij.openapi.fileChooser.FileChooserFactory;
+import com.intellij.openapi.fileChooser.FileSaverDescriptor;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.vfs.VirtualFileWrapper;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.table.JBTable;
+import com.intellij.ui.tabs.TabInfo;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+public class SltRequestMetricsView implements SltComponent, Disposable {
+    private static final Logger log = LoggerFactory.getLogger(SltRequestMetricsView.class);
+
+    private static final int REFRESH_INTERVAL = 1000;
+
+    private final Project project;
+    private final JPanel content;
+    private final Map<String, Long> lastCounts = new HashMap<>();
+    private JBTable table;
+    private JLabel symbolRefresh;
+    private JLabel symbolStore;
+    private DefaultTableModel model;
+    private Timer timer;
+    private TabInfo tabInfo;
+    private SlimeRequestMetrics lastMetrics;
+    private long lastRefresh;
+
+    public SltRequestMetricsView(Project project) {
+        this.project = project;
+        this.content = new JPanel(new BorderLayout());
+    }
+
+    @Override
+    public TabInfo create() {
+        DefaultActionGroup controlGroup = new DefaultActionGroup();
+        controlGroup.add(new RefreshMetricsAction());
+        controlGroup.add(new ResetMetricsAction());
+        controlGroup.add(new ExportMetricsAction());
+        JPanel west = new JPanel(new BorderLayout());
+        ActionToolbar toolbar = ActionManager.getInstance()
+                .createActionToolbar("SltRequestMetrics", controlGroup, false);
+        toolbar.setTargetComponent(content);
+        west.add(toolbar.getComponent(), BorderLayout.NORTH);
+        content.add(west, BorderLayout.WEST);
+
+        model = new DefaultTableModel(new Object[0][], new Object[] {
+                SltBundle.message("slt.ui.process.metrics.request"),
+                SltBundle.message("slt.ui.process.metrics.count"),
+                SltBundle.message("slt.ui.process.metrics.rate"),
+                SltBundle.message("slt.ui.process.metrics.total.p50"),
+                SltBundle.message("slt.ui.process.metrics.total.p99"),
+                SltBundle.message("slt.ui.process.metrics.firstbyte.p50"),
+                SltBundle.message("slt.ui.process.metrics.firstbyte.p99"),
+                SltBundle.message("slt.ui.process.metrics.parse.p50"),
+                SltBundle.message("slt.ui.process.metrics.parse.p99"),
+                SltBundle.message("slt.ui.process.metrics.callback.p50"),
+                SltBundle.message("slt.ui.process.metrics.callback.p99"),
+                SltBundle.message("slt.ui.process.metrics.reply.mean"),
+                SltBundle.message("slt.ui.process.metrics.reply.max")
+        }) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        table = new JBTable(model);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.setColumnSelectionAllowed(false);
+        content.add(new JBScrollPane(table), BorderLayout.CENTER);
+        symbolRefresh = new JLabel();
+        symbolStore = new JLabel();
+        JPanel symbolPanel = new JPanel();
+        symbolPanel.setLayout(new BoxLayout(symbolPanel, BoxLayout.PAGE_AXIS));
+        symbolPanel.add(symbolRefresh);
+        symbolPanel.add(symbolStore);
+        content.add(symbolPanel, BorderLayout.SOUTH);
+
+        timer = new Timer(REFRESH_INTERVAL, e -> refresh());
+        timer.start();
+
+        tabInfo = new TabInfo(content);
+        tabInfo.setText(getTitle());
+        return tabInfo;
+    }
+
+    private void refresh() {
+        refreshSymbolQueue();
+        SlimeRequestMetrics metrics = LispEnvironmentService.getInstance(project).getRequestMetrics();
+        long now = System.nanoTime();
+        if (metrics != lastMetrics) {
+            lastCounts.clear();
+            lastMetrics = metrics;
+            lastRefresh = now;
+        }
+        double elapsed = (now - lastRefresh) / 1_000_000_000.0;
+        lastRefresh = now;
+
+        int selected = table.getSelectedRow();
+        model.setRowCount(0);
+        if (metrics == null) {
+            return;
+        }
+        for (RequestTypeMetrics typeMetrics : metrics.getMetrics()) {
+            long count = typeMetrics.getCount();
+            Long previous = lastCounts.put(typeMetrics.getName(), count);
+            double rate = previous == null || elapsed <= 0 ? 0 : (count - previous) / elapsed;
+            SlimeHistogram replySize = typeMetrics.get(Metric.REPLY_SIZE);
+            model.addRow(new Object[] {
+                    typeMetrics.getName(),
+                    count,
+                    String.format(Locale.ROOT, "%.1f", rate),
+                    millis(typeMetrics, Metric.TOTAL, 50),
+                    millis(typeMetrics, Metric.TOTAL, 99),
+                    millis(typeMetrics, Metric.FIRST_BYTE, 50),
+                    millis(typeMetrics, Metric.FIRST_BYTE, 99),
+                    millis(typeMetrics, Metric.PARSE, 50),
+                    millis(typeMetrics, Metric.PARSE, 99),
+                    millis(typeMetrics, Metric.CALLBACK, 50),
+                    millis(typeMetrics, Metric.CALLBACK, 99),
+                    String.format(Locale.ROOT, "%.0f", replySize.getMean()),
+                    replySize.getMax()
+            });
+        }
+        if (selected >= 0 && selected < model.getRowCount()) {
+            table.getSelectionModel().setSelectionInterval(selected, selected);
+        }
+    }
+
+    private void refreshSymbolQueue() {
+        SltSymbolRefreshQueue queue = LispEnvironmentService.getInstance(project).getSymbolRefreshQueue();
+        SlimeHistogram batchSizes = queue.getBatchSizes();
+        SlimeHistogram latency = queue.getLatency();
+        symbolRefresh.setText(SltBundle.message("slt.ui.process.metrics.symbols", queue.getDepth(), queue.getInFlight(),
+                batchSizes.getCount(), batchSizes.getValueAtPercentile(50), batchSizes.getValueAtPercentile(99),
+                String.format(Locale.ROOT, "%.1f", latency.getValueAtPercentile(50) / 1_000_000.0),
+                String.format(Locale.ROOT, "%.1f", latency.getValueAtPercentile(99) / 1_000_000.0)));
+
+        SltBoundedCache<String, SymbolState> store = LispEnvironmentService.getInstance(project).getSymbolStore();
+        long lookups = store.getHitCount() + store.getMissCount();
+        symbolStore.setText(SltBundle.message("slt.ui.process.metrics.store", store.size(), store.getWeight() / 1024,
+                String.format(Locale.ROOT, "%.1f", lookups == 0 ? 0 : 100.0 * store.getHitCount() / lookups),
+                store.getEvictionCount()));
+    }
+
+    private static String millis(RequestTypeMetrics typeMetrics, Metric metric, double percentile) {
+        return String.format(Locale.ROOT, "%.3f",
+                typeMetrics.get(metric).getValueAtPercentile(percentile) / 1_000_000.0);
+    }
+
+    private void reset() {
+        SlimeRequestMetrics metrics = LispEnvironmentService.getInstance(project).getRequestMetrics();
+        if (metrics != null) {
+            metrics.reset();
+        }
+        SltSymbolRefreshQueue queue = LispEnvironmentService.getInstance(project).getSymbolRefreshQueue();
+        queue.getBatchSizes().reset();
+        queue.getLatency().reset();
+        lastCounts.clear();
+        refresh();
+    }
+
+    private void exportCsv() {
+        SlimeRequestMetrics metrics = LispEnvironmentService.getInstance(project).getRequestMetrics();
+        if (metrics == null) {
+            return;
+        }
+        FileSaverDescriptor descriptor = new FileSaverDescriptor(SltBundle.message("slt.ui.process.metrics.export"),
+                "", "csv");
+        VirtualFileWrapper target = FileChooserFactory.getInstance().createSaveFileDialog(descriptor, project)
+                .save("slt-request-metrics.csv");
+        if (target == null) {
+            return;
+        }
+        try (Writer writer = Files.newBufferedWriter(target.getFile().toPath(), StandardCharsets.UTF_8)) {
+            metrics.writeCsv(writer);
+        } catch (Exception e) {
+            log.warn(SltBundle.message("slt.ui.process.metrics.export.error"), e);
+            Messages.showErrorDialog(project, e.getMessage(), SltBundle.message("slt.ui.process.metrics.export.error"));
+        }
+    }
+
+    @Override
+    public TabInfo getTabInfo() {
+        return tabInfo;
+    }
+
+    @Override
+    public void onPreStart() {
+
+    }
+
+    @Override
+    public void onPostStart() {
+
+    }
+
+    @Override
+    public void handleOutput(SltOutput output, String data) {
+
+    }
+
+    @Override
+    public void onPreStop() {
+
+    }
+
+    @Override
+    public void onPostStop() {
+
+    }
+
+    @Override
+    public String getTitle() {
+        return SltBundle.message("slt.ui.process.metrics.title");
+    }
+
+    @Override
+    public void dispose() {
+        if (timer != null) {
+            timer.stop();
+        }
+    }
+
+    private class RefreshMetricsAction extends AnAction {
+
+        private RefreshMetricsAction() {
+            super(SltBundle.message("slt.ui.process.metrics.action.refresh"), "", Actions.Refresh);
+        }
+
+        @Override
+        public void actionPerformed(@NotNull AnActionEvent e) {
+            refresh();
+        }
+
+        @Override
+        public @NotNull ActionUpdateThread getActionUpdateThread() {
+            return ActionUpdateThread.EDT;
+        }
+    }
+
+    private class ResetMetricsAction extends AnAction {
+
+        private ResetMetricsAction() {
+            super(SltBundle.message("slt.ui.process.metrics.action.reset"), "", Actions.GC);
+        }
+
+        @Override
+        public void actionPerformed(@NotNull AnActionEvent e) {
+            reset();
+        }
+
+        @Override
+        public @NotNull ActionUpdateThread getActionUpdateThread() {
+            return ActionUpdateThread.EDT;
+        }
+    }
+
+    private class ExportMetricsAction extends AnAction {
+
+        private ExportMetricsAction() {
+            super(SltBundle.message("slt.ui.process.metrics.action.export"), "", Actions.MenuSaveall);
+        }
+
+        @Override
+        public void actionPerformed(@NotNull AnActionEvent e) {
+            exportCsv();
+        }
+
+        @Override
+        public @NotNull ActionUpdateThread getActionUpdateThread() {
+            return ActionUpdateThread.EDT;
+        }
+
+        @Override
+        public void update(@NotNull AnActionEvent e) {
+            super.update(e);
+
+            e.getPresentation().setEnabled(LispEnvironmentService.getInstance(project).getRequestMetrics() != null);
+        }
+    }
+
+}
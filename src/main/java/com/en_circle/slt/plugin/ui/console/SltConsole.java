@@ -110,12 +110,13 @@ public abstract class SltConsole implements SltComponent {
         try {
             if (StringUtils.isNotBlank(data)) {
                 String setToStar = String.format("(cl::setf cl::* %s)", data);
-                LispEnvironmentService.getInstance(project).sendToLisp(Eval.eval(setToStar, currentPackage,
+                LispEnvironmentService service = LispEnvironmentService.getInstance(project);
+                service.sendToLisp(Eval.eval(setToStar, currentPackage,
                         result -> {
                             resultData.clear();
                             resultData.addAll(Arrays.asList(result.split("\n")));
                             languageConsole.print(result + "\n", ConsoleViewContentType.NORMAL_OUTPUT);
-                }));
+                }).whenFinished(() -> service.invalidateSymbols(data)));
             }
         } catch (Exception e) {
             log.warn(SltBundle.message("slt.error.start"), e);
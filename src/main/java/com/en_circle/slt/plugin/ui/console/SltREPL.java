@@ -10,6 +10,7 @@ import java.awt.*;
 public class SltREPL extends SltConsole {
 
     private final SltCoreWindow window;
+    private PackageSelectorComponent selectorComponent;
 
     public SltREPL(Project project, SltCoreWindow window) {
         super(project);
@@ -19,6 +20,9 @@ public class SltREPL extends SltConsole {
     @Override
     public void close() {
         window.removeComponent(this);
+        if (selectorComponent != null) {
+            selectorComponent.dispose();
+        }
         super.close();
     }
 
@@ -26,7 +30,7 @@ public class SltREPL extends SltConsole {
     public TabInfo create() {
         TabInfo tabInfo = super.create();
 
-        PackageSelectorComponent selectorComponent = new PackageSelectorComponent("Repl", () -> this.currentPackage);
+        selectorComponent = new PackageSelectorComponent("Repl", () -> this.currentPackage);
         selectorComponent.refresh();
         selectorComponent.getActionToolbar().setTargetComponent(content);
         selectorComponent.setListener(this::setPackage);
@@ -1,45 +1,31 @@
 package com.en_circle.slt.tools;
 
 import com.en_circle.slt.plugin.services.lisp.LispEnvironmentService;
-import com.en_circle.slt.plugin.services.lisp.LispEnvironmentService.LispEnvironmentState;
 import com.en_circle.slt.plugin.swank.SlimeRequest;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.application.ex.ApplicationUtil;
 import com.intellij.openapi.progress.ProcessCanceledException;
-import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressIndicatorProvider;
-import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Computable;
-import org.awaitility.Awaitility;
-import org.awaitility.core.ConditionTimeoutException;
-import org.awaitility.pollinterval.FixedPollInterval;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.Future;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
 public class SltApplicationUtils {
     private static final Logger log = LoggerFactory.getLogger(SltApplicationUtils.class);
+    private static final long REQUEST_TIMEOUT_SECONDS = 2;
 
     public static <X> X getAsyncResultNoThrow(Project project, Function<Consumer<X>, SlimeRequest> request) {
         return getAsyncResultNoThrow(project, request, true);
     }
 
     public static <X> X getAsyncResultNoThrow(Project project, Function<Consumer<X>, SlimeRequest> request, boolean startLisp) {
-        try {
-            return getAsyncResult(project, request, startLisp);
-        } catch (Exception e) {
-            if (e instanceof ProcessCanceledException)
-                return null;
-
-            log.warn(e.getMessage());
-            return null;
-        }
+        return awaitNoThrow(getAsyncResultNoProgress(project, request, startLisp));
     }
 
     public static <X> X getAsyncResult(Project project, Function<Consumer<X>, SlimeRequest> request) throws Exception {
@@ -47,58 +33,40 @@ public class SltApplicationUtils {
     }
 
     public static <X> X getAsyncResult(Project project, Function<Consumer<X>, SlimeRequest> request, boolean startLisp) throws Exception {
-        Future<X> future = getAsyncResultNoProgress(project, request, startLisp);
-        if (future == null) {
-            return null;
-        }
+        return awaitWithCheckCanceled(getAsyncResultNoProgress(project, request, startLisp));
+    }
 
-        return ApplicationUtil.runWithCheckCanceled(future,
-                ProgressIndicatorProvider.getInstance().getProgressIndicator());
+    public static <X> CompletableFuture<X> getAsyncResultNoProgress(Project project, Function<Consumer<X>, SlimeRequest> request, boolean startLisp) {
+        return LispEnvironmentService.getInstance(project)
+                .sendToLispAsync(request, startLisp, REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS);
     }
 
-    public static <X> Future<X> getAsyncResultNoProgress(Project project, Function<Consumer<X>, SlimeRequest> request, boolean startLisp) {
-        if (LispEnvironmentService.getInstance(project).getState() != LispEnvironmentState.READY && !startLisp) {
-            return null;
+    /**
+     * Waits for the result, cancelling the future (and with it the request) when current progress is cancelled.
+     */
+    public static <X> X awaitWithCheckCanceled(CompletableFuture<X> future) throws Exception {
+        if (future.isDone()) {
+            return future.get();
         }
+        try {
+            return ApplicationUtil.runWithCheckCanceled(future,
+                    ProgressIndicatorProvider.getInstance().getProgressIndicator());
+        } catch (ProcessCanceledException e) {
+            future.cancel(false);
+            throw e;
+        }
+    }
 
-        return ApplicationManager.getApplication().executeOnPooledThread(() -> {
-            AtomicReference<X> pointer = new AtomicReference<>(null);
-            SlimeRequest r = request.apply(result -> {
-                try {
-                    pointer.set(result);
-                } catch (Exception ignored) {
-
-                }
-            });
-            LispEnvironmentService.getInstance(project).sendToLisp(r, startLisp);
-            try {
-                Awaitility.await()
-                        .atMost(2, TimeUnit.SECONDS)
-                        .pollInterval(new FixedPollInterval(10, TimeUnit.MILLISECONDS))
-                        .failFast(ProgressManager::checkCanceled)
-                        .until(() -> pointer.get() != null);
-            } catch (ConditionTimeoutException exception) {
+    public static <X> X awaitNoThrow(CompletableFuture<X> future) {
+        try {
+            return awaitWithCheckCanceled(future);
+        } catch (Exception e) {
+            if (e instanceof ProcessCanceledException)
                 return null;
-            }
-            return pointer.get();
-        });
-    }
 
-    public static <X> X getAsyncResultCheckCancellation(Project project, Function<Consumer<X>, SlimeRequest> request, boolean startLisp) throws Exception {
-        Future<X> future = getAsyncResultNoProgress(project, request, startLisp);
-        if (future == null) {
+            log.warn(e.getMessage());
             return null;
         }
-
-        ProgressIndicator pi = ProgressIndicatorProvider.getInstance().getProgressIndicator();
-
-        while (!future.isDone()) {
-            Thread.sleep(1);
-            if (pi != null) {
-                ProgressManager.checkCanceled();
-            }
-        }
-        return future.get();
     }
 
     public static <T> T processAsync(Computable<T> supplier) {
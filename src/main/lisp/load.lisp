@@ -3,7 +3,7 @@
 
 (defpackage :slt-core
     (:use :slt :cl :swank)
-    (:export analyze-symbol analyze-symbols read-fix-packages list-package-names
+    (:export analyze-symbol analyze-symbols read-fix-packages list-package-names package-symbols
              initialize-or-get-debug-context debug-context debug-frame-variable register-variable
              install-breakpoint uninstall-breakpoint uninstall-breakpoints with-breakpoints
              ))
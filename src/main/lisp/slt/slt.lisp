@@ -51,7 +51,10 @@
                 (T (list NIL NIL NIL))))))
 
 (defun analyze-symbols (symbols)
-   (map 'list #'analyze-symbol symbols))
+   (map 'list (lambda (test-sym)
+                 (watch-definition test-sym)
+                 (analyze-symbol test-sym))
+        symbols))
 
 (defun reader-recover (c)
     (declare (ignorable c))
@@ -91,3 +94,209 @@
     (let ((packages (list-all-packages)))
         (loop for package in packages collect
             (package-name package))))
+
+(defun symbol-kind (test-sym)
+    (cond
+        ((and (fboundp test-sym)
+              (typep (symbol-function test-sym) 'generic-function)) :method)
+        ((special-operator-p test-sym) :special-form)
+        ((macro-function test-sym) :macro)
+        ((fboundp test-sym) :function)
+        ((specialp test-sym) :special)
+        ((keywordp test-sym) :keyword)
+        ((constantp test-sym) :constant)
+        ((find-class test-sym NIL) :class)
+        (T NIL)))
+
+(defun symbol-location (test-sym)
+    (ignore-errors
+        (cond
+            ((special-operator-p test-sym) NIL)
+            ((fboundp test-sym) (swank:find-source-location (symbol-function test-sym)))
+            ((find-class test-sym NIL) (swank:find-source-location (find-class test-sym)))
+            (T NIL))))
+
+(defun package-present-symbols (package)
+    "Returns vector of symbols present in PACKAGE, internal and external, sorted by name."
+    (let ((seen (make-hash-table :test 'eq))
+          (symbols (make-array 0 :adjustable T :fill-pointer T)))
+        (do-symbols (test-sym package)
+            (when (and (not (gethash test-sym seen))
+                       (member (nth-value 1 (find-symbol (symbol-name test-sym) package)) '(:internal :external)))
+                (setf (gethash test-sym seen) T)
+                (vector-push-extend test-sym symbols)))
+        (sort symbols #'string< :key #'symbol-name)))
+
+;; package -> sorted present symbols, from first page until the last one is fetched
+(defvar *package-symbols-lock* (swank/backend:make-lock :name "SLT package symbols lock"))
+(defvar *package-symbols* (make-hash-table :test 'eq))
+
+(defun paged-package-symbols (package start)
+    "Returns present symbols of PACKAGE, collected on first page and reused by the following ones."
+    (swank/backend:call-with-lock-held *package-symbols-lock*
+        (lambda ()
+            (or (and (> start 0) (gethash package *package-symbols*))
+                (setf (gethash package *package-symbols*) (package-present-symbols package))))))
+
+(defun forget-package-symbols (package)
+    (swank/backend:call-with-lock-held *package-symbols-lock*
+        (lambda () (remhash package *package-symbols*))))
+
+(defun package-symbols (name start count)
+    "Returns page of symbols present in package NAME, sorted by name, as
+(package-name used-package-names total ((symbol-name status kind location) ...)), NIL if there is no such package.
+Symbols are collected once on the first page and dropped after the last one.
+Returned symbols are watched for definition changes like analyzed ones."
+    (let ((package (find-package name)))
+        (when package
+            (let* ((symbols (paged-package-symbols package start))
+                   (total (length symbols))
+                   (end (min (+ start count) total))
+                   (page (coerce (subseq symbols (min start total) end) 'list)))
+                (when (>= end total)
+                    (forget-package-symbols package))
+                (list (package-name package)
+                      (mapcar #'package-name (package-use-list package))
+                      total
+                      (mapcar (lambda (test-sym)
+                                  (watch-definition test-sym)
+                                  (list (symbol-name test-sym)
+                                        (nth-value 1 (find-symbol (symbol-name test-sym) package))
+                                        (symbol-kind test-sym)
+                                        (symbol-location test-sym)))
+                              page))))))
+
+;;; Definition change feed
+;;;
+;;; Standard has no hook on setting fdefinition, defclass, defmacro, defvar or defpackage, so symbols analyzed by
+;;; the IDE are watched instead. Only requests that can redefine something, ie evaluation, compilation and loading,
+;;; compare watched definitions with the ones seen last time before their reply, and send changed symbols together
+;;; with created and deleted packages as single
+;;; (:slt-definitions-changed ((name package) ...) (created-package ...) (deleted-package ...)) event.
+;;; Definitions made by other threads are sent with the reply of next such request. Symbols that lost their package
+;;; are reported once and no longer watched.
+
+(defvar *definitions-lock* (swank/backend:make-lock :name "SLT definitions lock"))
+(defvar *watched-definitions* (make-hash-table :test 'eq))
+(defvar *known-packages* (let ((packages (make-hash-table :test 'eq)))
+                             (dolist (package (list-all-packages) packages)
+                                 (setf (gethash package packages) (package-name package)))))
+;; continuation ids of redefining requests being evaluated
+(defvar *redefining-requests* (make-hash-table))
+;; set when redefining request was aborted, its partial changes are sent with the next reply
+(defvar *definitions-dirty* NIL)
+
+(defparameter *redefining-operations*
+    '(swank::slt-eval swank::compile-string-region-slt swank::load-file-breakpoints swank::slt-batch
+      swank::interactive-eval swank::interactive-eval-region swank::eval-and-grab-output swank::eval-string-in-frame
+      swank::invoke-nth-restart-slt swank::compile-string-for-emacs swank::compile-file-for-emacs swank::load-file))
+
+(defun redefining-operation-p (form)
+    (and (consp form)
+         (symbolp (first form))
+         (or (member (first form) *redefining-operations*)
+             (let ((repl (find-package "SWANK-REPL")))
+                 (and repl (eq (first form) (find-symbol "LISTENER-EVAL" repl)))))))
+
+(defun definition-of (test-sym)
+    (ignore-errors
+        (list (symbol-package test-sym)
+              (cond
+                  ((special-operator-p test-sym) :special-form)
+                  ((macro-function test-sym) (macro-function test-sym))
+                  ((fboundp test-sym) (fdefinition test-sym)))
+              (specialp test-sym)
+              (constantp test-sym)
+              (find-class test-sym NIL))))
+
+(defun watch-definition (test-sym)
+    (when (and test-sym (symbolp test-sym) (symbol-package test-sym))
+        (swank/backend:call-with-lock-held *definitions-lock*
+            (lambda ()
+                (setf (gethash test-sym *watched-definitions*) (definition-of test-sym))))))
+
+(defun changed-definitions ()
+    (let ((symbols '()))
+        (maphash (lambda (test-sym definition)
+                     (let ((current (definition-of test-sym)))
+                         (unless (equal current definition)
+                             (if (symbol-package test-sym)
+                                 (setf (gethash test-sym *watched-definitions*) current)
+                                 ;; uninterned, ie its package was deleted
+                                 (remhash test-sym *watched-definitions*))
+                             (push (list (symbol-name test-sym)
+                                         (let ((package (symbol-package test-sym)))
+                                             (when package (package-name package))))
+                                   symbols))))
+                 *watched-definitions*)
+        symbols))
+
+(defun changed-packages ()
+    "Returns created packages and names of deleted packages since last call."
+    (let ((current (make-hash-table :test 'eq))
+          (created '())
+          (deleted '()))
+        (dolist (package (list-all-packages))
+            (setf (gethash package current) T)
+            (unless (gethash package *known-packages*)
+                (setf (gethash package *known-packages*) (package-name package))
+                (push package created)))
+        (maphash (lambda (package name)
+                     (unless (gethash package current)
+                         (remhash package *known-packages*)
+                         (forget-package-symbols package)
+                         (push name deleted)))
+                 *known-packages*)
+        (values created deleted)))
+
+(defun collect-definition-changes ()
+    (swank/backend:call-with-lock-held *definitions-lock*
+        (lambda ()
+            (setf *definitions-dirty* NIL)
+            (let ((symbols (changed-definitions)))
+                (multiple-value-bind (created deleted) (changed-packages)
+                    (when (or symbols created deleted)
+                        (list :slt-definitions-changed
+                              symbols
+                              (mapcar #'package-name created)
+                              deleted)))))))
+
+(defun redefining-reply-p ()
+    (let ((id (first swank::*pending-continuations*)))
+        (swank/backend:call-with-lock-held *definitions-lock*
+            (lambda ()
+                (or *definitions-dirty*
+                    (and id (gethash id *redefining-requests*)))))))
+
+(defun sync-definitions-to-emacs ()
+    (when (redefining-reply-p)
+        (let ((event (collect-definition-changes)))
+            (when event
+                (swank::send-to-emacs event)))))
+
+(defun track-redefining-requests (connection event)
+    (declare (ignore connection))
+    (case (first event)
+        (:emacs-rex
+         (when (redefining-operation-p (second event))
+             (swank/backend:call-with-lock-held *definitions-lock*
+                 (lambda () (setf (gethash (fifth event) *redefining-requests*) T)))))
+        (:return
+         ;; (:return thread (:ok value) id) or (:return thread (:abort condition) id), sent after pre reply hook
+         (let ((id (fourth event)))
+             (swank/backend:call-with-lock-held *definitions-lock*
+                 (lambda ()
+                     (when (and (remhash id *redefining-requests*)
+                                (not (eq (first (third event)) :ok)))
+                         (setf *definitions-dirty* T)))))))
+    NIL)
+
+(defun forward-definition-changes (connection event)
+    (declare (ignore connection))
+    (when (eq (first event) :slt-definitions-changed)
+        (swank::encode-message event (swank::current-socket-io))
+        T))
+
+(swank::add-hook swank::*pre-reply-hook* 'sync-definitions-to-emacs)
+(swank::add-hook swank::*event-hook* 'forward-definition-changes)
+(swank::add-hook swank::*event-hook* 'track-redefining-requests)
@@ -116,8 +116,79 @@ format suitable for Emacs."
     (slt-core:with-breakpoints breakpoints))
   (to-string (load (filename-to-pathname filename))))
 
+(defun slt-read-batched-request (message)
+  "Reads MESSAGE, (:emacs-rex form package thread id) string, with form read in the package of the message.
+Package is taken from the message read like any other swank message, then form is read again with buffer syntax
+of that package. Returns form and package."
+  (let ((package (third (with-standard-io-syntax
+                          (let ((*package* *swank-io-package*))
+                            (read-from-string message))))))
+    (let ((package (if (stringp package) package (string package))))
+      (values (second (with-buffer-syntax (package)
+                        (read-from-string message)))
+              package))))
+
+(defslimefun slt-batch (requests)
+  "Evaluates REQUESTS, vector of (:emacs-rex form package thread id) message strings, in order.
+Each form is read and evaluated in its own package with its own error handler, so failed form does not abort the
+rest. Thread and id of the messages are ignored, forms run in the thread of the batch.
+Returns vector of (:ok value) or (:abort condition) results in the same order."
+  (map 'vector
+       (lambda (request)
+         (handler-case
+             (multiple-value-bind (form package) (slt-read-batched-request request)
+               (let ((*buffer-package* (guess-buffer-package package))
+                     (*buffer-readtable* (guess-buffer-readtable package)))
+                 (list :ok (eval form))))
+           (error (condition)
+             (list :abort (safe-condition-message condition)))))
+       requests))
+
+;;; Request threads
+;;;
+;;; (:slt-track-request id) sent before (:emacs-rex form package t id) asks to report worker thread of that
+;;; request as (:slt-request-thread thread-id id) before it starts, so client can interrupt exactly that thread
+;;; with (:emacs-interrupt thread-id) instead of whichever thread was activated last. Tracked id is dropped by
+;;; (:emacs-rex ...) with that id whatever its thread, or when connection it came over is closed.
+
+(defvar *slt-tracked-requests-lock* (make-lock :name "SLT tracked requests lock"))
+;; continuation id -> connection the track request came over
+(defvar *slt-tracked-requests* (make-hash-table))
+
+(defun slt-take-tracked-request (id)
+  (call-with-lock-held *slt-tracked-requests-lock*
+                       (lambda ()
+                         (remhash id *slt-tracked-requests*))))
+
+(defun slt-track-request-thread (connection event)
+  (case (first event)
+    (:slt-track-request
+     (call-with-lock-held *slt-tracked-requests-lock*
+                          (lambda () (setf (gethash (second event) *slt-tracked-requests*) connection)))
+     t)
+    (:emacs-rex
+     (destructuring-bind (form package thread-id id) (rest event)
+       (when (and (slt-take-tracked-request id) (eq thread-id t))
+         (let ((thread (thread-for-evaluation connection thread-id)))
+           (add-active-thread connection thread)
+           (encode-message (list :slt-request-thread (thread-id thread) id) (current-socket-io))
+           (send-event thread (list :emacs-rex form package id))
+           t))))))
+
+(defun slt-forget-tracked-requests (connection)
+  (call-with-lock-held *slt-tracked-requests-lock*
+                       (lambda ()
+                         (maphash (lambda (id tracked-connection)
+                                    (when (eq tracked-connection connection)
+                                      (remhash id *slt-tracked-requests*)))
+                                  *slt-tracked-requests*))))
+
+(add-hook *event-hook* 'slt-track-request-thread)
+(add-hook *connection-closed-hook* 'slt-forget-tracked-requests)
+
 (export 'slt-eval)
 (export 'compile-string-region-slt)
 (export 'find-reference-prefix)
 (export 'operator-arglist-list)
-(export 'load-file-breakpoints)
\ No newline at end of file
+(export 'load-file-breakpoints)
+(export 'slt-batch)
\ No newline at end of file
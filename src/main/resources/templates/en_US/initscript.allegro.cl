@@ -24,4 +24,4 @@
 
 (load "~corefile~")
 
-(swank:create-server :port ~port~ :dont-close nil)
\ No newline at end of file
+(swank:create-server :port ~port~ :dont-close t)
\ No newline at end of file
@@ -7,7 +7,6 @@ import com.en_circle.slt.plugin.swank.SwankClient;
 import com.en_circle.slt.plugin.swank.SwankClient.SwankReply;
 import com.en_circle.slt.plugin.swank.SwankPacket;
 import com.en_circle.slt.plugin.swank.debug.SltDebugInfo;
-import org.awaitility.Awaitility;
 
 import java.math.BigInteger;
 import java.util.concurrent.TimeUnit;
@@ -51,11 +50,12 @@ public class SlimeTest {
                 }
             })) {
                 sent.addAndGet(1);
-                client.swankSend(SwankPacket.sltEval("(+ + 5)", null, new BigInteger("3")));
+                client.swankSend(SwankPacket.sltEval("(+ + 5)", null, 3));
 
-                Awaitility.await()
-                        .atMost(10, TimeUnit.SECONDS)
-                        .until(() -> expected.get() > sent.get() && sent.get() > 0);
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+                while (!(expected.get() > sent.get() && sent.get() > 0) && System.nanoTime() < deadline) {
+                    Thread.sleep(100);
+                }
             }
             environment.stop();
         } catch (Exception e) {
@@ -0,0 +1,185 @@
+package com.en_circle.slt.tests.swank;
+
+import com.en_circle.slt.plugin.lisp.lisp.LispContainer;
+import com.en_circle.slt.plugin.swank.SlimeListener;
+import com.en_circle.slt.plugin.swank.SlimeRequest;
+import com.en_circle.slt.plugin.swank.SlimeRequest.RequestPriority;
+import com.en_circle.slt.plugin.swank.SwankClient;
+import com.en_circle.slt.plugin.swank.SwankFraming;
+import com.en_circle.slt.plugin.swank.SwankPacket;
+import com.intellij.openapi.project.Project;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CoalescedRequestTests {
+
+    private static final Pattern CONTINUATION = Pattern.compile("(\\d+)\\)$");
+    private static final long REPLY_DELAY_MS = 600;
+
+    @Test
+    public void testFailingParticipantDoesNotBreakOthers() throws Exception {
+        withServer((listener, client, received) -> {
+            TestRequest failing = new TestRequest(true);
+            TestRequest other = new TestRequest(false);
+            listener.call(failing, client);
+            listener.call(other, client);
+
+            assertEquals(Boolean.TRUE, other.result.get(5, TimeUnit.SECONDS));
+            assertTrue(other.finished.get(5, TimeUnit.SECONDS));
+            assertTrue(failing.finished.get(5, TimeUnit.SECONDS));
+            assertEquals(1, received.get());
+        });
+    }
+
+    @Test
+    public void testLongestTimeoutIsUsed() throws Exception {
+        withServer((listener, client, received) -> {
+            TestRequest impatient = new TestRequest(false);
+            impatient.withTimeout(REPLY_DELAY_MS / 3, TimeUnit.MILLISECONDS, () -> impatient.result.complete(false));
+            TestRequest patient = new TestRequest(false);
+            listener.call(impatient, client);
+            listener.call(patient, client);
+
+            // call waits for reply as long as its most patient participant
+            assertEquals(Boolean.TRUE, impatient.result.get(5, TimeUnit.SECONDS));
+            assertEquals(Boolean.TRUE, patient.result.get(5, TimeUnit.SECONDS));
+            assertEquals(1, received.get());
+        });
+    }
+
+    @Test
+    public void testHigherPriorityIsNotAttached() throws Exception {
+        withServer((listener, client, received) -> {
+            TestRequest background = new TestRequest(false);
+            background.withPriority(RequestPriority.BACKGROUND);
+            TestRequest interactive = new TestRequest(false);
+            interactive.withPriority(RequestPriority.INTERACTIVE);
+            TestRequest attached = new TestRequest(false);
+            attached.withPriority(RequestPriority.NAVIGATION);
+            listener.call(background, client);
+            listener.call(interactive, client);
+            listener.call(attached, client);
+
+            assertEquals(Boolean.TRUE, background.result.get(5, TimeUnit.SECONDS));
+            assertEquals(Boolean.TRUE, interactive.result.get(5, TimeUnit.SECONDS));
+            assertEquals(Boolean.TRUE, attached.result.get(5, TimeUnit.SECONDS));
+            // background call is sent on its own, navigation request joins interactive one
+            assertEquals(2, received.get());
+            assertEquals(0, listener.getPendingCount());
+        });
+    }
+
+    private void withServer(ServerTest test) throws Exception {
+        AtomicInteger received = new AtomicInteger();
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            Thread server = new Thread(() -> serve(serverSocket, received));
+            server.setDaemon(true);
+            server.start();
+
+            SlimeListener listener = new SlimeListener(null, false, e -> { }, null, null);
+            SwankClient client = new SwankClient("127.0.0.1", serverSocket.getLocalPort(), listener);
+            try {
+                test.run(listener, client, received);
+            } finally {
+                client.close();
+                listener.close();
+            }
+        }
+    }
+
+    /**
+     * Answers every request after a delay, so that identical requests sent meanwhile are coalesced.
+     */
+    private static void serve(ServerSocket serverSocket, AtomicInteger received) {
+        try (Socket socket = serverSocket.accept()) {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+            while (true) {
+                Matcher matcher = CONTINUATION.matcher(readMessage(in));
+                assertTrue(matcher.find());
+                received.incrementAndGet();
+                String reply = "(:return (:ok t) " + matcher.group(1) + ")";
+                Thread answer = new Thread(() -> {
+                    try {
+                        Thread.sleep(REPLY_DELAY_MS);
+                        write(out, reply);
+                    } catch (Exception ignored) {
+                        // test finished
+                    }
+                });
+                answer.setDaemon(true);
+                answer.start();
+            }
+        } catch (IOException ignored) {
+            // test finished
+        }
+    }
+
+    private static synchronized void write(OutputStream out, String message) throws IOException {
+        ByteBuffer frame = new SwankPacket(message).toBuffer();
+        byte[] data = new byte[frame.remaining()];
+        frame.get(data);
+        out.write(data);
+        out.flush();
+    }
+
+    private static String readMessage(DataInputStream in) throws IOException {
+        byte[] header = new byte[SwankFraming.HEADER_LENGTH];
+        in.readFully(header);
+        byte[] message = new byte[Integer.parseInt(new String(header, StandardCharsets.US_ASCII), 16)];
+        in.readFully(message);
+        return new String(message, StandardCharsets.UTF_8).trim();
+    }
+
+    private interface ServerTest {
+
+        void run(SlimeListener listener, SwankClient client, AtomicInteger received) throws Exception;
+
+    }
+
+    private static class TestRequest extends SlimeRequest {
+
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        private final CompletableFuture<Boolean> finished = new CompletableFuture<>();
+        private final boolean failing;
+
+        private TestRequest(boolean failing) {
+            this.failing = failing;
+            whenFinished(() -> finished.complete(true));
+        }
+
+        @Override
+        public String getCoalescingKey() {
+            return "test";
+        }
+
+        @Override
+        public SwankPacket createPacket(long requestId, Project project) {
+            return SwankPacket.sltEval("(+ 1 2)", "NIL", requestId);
+        }
+
+        @Override
+        public void processReply(LispContainer data) {
+            if (failing) {
+                throw new IllegalStateException("failing participant");
+            }
+            result.complete(true);
+        }
+    }
+
+}
@@ -0,0 +1,81 @@
+package com.en_circle.slt.tests.swank;
+
+import com.en_circle.slt.plugin.lisp.lisp.LispContainer;
+import com.en_circle.slt.plugin.swank.SlimePendingRequests;
+import com.en_circle.slt.plugin.swank.SlimeRequest;
+import com.en_circle.slt.plugin.swank.SwankPacket;
+import com.intellij.openapi.project.Project;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PendingRequestsTests {
+
+    @Test
+    public void testChurn() {
+        SlimePendingRequests requests = new SlimePendingRequests(4);
+        TestRequest request = new TestRequest();
+        for (long id = 1; id < 100_000; id++) {
+            requests.put(id, request, null);
+            if (id % 3 == 0) {
+                // late reply of request removed long ago
+                assertNull(requests.remove(id - 50));
+            }
+            assertSame(request, requests.get(id));
+            assertSame(request, requests.remove(id));
+            assertNull(requests.get(id));
+        }
+        assertEquals(0, requests.size());
+    }
+
+    @Test
+    public void testMorePendingThanExpected() {
+        SlimePendingRequests requests = new SlimePendingRequests(4);
+        List<TestRequest> pending = new ArrayList<>();
+        for (long id = 1; id <= 1000; id++) {
+            TestRequest request = new TestRequest();
+            requests.put(id * 16, request, null);
+            pending.add(request);
+        }
+        assertEquals(1000, requests.size());
+        for (long id = 1; id <= 1000; id++) {
+            assertSame(pending.get((int) id - 1), requests.get(id * 16));
+        }
+        assertNotNull(requests.remove(pending.get(500)));
+        assertNull(requests.get(501 * 16));
+        assertEquals(999, requests.drain(entry -> { }));
+        assertEquals(0, requests.size());
+    }
+
+    @Test
+    public void testReapExpired() {
+        SlimePendingRequests requests = new SlimePendingRequests(16);
+        TestRequest expiring = new TestRequest();
+        expiring.withTimeout(1, TimeUnit.MILLISECONDS);
+        requests.put(1, expiring, null);
+        requests.put(2, new TestRequest(), null);
+        List<SlimeRequest> reaped = new ArrayList<>();
+        assertEquals(1, requests.reapExpired(System.nanoTime() + TimeUnit.SECONDS.toNanos(1),
+                entry -> reaped.add(entry.request())));
+        assertEquals(List.of(expiring), reaped);
+        assertEquals(1, requests.size());
+    }
+
+    private static class TestRequest extends SlimeRequest {
+
+        @Override
+        public SwankPacket createPacket(long requestId, Project project) {
+            return SwankPacket.sltEval("nil", "NIL", requestId);
+        }
+
+        @Override
+        public void processReply(LispContainer data) {
+
+        }
+    }
+
+}
@@ -0,0 +1,149 @@
+package com.en_circle.slt.tests.swank;
+
+import com.en_circle.slt.plugin.lisp.lisp.LispContainer;
+import com.en_circle.slt.plugin.swank.SlimeListener;
+import com.en_circle.slt.plugin.swank.SlimeRequest;
+import com.en_circle.slt.plugin.swank.SwankClient;
+import com.en_circle.slt.plugin.swank.SwankFraming;
+import com.en_circle.slt.plugin.swank.SwankPacket;
+import com.intellij.openapi.project.Project;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RequestInterruptTests {
+
+    private static final Pattern CONTINUATION = Pattern.compile("(\\d+)\\)$");
+    private static final Pattern TRACK = Pattern.compile("^\\(:slt-track-request (\\d+)\\)$");
+
+    @Test
+    public void testInterruptTargetsThreadOfRequest() throws Exception {
+        BlockingQueue<String> interrupts = new LinkedBlockingQueue<>();
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            Thread server = new Thread(() -> serve(serverSocket, interrupts));
+            server.setDaemon(true);
+            server.start();
+
+            SlimeListener listener = new SlimeListener(null, false, e -> { }, null, null);
+            SwankClient client = new SwankClient("127.0.0.1", serverSocket.getLocalPort(), listener);
+            try {
+                TestRequest first = new TestRequest(false);
+                first.interruptible();
+                TestRequest second = new TestRequest(false);
+                second.interruptible();
+                TestRequest untracked = new TestRequest(false);
+                TestRequest answered = new TestRequest(true);
+                listener.call(first, client);
+                listener.call(second, client);
+                listener.call(untracked, client);
+                listener.call(answered, client);
+                // threads were reported before the answer
+                assertEquals(Boolean.TRUE, answered.result.get(5, TimeUnit.SECONDS));
+
+                assertTrue(listener.cancel(second, true));
+                assertEquals("(:emacs-interrupt 2)", interrupts.poll(5, TimeUnit.SECONDS));
+                assertTrue(listener.cancel(untracked, true));
+
+                TestRequest expiring = new TestRequest(false);
+                expiring.withTimeout(300, TimeUnit.MILLISECONDS, () -> expiring.result.complete(false));
+                expiring.interruptOnTimeout();
+                listener.call(expiring, client);
+                assertEquals(Boolean.FALSE, expiring.result.get(5, TimeUnit.SECONDS));
+                assertEquals("(:emacs-interrupt 3)", interrupts.poll(5, TimeUnit.SECONDS));
+                assertNull(interrupts.poll(300, TimeUnit.MILLISECONDS));
+            } finally {
+                client.close();
+                listener.close();
+            }
+        }
+    }
+
+    /**
+     * Reports new thread for each tracked request, answers only requests sent with answered flag.
+     */
+    private static void serve(ServerSocket serverSocket, BlockingQueue<String> interrupts) {
+        try (Socket socket = serverSocket.accept()) {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+            Set<String> tracked = new HashSet<>();
+            int threads = 0;
+            while (true) {
+                String message = readMessage(in);
+                Matcher track = TRACK.matcher(message);
+                if (track.find()) {
+                    tracked.add(track.group(1));
+                    continue;
+                }
+                if (message.startsWith("(:emacs-interrupt")) {
+                    interrupts.add(message);
+                    continue;
+                }
+                Matcher matcher = CONTINUATION.matcher(message);
+                assertTrue(matcher.find());
+                String id = matcher.group(1);
+                if (tracked.remove(id)) {
+                    write(out, "(:slt-request-thread " + (++threads) + " " + id + ")");
+                }
+                if (message.contains("answered")) {
+                    write(out, "(:return (:ok t) " + id + ")");
+                }
+            }
+        } catch (IOException ignored) {
+            // test finished
+        }
+    }
+
+    private static void write(OutputStream out, String message) throws IOException {
+        ByteBuffer frame = new SwankPacket(message).toBuffer();
+        byte[] data = new byte[frame.remaining()];
+        frame.get(data);
+        out.write(data);
+        out.flush();
+    }
+
+    private static String readMessage(DataInputStream in) throws IOException {
+        byte[] header = new byte[SwankFraming.HEADER_LENGTH];
+        in.readFully(header);
+        byte[] message = new byte[Integer.parseInt(new String(header, StandardCharsets.US_ASCII), 16)];
+        in.readFully(message);
+        return new String(message, StandardCharsets.UTF_8).trim();
+    }
+
+    private static class TestRequest extends SlimeRequest {
+
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        private final boolean answered;
+
+        private TestRequest(boolean answered) {
+            this.answered = answered;
+        }
+
+        @Override
+        public SwankPacket createPacket(long requestId, Project project) {
+            return SwankPacket.sltEval(answered ? "answered" : "(loop)", "NIL", requestId);
+        }
+
+        @Override
+        public void processReply(LispContainer data) {
+            result.complete(true);
+        }
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.en_circle.slt.tests.swank;
+
+import com.en_circle.slt.plugin.lisp.lisp.LispContainer;
+import com.en_circle.slt.plugin.swank.SlimeListener;
+import com.en_circle.slt.plugin.swank.SlimeRequest;
+import com.en_circle.slt.plugin.swank.SlimeRequestWindow;
+import com.en_circle.slt.plugin.swank.SwankClient;
+import com.en_circle.slt.plugin.swank.SwankFraming;
+import com.en_circle.slt.plugin.swank.SwankPacket;
+import com.intellij.openapi.project.Project;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RequestTimeoutTests {
+
+    @Test
+    public void testTimedOutRequestFreesWindowSlot() throws Exception {
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            Thread server = new Thread(() -> swallow(serverSocket));
+            server.setDaemon(true);
+            server.start();
+
+            SlimeListener listener = new SlimeListener(null, false, e -> { }, null, null, 1);
+            SwankClient client = new SwankClient("127.0.0.1", serverSocket.getLocalPort(), listener);
+            try {
+                // same as sendToLispAsync of request without timeout of its own
+                CompletableFuture<Boolean> stuck = new CompletableFuture<>();
+                TestRequest first = new TestRequest(stuck);
+                first.whenFinished(() -> stuck.complete(null));
+                first.withTimeout(300, TimeUnit.MILLISECONDS);
+                listener.call(first, client);
+
+                SlimeRequestWindow window = listener.getRequestWindow(first.getChannel());
+                assertEquals(1, window.getInFlight());
+                assertNull(stuck.get(5, TimeUnit.SECONDS));
+                assertEquals(0, window.getInFlight());
+                assertEquals(0, listener.getPendingCount());
+
+                // window of single slot takes next request right away
+                TestRequest next = new TestRequest(new CompletableFuture<>());
+                assertTrue(listener.tryCall(next, client, 0, TimeUnit.MILLISECONDS));
+            } finally {
+                client.close();
+                listener.close();
+            }
+        }
+    }
+
+    /**
+     * Reads requests and never answers them, like lisp stuck in debugger.
+     */
+    private static void swallow(ServerSocket serverSocket) {
+        try (Socket socket = serverSocket.accept()) {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            while (true) {
+                byte[] header = new byte[SwankFraming.HEADER_LENGTH];
+                in.readFully(header);
+                in.readFully(new byte[Integer.parseInt(new String(header, StandardCharsets.US_ASCII), 16)]);
+            }
+        } catch (IOException ignored) {
+            // test finished
+        }
+    }
+
+    private static class TestRequest extends SlimeRequest {
+
+        private final CompletableFuture<Boolean> result;
+
+        private TestRequest(CompletableFuture<Boolean> result) {
+            this.result = result;
+        }
+
+        @Override
+        public SwankPacket createPacket(long requestId, Project project) {
+            return SwankPacket.sltEval("(loop)", "NIL", requestId);
+        }
+
+        @Override
+        public void processReply(LispContainer data) {
+            result.complete(true);
+        }
+    }
+
+}
@@ -0,0 +1,47 @@
+package com.en_circle.slt.tests.swank;
+
+import com.en_circle.slt.plugin.swank.SlimeHistogram;
+import org.junit.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SlimeHistogramTests {
+
+    @Test
+    public void testSmallValuesAreExact() {
+        SlimeHistogram histogram = new SlimeHistogram();
+        for (int i = 1; i <= 20; i++) {
+            histogram.record(i);
+        }
+        assertEquals(20, histogram.getCount());
+        assertEquals(10, histogram.getValueAtPercentile(50));
+        assertEquals(20, histogram.getValueAtPercentile(100));
+        assertEquals(10.5, histogram.getMean());
+    }
+
+    @Test
+    public void testPercentileRelativeError() {
+        SlimeHistogram histogram = new SlimeHistogram();
+        for (long i = 1; i <= 100_000; i++) {
+            histogram.record(i * 1_000);
+        }
+        assertEquals(50_000_000, histogram.getValueAtPercentile(50), 50_000_000 * 0.04);
+        assertEquals(99_000_000, histogram.getValueAtPercentile(99), 99_000_000 * 0.04);
+        assertEquals(100_000_000, histogram.getValueAtPercentile(100));
+        assertEquals(100_000_000, histogram.getMax());
+    }
+
+    @Test
+    public void testReset() {
+        SlimeHistogram histogram = new SlimeHistogram();
+        histogram.record(Long.MAX_VALUE);
+        histogram.record(-5);
+        assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(100));
+        assertEquals(0, histogram.getValueAtPercentile(1));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+}
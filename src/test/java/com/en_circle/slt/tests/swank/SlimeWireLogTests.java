@@ -0,0 +1,105 @@
+package com.en_circle.slt.tests.swank;
+
+import com.en_circle.slt.plugin.swank.SlimeWireLog;
+import com.en_circle.slt.plugin.swank.SlimeWireLog.WireEvent;
+import com.en_circle.slt.plugin.swank.SwankPacket;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SlimeWireLogTests {
+
+    @Test
+    public void testEventCapacity() {
+        SlimeWireLog wireLog = new SlimeWireLog(4, Long.MAX_VALUE);
+        for (int i = 0; i < 10; i++) {
+            wireLog.logRequest("Eval", i + 1, new SwankPacket("(:emacs-rex " + i + ")"));
+        }
+        List<WireEvent> events = wireLog.snapshot(0);
+        assertEquals(4, events.size());
+        assertEquals(6, wireLog.getFirstRetained());
+        assertEquals("(:emacs-rex 6)", events.get(0).getText());
+        assertEquals("(:emacs-rex 9)", events.get(3).getText());
+    }
+
+    @Test
+    public void testByteCap() {
+        SwankPacket packet = new SwankPacket("(:return (:ok nil) 1)");
+        int size = packet.toBuffer().remaining();
+        SlimeWireLog wireLog = new SlimeWireLog(1024, size * 3L);
+        for (int i = 0; i < 100; i++) {
+            wireLog.logResponse(":return", 1, packet);
+        }
+        assertEquals(3, wireLog.snapshot(0).size());
+        assertEquals(size * 3L, wireLog.getRetainedBytes());
+
+        wireLog.clear();
+        assertTrue(wireLog.snapshot(0).isEmpty());
+        assertEquals(0, wireLog.getRetainedBytes());
+        assertEquals(100, wireLog.getFirstRetained());
+    }
+
+    @Test
+    public void testOversizedEventIsNotRetained() {
+        SwankPacket packet = new SwankPacket("(:return (:ok nil) 1)");
+        int size = packet.toBuffer().remaining();
+        SlimeWireLog wireLog = new SlimeWireLog(16, size * 2L);
+        wireLog.logResponse(":return", 1, packet);
+        wireLog.logResponse(":return", 2, new SwankPacket("(:return (:ok \"" + "x".repeat(size * 2) + "\") 2)"));
+        List<WireEvent> events = wireLog.snapshot(0);
+        assertEquals(1, events.size());
+        assertEquals(1, events.get(0).requestId());
+        assertEquals(size, wireLog.getRetainedBytes());
+    }
+
+    @Test
+    public void testSpillRotatesByEncodedSize() throws Exception {
+        Path directory = Files.createTempDirectory("wire-log");
+        Path file = directory.resolve("wire.log");
+        SlimeWireLog wireLog = new SlimeWireLog(16, Long.MAX_VALUE);
+        try {
+            wireLog.spillTo(file, 1000, 2);
+            // 300 characters but 600 bytes of text each, file rotates only when bytes are counted
+            for (int i = 0; i < 3; i++) {
+                wireLog.logRequest("Eval", i + 1, new SwankPacket("\"" + "\u00e9".repeat(300) + "\""));
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!Files.exists(directory.resolve("wire.log.1")) && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+            assertTrue(Files.exists(directory.resolve("wire.log.1")));
+        } finally {
+            wireLog.close();
+        }
+    }
+
+    @Test
+    public void testConcurrentAppend() throws Exception {
+        SlimeWireLog wireLog = new SlimeWireLog(256, 10_000);
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    wireLog.logRequest("Eval", i, new SwankPacket("(:emacs-rex " + i + ")"));
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        List<WireEvent> events = wireLog.snapshot(0);
+        long bytes = events.stream().mapToLong(WireEvent::size).sum();
+        assertEquals(bytes, wireLog.getRetainedBytes());
+        assertTrue(bytes <= 10_000);
+        for (int i = 1; i < events.size(); i++) {
+            assertTrue(events.get(i - 1).sequence() < events.get(i).sequence());
+        }
+    }
+
+}
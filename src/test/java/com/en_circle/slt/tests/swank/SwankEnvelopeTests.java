@@ -0,0 +1,70 @@
+package com.en_circle.slt.tests.swank;
+
+import com.en_circle.slt.plugin.lisp.lisp.LispContainer;
+import com.en_circle.slt.plugin.swank.SwankEnvelope;
+import com.en_circle.slt.plugin.swank.SwankPacket;
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SwankEnvelopeTests {
+
+    @Test
+    public void testReturnIsNotParsed() {
+        SwankEnvelope envelope = SwankEnvelope.scan(new SwankPacket("(:return (:ok (\"a\" \"b)\" 12)) 4211)"));
+        assertEquals(":return", envelope.getEvent());
+        assertEquals(":ok", envelope.getStatus());
+        assertEquals(4211, envelope.getContinuation());
+        assertFalse(envelope.isParsed());
+
+        LispContainer form = envelope.getForm();
+        assertTrue(envelope.isParsed());
+        assertEquals(3, form.getItems().size());
+    }
+
+    @Test
+    public void testAbort() {
+        SwankEnvelope envelope = SwankEnvelope.scan(new SwankPacket("(:return (:abort \"error\") 7)"));
+        assertEquals(":abort", envelope.getStatus());
+        assertEquals(7, envelope.getContinuation());
+    }
+
+    @Test
+    public void testDebugEvents() {
+        SwankEnvelope envelope = SwankEnvelope.scan(new SwankPacket("(:debug-activate 12 1 nil)"));
+        assertEquals(":debug-activate", envelope.getEvent());
+        assertEquals(BigInteger.valueOf(12), envelope.getThread());
+        assertEquals(BigInteger.ONE, envelope.getLevel());
+        assertFalse(envelope.isParsed());
+        assertEquals(-1, envelope.getContinuation());
+    }
+
+    @Test
+    public void testRequestThread() {
+        SwankEnvelope envelope = SwankEnvelope.scan(new SwankPacket("(:slt-request-thread 3 4211)"));
+        assertEquals(":slt-request-thread", envelope.getEvent());
+        assertEquals(BigInteger.valueOf(3), envelope.getThread());
+        assertEquals(4211, envelope.getContinuation());
+        assertFalse(envelope.isParsed());
+    }
+
+    @Test
+    public void testOtherEvent() {
+        SwankEnvelope envelope = SwankEnvelope.scan(new SwankPacket("(:write-string \"hello\")"));
+        assertEquals(":write-string", envelope.getEvent());
+        assertNull(envelope.getStatus());
+        assertFalse(envelope.isParsed());
+    }
+
+    @Test
+    public void testUnusualLayoutFallsBackToParsing() {
+        SwankEnvelope envelope = SwankEnvelope.scan(new SwankPacket("(:return (:ok nil) #x10)"));
+        assertTrue(envelope.isParsed());
+
+        envelope = SwankEnvelope.scan(new SwankPacket("nil"));
+        assertNull(envelope.getEvent());
+    }
+
+}
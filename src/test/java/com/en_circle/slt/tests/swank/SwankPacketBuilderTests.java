@@ -0,0 +1,57 @@
+package com.en_circle.slt.tests.swank;
+
+import com.en_circle.slt.plugin.swank.SwankPacket;
+import com.en_circle.slt.plugin.swank.SwankPacketBuilder;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SwankPacketBuilderTests {
+
+    @Test
+    public void testEscapedString() {
+        SwankPacket packet = SwankPacketBuilder.builder()
+                .list().raw(":write-string").string("a \"b\" \\c").end()
+                .build();
+        assertEquals("(:write-string \"a \\\"b\\\" \\\\c\")", packet.getSentData());
+    }
+
+    @Test
+    public void testFrameHeader() {
+        SwankPacket packet = SwankPacket.sltEval("(list \"ž\" 1)", null, "cl-user", 10);
+        String message = "(:emacs-rex (swank:slt-eval \"(list \\\"ž\\\" 1)\") \":cl-user\" T 10)";
+        assertEquals(message, packet.getSentData());
+
+        ByteBuffer frame = packet.toBuffer();
+        byte[] data = new byte[frame.remaining()];
+        frame.get(data);
+        int encodedLength = message.getBytes(StandardCharsets.UTF_8).length;
+        assertEquals(String.format("%06X", encodedLength + 1), new String(data, 0, 6, StandardCharsets.US_ASCII));
+        assertEquals(encodedLength, packet.getLength());
+        assertEquals('\n', data[data.length - 1]);
+    }
+
+    @Test
+    public void testBreakpoints() {
+        SwankPacket packet = SwankPacket.swankEvalRegion("(f)", "A B", "x.lisp", 3, "cl-user", 1);
+        assertEquals("(:emacs-rex (swank:compile-string-region-slt \"(f)\" \"A B\" \"x.lisp\" 3 \"x.lisp\" :cl-user) " +
+                "\":cl-user\" T 1)", packet.getSentData());
+        packet = SwankPacket.sltEval("(f)", "A", "cl-user", 1);
+        assertEquals("(:emacs-rex (swank:slt-eval \"(progn (slt-core::with-breakpoints \\\"A\\\") (f))\") " +
+                "\":cl-user\" T 1)", packet.getSentData());
+    }
+
+    @Test
+    public void testBatch() {
+        SwankPacket packet = SwankPacket.batch(List.of(SwankPacket.dumpThreads(1), SwankPacket.killThread(BigInteger.TWO, 2)), 3);
+        assertEquals("(:emacs-rex (swank:slt-batch #(\"(:emacs-rex (swank:list-threads) \\\":CL-USER\\\" T 1)\" " +
+                "\"(:emacs-rex (swank:kill-nth-thread 2) \\\":CL-USER\\\" T 2)\")) \":CL-USER\" T 3)",
+                packet.getSentData());
+    }
+
+}
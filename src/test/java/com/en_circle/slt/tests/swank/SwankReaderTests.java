@@ -0,0 +1,66 @@
+package com.en_circle.slt.tests.swank;
+
+import com.en_circle.slt.plugin.lisp.lisp.*;
+import com.en_circle.slt.plugin.lisp.lisp.LispContainer.ContainerType;
+import com.en_circle.slt.plugin.swank.SwankReader;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SwankReaderTests {
+
+    @Test
+    public void testReturnEnvelope() {
+        List<LispElement> elements = SwankReader.read("(:return (:ok \"a \\\"b\\\"\") 12)");
+        assertEquals(1, elements.size());
+        LispContainer reply = (LispContainer) elements.get(0);
+        assertEquals(3, reply.getItems().size());
+        assertEquals(new LispSymbol(":return"), reply.getItems().get(0));
+        assertEquals(BigInteger.valueOf(12), ((LispInteger) reply.getItems().get(2)).getValue());
+
+        LispContainer result = (LispContainer) reply.getItems().get(1);
+        assertEquals(":ok", ((LispSymbol) result.getItems().get(0)).getValue());
+        assertEquals("a \\\"b\\\"", ((LispString) result.getItems().get(1)).getValue());
+    }
+
+    @Test
+    public void testNumbers() {
+        List<LispElement> elements = SwankReader.read("1 -2 10. 3/4 1.5 1.5d0 1e3 .5 1+");
+        assertEquals(BigInteger.ONE, ((LispInteger) elements.get(0)).getValue());
+        assertEquals(BigInteger.valueOf(-2), ((LispInteger) elements.get(1)).getValue());
+        assertEquals(BigInteger.TEN, ((LispInteger) elements.get(2)).getValue());
+        assertEquals(BigInteger.valueOf(4), ((LispRational) elements.get(3)).getValue().getQ());
+        assertEquals(0, new BigDecimal("1.5").compareTo(((LispDouble) elements.get(4)).getValue()));
+        assertEquals(0, new BigDecimal("1.5").compareTo(((LispDouble) elements.get(5)).getValue()));
+        assertEquals(0, new BigDecimal("1000").compareTo(((LispDouble) elements.get(6)).getValue()));
+        assertEquals(0, new BigDecimal("0.5").compareTo(((LispDouble) elements.get(7)).getValue()));
+        assertInstanceOf(LispSymbol.class, elements.get(8));
+    }
+
+    @Test
+    public void testSymbolsAndContainers() {
+        List<LispElement> elements = SwankReader.read("(|a b| foo\\ bar #:sym 'q #(1 2) (a . b)) ; comment");
+        assertEquals(1, elements.size());
+        LispContainer list = (LispContainer) elements.get(0);
+        assertEquals("|a b|", ((LispSymbol) list.getItems().get(0)).getValue());
+        assertEquals("foo\\ bar", ((LispSymbol) list.getItems().get(1)).getValue());
+        assertEquals("sym", ((LispSymbol) list.getItems().get(2)).getValue());
+        assertEquals("q", ((LispSymbol) list.getItems().get(3)).getValue());
+        assertEquals(ContainerType.VECTOR, ((LispContainer) list.getItems().get(4)).getContainerType());
+        assertEquals(2, ((LispContainer) list.getItems().get(5)).getItems().size());
+    }
+
+    @Test
+    public void testUnreadable() {
+        List<LispElement> elements = SwankReader.read("(#<FUNCTION FOO> #\\Space)");
+        LispContainer list = (LispContainer) elements.get(0);
+        assertEquals(LispElementType.UNPARSED, list.getItems().get(0).getType());
+        assertEquals("#<FUNCTION FOO>", ((LispUnparsedElement) list.getItems().get(0)).getValue());
+        assertEquals("#\\Space", ((LispUnparsedElement) list.getItems().get(1)).getValue());
+    }
+
+}
@@ -0,0 +1,196 @@
+package com.en_circle.slt.tests.swank;
+
+import com.en_circle.slt.plugin.lisp.lisp.LispContainer;
+import com.en_circle.slt.plugin.swank.SlimeListener;
+import com.en_circle.slt.plugin.swank.SlimeRequest;
+import com.en_circle.slt.plugin.swank.SwankChannelPool;
+import com.en_circle.slt.plugin.swank.SwankClient;
+import com.en_circle.slt.plugin.swank.SwankFraming;
+import com.en_circle.slt.plugin.swank.SwankPacket;
+import com.intellij.openapi.project.Project;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SwankReconnectTests {
+
+    private static final Pattern CONTINUATION = Pattern.compile("(\\d+)\\)$");
+
+    @Test
+    public void testReplayAfterReconnect() throws Exception {
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            Thread server = new Thread(() -> serve(serverSocket));
+            server.setDaemon(true);
+            server.start();
+
+            SlimeListener listener = new SlimeListener(null, false, e -> { }, null, null);
+            try (SwankChannelPool pool = new SwankChannelPool("127.0.0.1", serverSocket.getLocalPort(), listener, false)) {
+                TestRequest idempotent = new TestRequest(true);
+                TestRequest other = new TestRequest(false);
+                listener.call(idempotent, pool.getClient(idempotent));
+                listener.call(other, pool.getClient(other));
+
+                assertEquals(Boolean.FALSE, other.result.get(5, TimeUnit.SECONDS));
+                assertEquals(Boolean.TRUE, idempotent.result.get(5, TimeUnit.SECONDS));
+                assertEquals(1, listener.getStats().getReplayedCount());
+                assertEquals(1, listener.getStats().getDisconnectedCount());
+                assertEquals(0, listener.getPendingCount());
+
+                TestRequest afterReconnect = new TestRequest(false);
+                listener.call(afterReconnect, pool.getClient(afterReconnect));
+                assertEquals(Boolean.TRUE, afterReconnect.result.get(5, TimeUnit.SECONDS));
+            } finally {
+                listener.close();
+            }
+        }
+    }
+
+    @Test
+    public void testRequestSentOverReplacedClientIsResent() throws Exception {
+        try (ServerSocket lostSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+             ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            Thread server = new Thread(() -> answer(serverSocket));
+            server.setDaemon(true);
+            server.start();
+
+            SlimeListener listener = new SlimeListener(null, false, e -> { }, null, null);
+            SwankClient lost = new SwankClient("127.0.0.1", lostSocket.getLocalPort(), listener);
+            SwankClient client = new SwankClient("127.0.0.1", serverSocket.getLocalPort(), listener);
+            try {
+                try (Socket ignored = lostSocket.accept()) {
+                    assertTrue(lost.awaitConnected(5, TimeUnit.SECONDS));
+                }
+                assertTrue(client.awaitConnected(5, TimeUnit.SECONDS));
+                // caller got the lost client just before pending requests were replayed
+                listener.onReconnected(lost, client);
+
+                TestRequest idempotent = new TestRequest(true);
+                listener.call(idempotent, lost);
+                assertEquals(Boolean.TRUE, idempotent.result.get(5, TimeUnit.SECONDS));
+                assertEquals(1, listener.getStats().getReplayedCount());
+                assertEquals(0, listener.getPendingCount());
+            } finally {
+                lost.close();
+                client.close();
+                listener.close();
+            }
+        }
+    }
+
+    @Test
+    public void testSendToClosedClientIsRejected() throws Exception {
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            SwankClient client = new SwankClient("127.0.0.1", serverSocket.getLocalPort(), new SwankClient.SwankReply() {
+                @Override
+                public void onSwankMessage(SwankPacket packet) {
+
+                }
+
+                @Override
+                public void onReadError(Exception e) {
+
+                }
+            });
+            try (Socket ignored = serverSocket.accept()) {
+                assertTrue(client.awaitConnected(5, TimeUnit.SECONDS));
+                assertTrue(client.swankSend(SwankPacket.sltEval("(+ 1 2)", "NIL", 1)));
+                client.close();
+                assertFalse(client.isAlive());
+                assertFalse(client.swankSend(SwankPacket.sltEval("(+ 1 2)", "NIL", 2)));
+            }
+        }
+    }
+
+    /**
+     * Drops first connection after both requests arrive, answers everything on the next one.
+     */
+    private static void serve(ServerSocket serverSocket) {
+        try {
+            try (Socket first = serverSocket.accept()) {
+                DataInputStream in = new DataInputStream(first.getInputStream());
+                readMessage(in);
+                readMessage(in);
+            }
+            try (Socket second = serverSocket.accept()) {
+                DataInputStream in = new DataInputStream(second.getInputStream());
+                OutputStream out = second.getOutputStream();
+                while (true) {
+                    Matcher matcher = CONTINUATION.matcher(readMessage(in));
+                    assertTrue(matcher.find());
+                    ByteBuffer frame = new SwankPacket("(:return (:ok nil) " + matcher.group(1) + ")").toBuffer();
+                    byte[] data = new byte[frame.remaining()];
+                    frame.get(data);
+                    out.write(data);
+                    out.flush();
+                }
+            }
+        } catch (IOException ignored) {
+            // test finished
+        }
+    }
+
+    /**
+     * Answers every request on single connection.
+     */
+    private static void answer(ServerSocket serverSocket) {
+        try (Socket socket = serverSocket.accept()) {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+            while (true) {
+                Matcher matcher = CONTINUATION.matcher(readMessage(in));
+                assertTrue(matcher.find());
+                ByteBuffer frame = new SwankPacket("(:return (:ok nil) " + matcher.group(1) + ")").toBuffer();
+                byte[] data = new byte[frame.remaining()];
+                frame.get(data);
+                out.write(data);
+                out.flush();
+            }
+        } catch (IOException ignored) {
+            // test finished
+        }
+    }
+
+    private static String readMessage(DataInputStream in) throws IOException {
+        byte[] header = new byte[SwankFraming.HEADER_LENGTH];
+        in.readFully(header);
+        byte[] message = new byte[Integer.parseInt(new String(header, StandardCharsets.US_ASCII), 16)];
+        in.readFully(message);
+        return new String(message, StandardCharsets.UTF_8).trim();
+    }
+
+    private static class TestRequest extends SlimeRequest {
+
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        private TestRequest(boolean idempotent) {
+            if (idempotent) {
+                idempotent();
+            }
+            withTimeout(10, TimeUnit.SECONDS, () -> result.complete(false));
+        }
+
+        @Override
+        public SwankPacket createPacket(long requestId, Project project) {
+            return SwankPacket.sltEval("(+ 1 2)", "NIL", requestId);
+        }
+
+        @Override
+        public void processReply(LispContainer data) {
+            result.complete(true);
+        }
+    }
+
+}
@@ -0,0 +1,122 @@
+package com.en_circle.slt.tests.symbols;
+
+import com.en_circle.slt.plugin.services.lisp.components.SltBoundedCache;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoundedCacheTests {
+
+    @Test
+    public void testSizeBound() {
+        SltBoundedCache<String, String> cache = new SltBoundedCache<>(100, Long.MAX_VALUE, value -> 1);
+        for (int i = 0; i < 1000; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+        assertEquals(100, cache.size());
+        assertEquals(100, cache.getWeight());
+        assertEquals(900, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testWeightBound() {
+        SltBoundedCache<String, String> cache = new SltBoundedCache<>(1000, 1000, String::length);
+        for (int i = 0; i < 100; i++) {
+            cache.put("key" + i, "x".repeat(100));
+        }
+        assertTrue(cache.getWeight() <= 1000);
+        assertTrue(cache.size() <= 10);
+
+        StringBuilder grown = new StringBuilder("x");
+        SltBoundedCache<String, StringBuilder> mutable = new SltBoundedCache<>(1000, 1000, StringBuilder::length);
+        mutable.put("grown", grown);
+        mutable.put("other", new StringBuilder("y"));
+        grown.append("x".repeat(2000));
+        mutable.reweigh("grown");
+        assertNull(mutable.get("grown"));
+        assertEquals(1, mutable.getWeight());
+    }
+
+    @Test
+    public void testListener() {
+        SltBoundedCache<String, String> cache = new SltBoundedCache<>(10, Long.MAX_VALUE, value -> 1);
+        Set<String> present = new HashSet<>();
+        cache.setListener(new SltBoundedCache.Listener<>() {
+            @Override
+            public void onAdded(String key, String value) {
+                assertTrue(present.add(value));
+            }
+
+            @Override
+            public void onRemoved(String key, String value) {
+                assertTrue(present.remove(value));
+            }
+        });
+        for (int i = 0; i < 100; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+        cache.computeIfAbsent("computed", k -> "computed");
+        cache.put("computed", "replaced");
+        cache.remove("key99");
+        assertEquals(cache.size(), present.size());
+        assertTrue(present.contains("replaced"));
+        cache.clear();
+        assertTrue(present.isEmpty());
+    }
+
+    @Test
+    public void testFrequentEntriesSurviveScan() {
+        SltBoundedCache<String, String> cache = new SltBoundedCache<>(200, Long.MAX_VALUE, value -> 1);
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 100; i++) {
+                cache.computeIfAbsent("hot" + i, key -> key);
+            }
+        }
+        // one time lookups, ie symbols of a large file opened once, mixed with common symbols
+        for (int i = 0; i < 10_000; i++) {
+            cache.computeIfAbsent("cold" + i, key -> key);
+            if (i % 10 == 0) {
+                cache.computeIfAbsent("hot" + (i / 10) % 100, key -> key);
+            }
+        }
+
+        int retained = 0;
+        for (int i = 0; i < 100; i++) {
+            if (cache.get("hot" + i) != null) {
+                ++retained;
+            }
+        }
+        // hot symbol is used again after 1000 other lookups, LRU of the same size would keep about 20 of them
+        assertTrue(retained >= 50, "retained " + retained);
+        assertTrue(cache.size() <= 200);
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        SltBoundedCache<Integer, Integer> cache = new SltBoundedCache<>(500, Long.MAX_VALUE, value -> 1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int thread = 0; thread < 4; thread++) {
+            int seed = thread;
+            executor.submit(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    int key = (i * 31 + seed) % 2000;
+                    assertEquals(key, cache.computeIfAbsent(key, k -> k));
+                    if (i % 100 == 0) {
+                        cache.remove(key);
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        assertTrue(cache.size() <= 500);
+        assertEquals(cache.size(), cache.getWeight());
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.en_circle.slt.tests.symbols;
+
+import com.en_circle.slt.plugin.services.lisp.components.SltDefinedSymbols;
+import org.junit.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DefinedSymbolsTests {
+
+    @Test
+    public void testDefinitions() {
+        String code = """
+                (in-package :test)
+                (defun foo (x) (bar x))
+                (cl:defmacro Baz (&body body) `(progn ,@body))
+                (eval-when (:compile-toplevel)
+                  (defvar *counter* 0))
+                (defun (setf foo) (value x) value)
+                (defstruct (point (:conc-name p-)) x y)
+                (define-condition my-error (error) ())
+                (defclass shape () ((area :accessor shape-area :initarg :area)))
+                """;
+        assertEquals(Set.of("FOO", "BAZ", "*COUNTER*", "POINT", "MY-ERROR", "SHAPE", "SHAPE-AREA"),
+                SltDefinedSymbols.scan(code));
+    }
+
+    @Test
+    public void testRemovals() {
+        assertEquals(Set.of("FOO", "BAR"), SltDefinedSymbols.scan("(progn (fmakunbound 'foo) (makunbound 'test::bar))"));
+        assertEquals(Set.of("FOO"), SltDefinedSymbols.scan("(fmakunbound #'foo)"));
+    }
+
+    @Test
+    public void testIgnoresCommentsAndStrings() {
+        String code = """
+                ; (defun commented ())
+                #| (defun block-commented ()) |#
+                (print "(defun in-string ()")
+                (print #\\()
+                (list 'defun 'not-defined)
+                (defun defined ())
+                """;
+        assertEquals(Set.of("DEFINED"), SltDefinedSymbols.scan(code));
+        assertTrue(SltDefinedSymbols.scan("(+ 1 2)").isEmpty());
+        assertTrue(SltDefinedSymbols.scan("(defun").isEmpty());
+    }
+
+}
@@ -0,0 +1,36 @@
+package com.en_circle.slt.tests.symbols;
+
+import com.en_circle.slt.plugin.lisp.lisp.LispContainer;
+import com.en_circle.slt.plugin.services.lisp.components.SltDefinitionChanges;
+import com.en_circle.slt.plugin.swank.SwankReader;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DefinitionChangesTests {
+
+    @Test
+    public void testParse() {
+        SltDefinitionChanges changes = parse(
+                "(:slt-definitions-changed ((\"FOO\" \"TEST\") (\"bar\" NIL)) (\"NEW-PACKAGE\") (\"OLD-PACKAGE\"))");
+        assertEquals(Set.of("FOO", "BAR"), changes.symbolNames());
+        assertEquals(List.of("NEW-PACKAGE"), changes.createdPackages());
+        assertEquals(List.of("OLD-PACKAGE"), changes.deletedPackages());
+    }
+
+    @Test
+    public void testParseEmptyLists() {
+        SltDefinitionChanges changes = parse("(:slt-definitions-changed nil (\"NEW-PACKAGE\") nil)");
+        assertTrue(changes.symbolNames().isEmpty());
+        assertEquals(List.of("NEW-PACKAGE"), changes.createdPackages());
+        assertTrue(changes.deletedPackages().isEmpty());
+    }
+
+    private static SltDefinitionChanges parse(String event) {
+        return SltDefinitionChanges.parse((LispContainer) SwankReader.read(event).get(0));
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.en_circle.slt.tests.symbols;
+
+import com.en_circle.slt.plugin.SymbolState;
+import com.en_circle.slt.plugin.services.lisp.components.SltSymbolRefreshQueue;
+import com.en_circle.slt.plugin.services.lisp.components.SltSymbolRefreshQueue.QueuedSymbol;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SymbolRefreshQueueTests {
+
+    private static SymbolState symbol(String name) {
+        return new SymbolState(name, null, name);
+    }
+
+    @Test
+    public void testDeduplication() throws Exception {
+        SltSymbolRefreshQueue queue = new SltSymbolRefreshQueue(10);
+        queue.resume();
+        assertTrue(queue.offer(symbol("CAR")));
+        assertFalse(queue.offer(symbol("CAR")));
+        assertTrue(queue.offer(symbol("CDR")));
+
+        List<QueuedSymbol> batch = queue.take(0);
+        assertEquals(2, batch.size());
+        assertEquals(0, queue.getDepth());
+        assertEquals(2, queue.getInFlight());
+        // still being analyzed
+        assertFalse(queue.offer(symbol("CAR")));
+
+        queue.completed(batch);
+        assertEquals(0, queue.getInFlight());
+        assertEquals(2, queue.getLatency().getCount());
+        assertTrue(queue.offer(symbol("CAR")));
+    }
+
+    @Test
+    public void testFullBatchSkipsDebounce() throws Exception {
+        SltSymbolRefreshQueue queue = new SltSymbolRefreshQueue(3);
+        queue.resume();
+        for (int i = 0; i < 5; i++) {
+            queue.offer(symbol("S" + i));
+        }
+        long start = System.nanoTime();
+        List<QueuedSymbol> batch = queue.take(TimeUnit.SECONDS.toNanos(10));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertEquals(3, batch.size());
+        assertEquals("S0", batch.get(0).state().name);
+        assertEquals(2, queue.getDepth());
+        assertEquals(3, queue.getBatchSizes().getMax());
+    }
+
+    @Test
+    public void testPauseAndTerminate() throws Exception {
+        SltSymbolRefreshQueue queue = new SltSymbolRefreshQueue(10);
+        queue.offer(symbol("CAR"));
+        CompletableFuture<List<QueuedSymbol>> taken = CompletableFuture.supplyAsync(() -> {
+            try {
+                return queue.take(0);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Thread.sleep(100);
+        // paused until lisp is started
+        assertFalse(taken.isDone());
+        queue.resume();
+        assertEquals(1, taken.get(5, TimeUnit.SECONDS).size());
+
+        CompletableFuture<List<QueuedSymbol>> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return queue.take(0);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Thread.sleep(100);
+        assertFalse(waiting.isDone());
+        queue.terminate();
+        assertTrue(waiting.get(5, TimeUnit.SECONDS).isEmpty());
+        assertFalse(queue.offer(symbol("CDR")));
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.en_circle.slt.tests.symbols;
+
+import com.en_circle.slt.plugin.SymbolState;
+import com.en_circle.slt.plugin.SymbolState.SymbolBinding;
+import com.en_circle.slt.plugin.services.lisp.components.SltSymbolSnapshot;
+import com.en_circle.slt.plugin.swank.components.SourceLocation;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SymbolSnapshotTests {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        Path file = Files.createTempDirectory("slt-snapshot").resolve("symbols").resolve("test.bin");
+
+        SymbolState function = new SymbolState("test:foo", "test", "foo");
+        function.binding = SymbolBinding.FUNCTION;
+        function.hasDocumentation = true;
+        function.location = new SourceLocation("/tmp/přílišžluťoučký.lisp", 120, true, true);
+        SymbolState macro = new SymbolState("when", null, "when");
+        macro.binding = SymbolBinding.MACRO;
+        SltSymbolSnapshot.write(file, List.of(function, macro));
+
+        List<SymbolState> states = SltSymbolSnapshot.read(file);
+        assertEquals(List.of(function, macro), states);
+        assertEquals(SymbolBinding.FUNCTION, states.get(0).binding);
+        assertTrue(states.get(0).hasDocumentation);
+        assertEquals(function.location, states.get(0).location);
+        assertNull(states.get(1).packageName);
+        assertFalse(states.get(1).hasDocumentation);
+        assertTrue(states.stream().allMatch(state -> state.provisional));
+    }
+
+    @Test
+    public void testDamagedSnapshot() throws Exception {
+        Path directory = Files.createTempDirectory("slt-snapshot");
+        assertTrue(SltSymbolSnapshot.read(directory.resolve("missing.bin")).isEmpty());
+
+        Path file = directory.resolve("test.bin");
+        SymbolState state = new SymbolState("foo", null, "foo");
+        state.binding = SymbolBinding.CLASS;
+        SltSymbolSnapshot.write(file, List.of(state));
+        byte[] data = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(data, data.length - 3));
+        assertTrue(SltSymbolSnapshot.read(file).isEmpty());
+
+        Files.write(file, "not a snapshot".getBytes());
+        assertTrue(SltSymbolSnapshot.read(file).isEmpty());
+    }
+
+}